@@ -0,0 +1,132 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures formatting sizes with {@link HumanReadableSize} and with {@link String#format}, and
+ * parsing them with {@link HumanReadableSize} and with a regular expression.
+ * Running JMH with {@code -prof gc} shows that the {@link StringBuilder} and {@code char} array
+ * overloads and parsing allocate nothing, i.e. that {@code gc.alloc.rate.norm} is zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class HumanReadableSizeBenchmark {
+	private static final int SIZE_COUNT = 1024;
+	private static final Pattern SIZE_PATTERN =
+			Pattern.compile("(-?\\d+(?:\\.\\d+)?) ?([kMGTPE]|[KMGTPE]i)?B");
+
+	private final long[] sizes = new long[SIZE_COUNT];
+	private final String[] texts = new String[SIZE_COUNT];
+	private final StringBuilder builder = new StringBuilder(HumanReadableSize.MAX_LENGTH);
+	private final char[] buffer = new char[HumanReadableSize.MAX_LENGTH];
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Random random = new Random(0L);
+		Locale.setDefault(Locale.Category.FORMAT, Locale.ROOT);
+
+		for (int i = 0; i < SIZE_COUNT; i++) {
+			sizes[i] = random.nextLong() >>> random.nextInt(64);
+			texts[i] = i % 2 == 0 ?
+					HumanReadableSize.decimal(sizes[i]) : HumanReadableSize.binary(sizes[i]);
+		}
+	}
+
+	@Benchmark
+	public String stringFormat() {
+		return String.format("%.1f %s", nextSize() / 1048576.0, "MiB");
+	}
+
+	@Benchmark
+	public String binaryString() {
+		return HumanReadableSize.binary(nextSize());
+	}
+
+	@Benchmark
+	public StringBuilder binaryStringBuilder() {
+		builder.setLength(0);
+		return HumanReadableSize.binary(nextSize(), builder);
+	}
+
+	@Benchmark
+	public void binaryCharArray(Blackhole blackhole) {
+		blackhole.consume(HumanReadableSize.binary(nextSize(), buffer, 0));
+		blackhole.consume(buffer);
+	}
+
+	@Benchmark
+	public void decimalCharArray(Blackhole blackhole) {
+		blackhole.consume(HumanReadableSize.decimal(nextSize(), buffer, 0));
+		blackhole.consume(buffer);
+	}
+
+	@Benchmark
+	public long parse() {
+		return HumanReadableSize.parse(nextText());
+	}
+
+	@Benchmark
+	public long parseLenient() {
+		return HumanReadableSize.parseLenient(nextText());
+	}
+
+	@Benchmark
+	public double parseRegex() {
+		final Matcher matcher = SIZE_PATTERN.matcher(nextText());
+		return matcher.matches() ? Double.parseDouble(matcher.group(1)) : 0.0;
+	}
+
+	private String nextText() {
+		return texts[index++ & SIZE_COUNT - 1];
+	}
+
+	private long nextSize() {
+		return sizes[index++ & SIZE_COUNT - 1];
+	}
+}
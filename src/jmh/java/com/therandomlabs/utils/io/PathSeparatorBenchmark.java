@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PathUtils#withUnixDirectorySeparators(String)} against the
+ * {@link PathUtils#normalizeSeparators(CharSequence)} overloads for paths that already use Unix
+ * separators and for paths that use Windows separators.
+ * Running JMH with {@code -prof gc} shows that already normalized paths are not copied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PathSeparatorBenchmark {
+	private static final int PATH_COUNT = 1024;
+
+	@Param({"unix", "windows"})
+	private String separators;
+
+	private final String[] paths = new String[PATH_COUNT];
+	private final byte[][] encodedPaths = new byte[PATH_COUNT][];
+	private char[] chars;
+	private ByteBuffer buffer;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Random random = new Random(0L);
+		final char separator = "windows".equals(separators) ?
+				IOConstants.WINDOWS_DIRECTORY_SEPARATOR : IOConstants.UNIX_DIRECTORY_SEPARATOR;
+		int maxLength = 0;
+
+		for (int i = 0; i < PATH_COUNT; i++) {
+			final StringBuilder path = new StringBuilder();
+			final int depth = 3 + random.nextInt(8);
+
+			for (int j = 0; j < depth; j++) {
+				path.append("directory").append(random.nextInt(1000)).append(separator);
+			}
+
+			paths[i] = path.append("file").append(i).append(".txt").toString();
+			encodedPaths[i] = paths[i].getBytes(StandardCharsets.UTF_8);
+			maxLength = Math.max(maxLength, paths[i].length());
+		}
+
+		chars = new char[maxLength];
+		buffer = ByteBuffer.allocateDirect(maxLength);
+	}
+
+	@Benchmark
+	public String withUnixDirectorySeparators() {
+		return PathUtils.withUnixDirectorySeparators(nextPath());
+	}
+
+	@Benchmark
+	public String normalizeString() {
+		return PathUtils.normalizeSeparators(nextPath());
+	}
+
+	@Benchmark
+	public int normalizeCharArray() {
+		final String path = nextPath();
+		path.getChars(0, path.length(), chars, 0);
+		return PathUtils.normalizeSeparators(chars, 0, path.length());
+	}
+
+	@Benchmark
+	public int normalizeByteBuffer() {
+		buffer.clear();
+		buffer.put(encodedPaths[index++ & PATH_COUNT - 1]);
+		buffer.flip();
+		return PathUtils.normalizeSeparators(buffer);
+	}
+
+	private String nextPath() {
+		return paths[index++ & PATH_COUNT - 1];
+	}
+}
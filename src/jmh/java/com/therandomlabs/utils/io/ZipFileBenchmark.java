@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures creating, opening, reading and extracting zip files with different numbers of
+ * entries through both {@link ZipFile} and {@link ZipWriter} or {@link ZipReader}.
+ * Allocation rates can be reported by running JMH with {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ZipFileBenchmark {
+	@Param({"1", "10000", "1000000"})
+	public int entryCount;
+
+	private Path directory;
+	private Path zipPath;
+	private Path createdZipPath;
+	private Path extractDirectory;
+	private String lookedUpEntry;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("zip-benchmark");
+		zipPath = directory.resolve("test.zip");
+		createdZipPath = directory.resolve("created.zip");
+		extractDirectory = directory.resolve("extracted");
+		lookedUpEntry = getEntryName(entryCount / 2);
+		createWithZipWriter(zipPath, entryCount);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		NIOUtils.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public void createZipFile() throws IOException {
+		createWithZipFile(createdZipPath, entryCount);
+	}
+
+	@Benchmark
+	public void createZipWriter() throws IOException {
+		createWithZipWriter(createdZipPath, entryCount);
+	}
+
+	@Benchmark
+	public long openZipFile() throws IOException {
+		try (ZipFile zipFile = new ZipFile(zipPath)) {
+			return Files.size(zipFile.getEntry(lookedUpEntry));
+		}
+	}
+
+	@Benchmark
+	public long openZipReader() throws IOException {
+		try (ZipReader zipReader = new ZipReader(zipPath)) {
+			return zipReader.getEntry(lookedUpEntry).getSize();
+		}
+	}
+
+	@Benchmark
+	public void readAllZipFile(Blackhole blackhole) throws IOException {
+		try (ZipFile zipFile = new ZipFile(zipPath)) {
+			for (int i = 0; i < entryCount; i++) {
+				blackhole.consume(Files.readAllBytes(zipFile.getEntry(getEntryName(i))));
+			}
+		}
+	}
+
+	@Benchmark
+	public void readAllZipReader(Blackhole blackhole) throws IOException {
+		try (ZipReader zipReader = new ZipReader(zipPath)) {
+			for (int i = 0; i < entryCount; i++) {
+				final ByteBuffer data = zipReader.getData(zipReader.getEntry(getEntryName(i)));
+				blackhole.consume(data.get(0));
+			}
+		}
+	}
+
+	@Benchmark
+	public void extract() throws IOException {
+		try (ZipFile zipFile = new ZipFile(zipPath)) {
+			zipFile.extractTo(extractDirectory, ExtractOptions.defaults().replacingExisting(true));
+		}
+	}
+
+	static String getEntryName(int index) {
+		//Entries are spread over 100 directories so that directory creation is also measured.
+		return "directory" + index % 100 + "/entry" + index + ".txt";
+	}
+
+	static void createWithZipFile(Path path, int entryCount) throws IOException {
+		final FileTime lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis());
+
+		try (ZipFile zipFile = ZipFile.createNew(path)) {
+			for (int i = 0; i < entryCount; i++) {
+				final Path entry = zipFile.getEntry(getEntryName(i));
+				NIOUtils.ensureParentExists(entry);
+				Files.write(entry, ("Entry " + i).getBytes(StandardCharsets.UTF_8));
+				Files.setLastModifiedTime(entry, lastModifiedTime);
+			}
+		}
+	}
+
+	static void createWithZipWriter(Path path, int entryCount) throws IOException {
+		final FileTime lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis());
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			for (int i = 0; i < entryCount; i++) {
+				try (OutputStream out = zipWriter.newEntry(getEntryName(i), lastModifiedTime)) {
+					out.write(("Entry " + i).getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A stress harness that creates, opens, reads and extracts large zip files and reports the time,
+ * the allocation rate and the peak resident set size of each phase.
+ * Creation is measured both through {@link ZipFile}, i.e. the zip filesystem, and through
+ * {@link ZipWriter}.
+ * <p>
+ * The following scenarios are available, and all of them are run if none are specified:
+ * <ul>
+ *     <li>{@code entries-1}, {@code entries-10000} and {@code entries-1000000}: archives with
+ *     the specified number of small entries.</li>
+ *     <li>{@code zip64}: an archive with a single entry that is larger than 4 GiB.
+ *     This requires roughly 10 GiB of free disk space. The zip filesystem buffers new entries
+ *     in memory, so this archive is only created through {@link ZipWriter}.</li>
+ *     <li>{@code deep}: an archive of a directory hierarchy that is 256 directories deep.</li>
+ * </ul>
+ * The allocation rate is the sum of the bytes allocated by every thread, including
+ * {@link java.util.concurrent.ForkJoinPool} workers, but allocations by threads that terminate
+ * during a phase are not counted.
+ * Peak RSS is read from {@code /proc/self/status} and is reset before each phase where the
+ * kernel allows it, so it is only reported on Linux.
+ */
+public final class ZipStressHarness {
+	private static final long ZIP64_ENTRY_SIZE = 4L * 1024 * 1024 * 1024 + 512L * 1024 * 1024;
+	private static final int DEEP_DEPTH = 256;
+	private static final int DEEP_FILES_PER_DIRECTORY = 4;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+	private static final Path PROC_CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+	//Writing this to clear_refs resets the peak RSS.
+	private static final byte[] RESET_PEAK_RSS = "5".getBytes(StandardCharsets.US_ASCII);
+
+	private final Path directory;
+
+	private ZipStressHarness(Path directory) {
+		this.directory = directory;
+	}
+
+	public static void main(String[] args) throws IOException {
+		final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+		scenarios.put("entries-1", harness -> harness.runEntries(1));
+		scenarios.put("entries-10000", harness -> harness.runEntries(10_000));
+		scenarios.put("entries-1000000", harness -> harness.runEntries(1_000_000));
+		scenarios.put("zip64", ZipStressHarness::runZip64);
+		scenarios.put("deep", ZipStressHarness::runDeep);
+
+		final List<String> names =
+				args.length == 0 ? Arrays.asList(scenarios.keySet().toArray(new String[0])) :
+						Arrays.asList(args);
+
+		for (String name : names) {
+			if (!scenarios.containsKey(name)) {
+				throw new IllegalArgumentException(
+						"Unknown scenario: " + name + " (available: " + scenarios.keySet() + ")"
+				);
+			}
+		}
+
+		System.out.printf(
+				Locale.ROOT, "%-16s %-18s %12s %14s %14s%n", "scenario", "phase", "time (ms)",
+				"alloc (MiB/s)", "peak RSS (MiB)"
+		);
+
+		for (String name : names) {
+			final Path directory = Files.createTempDirectory("zip-stress");
+
+			try {
+				scenarios.get(name).run(new ZipStressHarness(directory));
+			} finally {
+				NIOUtils.deleteDirectory(directory);
+			}
+		}
+	}
+
+	private void runEntries(int entryCount) throws IOException {
+		final String scenario = "entries-" + entryCount;
+		final Path zipPath = directory.resolve("test.zip");
+
+		phase(
+				scenario, "create (ZipFile)",
+				() -> ZipFileBenchmark.createWithZipFile(zipPath, entryCount)
+		);
+		phase(
+				scenario, "create (ZipWriter)",
+				() -> ZipFileBenchmark.createWithZipWriter(zipPath, entryCount)
+		);
+		phase(scenario, "open (ZipFile)", () -> {
+			try (ZipFile zipFile = new ZipFile(zipPath)) {
+				Files.size(zipFile.getEntry(ZipFileBenchmark.getEntryName(entryCount / 2)));
+			}
+		});
+		phase(scenario, "open (ZipReader)", () -> {
+			try (ZipReader zipReader = new ZipReader(zipPath)) {
+				zipReader.getEntry(ZipFileBenchmark.getEntryName(entryCount / 2));
+			}
+		});
+		phase(scenario, "read (ZipFile)", () -> {
+			try (ZipFile zipFile = new ZipFile(zipPath)) {
+				readAll(zipFile);
+			}
+		});
+		phase(scenario, "read (ZipReader)", () -> {
+			try (ZipReader zipReader = new ZipReader(zipPath)) {
+				for (int i = 0; i < entryCount; i++) {
+					zipReader.getData(
+							zipReader.getEntry(ZipFileBenchmark.getEntryName(i))
+					);
+				}
+			}
+		});
+		extract(scenario, zipPath);
+	}
+
+	private void runZip64() throws IOException {
+		final Path zipPath = directory.resolve("test.zip");
+
+		phase("zip64", "create (ZipWriter)", () -> {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			final FileTime lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis());
+
+			for (int i = 0; i < buffer.length; i++) {
+				buffer[i] = (byte) (i * 31 + i / 4096);
+			}
+
+			try (ZipWriter zipWriter = new ZipWriter(zipPath);
+				 OutputStream out = zipWriter.newEntry("large.bin", lastModifiedTime)) {
+				for (long written = 0L; written < ZIP64_ENTRY_SIZE; written += buffer.length) {
+					out.write(buffer, 0, (int) Math.min(buffer.length, ZIP64_ENTRY_SIZE - written));
+				}
+			}
+		});
+		phase("zip64", "read (ZipFile)", () -> {
+			try (ZipFile zipFile = new ZipFile(zipPath);
+				 InputStream in = Files.newInputStream(zipFile.getEntry("large.bin"))) {
+				checkSize(drain(in), ZIP64_ENTRY_SIZE);
+			}
+		});
+		phase("zip64", "read (ZipReader)", () -> {
+			try (ZipReader zipReader = new ZipReader(zipPath);
+				 InputStream in = zipReader.newInputStream(zipReader.getEntry("large.bin"))) {
+				checkSize(drain(in), ZIP64_ENTRY_SIZE);
+			}
+		});
+		extract("zip64", zipPath);
+	}
+
+	private void runDeep() throws IOException {
+		final Path sourceDirectory = directory.resolve("source");
+		final Path zipPath = directory.resolve("test.zip");
+		Path deepDirectory = sourceDirectory;
+
+		for (int i = 0; i < DEEP_DEPTH; i++) {
+			deepDirectory = deepDirectory.resolve("d" + i);
+			Files.createDirectories(deepDirectory);
+
+			for (int j = 0; j < DEEP_FILES_PER_DIRECTORY; j++) {
+				Files.write(
+						deepDirectory.resolve("f" + j + ".txt"),
+						("File " + i + "-" + j).getBytes(StandardCharsets.UTF_8)
+				);
+			}
+		}
+
+		phase("deep", "create (ZipFile)", () -> {
+			try (ZipFile zipFile = ZipFile.createNew(zipPath)) {
+				NIOUtils.copyDirectory(sourceDirectory, zipFile.getRoot());
+			}
+		});
+		phase("deep", "create (ZipWriter)", () -> {
+			try (ZipWriter zipWriter = new ZipWriter(zipPath)) {
+				zipWriter.addDirectory(sourceDirectory);
+			}
+		});
+		phase("deep", "read (ZipFile)", () -> {
+			try (ZipFile zipFile = new ZipFile(zipPath)) {
+				readAll(zipFile);
+			}
+		});
+		extract("deep", zipPath);
+	}
+
+	private void extract(String scenario, Path zipPath) throws IOException {
+		final Path extractDirectory = directory.resolve("extracted");
+
+		phase(scenario, "extract", () -> {
+			try (ZipFile zipFile = new ZipFile(zipPath)) {
+				zipFile.extractTo(extractDirectory, ExtractOptions.defaults());
+			}
+		});
+
+		NIOUtils.deleteDirectory(extractDirectory);
+	}
+
+	private static void phase(String scenario, String phase, Phase action) throws IOException {
+		final com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		System.gc();
+		resetPeakRss();
+
+		final Map<Long, Long> allocatedBefore = getAllocatedBytes(threads);
+		final long start = System.nanoTime();
+		action.run();
+		final long nanos = System.nanoTime() - start;
+		long allocated = 0L;
+
+		for (Map.Entry<Long, Long> thread : getAllocatedBytes(threads).entrySet()) {
+			//Threads that were started during the phase have allocated everything in it.
+			allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+		}
+
+		System.out.printf(
+				Locale.ROOT, "%-16s %-18s %12.1f %14.1f %14s%n", scenario, phase, nanos / 1e6,
+				allocated / 1048576.0 / (nanos / 1e9), getPeakRss()
+		);
+	}
+
+	private static Map<Long, Long> getAllocatedBytes(com.sun.management.ThreadMXBean threads) {
+		final long[] threadIds = threads.getAllThreadIds();
+		final long[] allocatedBytes = threads.getThreadAllocatedBytes(threadIds);
+		final Map<Long, Long> allocated = new HashMap<>();
+
+		for (int i = 0; i < threadIds.length; i++) {
+			//-1 is returned for threads that have terminated since their IDs were retrieved.
+			if (allocatedBytes[i] != -1L) {
+				allocated.put(threadIds[i], allocatedBytes[i]);
+			}
+		}
+
+		return allocated;
+	}
+
+	private static void readAll(ZipFile zipFile) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		Files.walkFileTree(zipFile.getRoot(), new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+					throws IOException {
+				try (InputStream in = Files.newInputStream(file)) {
+					while (in.read(buffer) != -1) {
+						//Only reading is measured.
+					}
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static long drain(InputStream in) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		long size = 0L;
+
+		for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+			size += read;
+		}
+
+		return size;
+	}
+
+	private static void checkSize(long size, long expectedSize) {
+		if (size != expectedSize) {
+			throw new IllegalStateException(
+					"Read " + size + " bytes rather than " + expectedSize + " bytes"
+			);
+		}
+	}
+
+	private static void resetPeakRss() {
+		try {
+			Files.write(PROC_CLEAR_REFS, RESET_PEAK_RSS);
+		} catch (IOException | UnsupportedOperationException ignored) {
+			//The peak RSS is then the peak of the whole run so far.
+		}
+	}
+
+	private static String getPeakRss() {
+		try {
+			for (String line : Files.readAllLines(PROC_STATUS, StandardCharsets.US_ASCII)) {
+				if (line.startsWith("VmHWM:")) {
+					final String kibibytes = line.substring(6).trim().split("\\s+")[0];
+					return String.format(Locale.ROOT, "%.1f", Long.parseLong(kibibytes) / 1024.0);
+				}
+			}
+		} catch (IOException ignored) {
+			//Peak RSS is only available on Linux.
+		}
+
+		return "n/a";
+	}
+
+	@FunctionalInterface
+	private interface Scenario {
+		void run(ZipStressHarness harness) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface Phase {
+		void run() throws IOException;
+	}
+}
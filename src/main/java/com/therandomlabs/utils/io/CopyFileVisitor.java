@@ -45,13 +45,17 @@ final class CopyFileVisitor extends SimpleFileVisitor<Path> {
 	@Override
 	public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
 			throws IOException {
-		Files.createDirectories(targetDirectory.resolve(sourceDirectory.relativize(directory)));
+		Files.createDirectories(getTarget(directory));
 		return FileVisitResult.CONTINUE;
 	}
 
 	@Override
 	public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
-		Files.copy(file, targetDirectory.resolve(sourceDirectory.relativize(file)), options);
+		FileTransfer.copy(file, getTarget(file), options);
 		return FileVisitResult.CONTINUE;
 	}
+
+	private Path getTarget(Path source) {
+		return PathUtils.resolve(targetDirectory, sourceDirectory.relativize(source));
+	}
 }
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.CopyOption;
+import java.nio.file.Path;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes how {@link NIOUtils#copyDirectory(Path, Path, CopyPlan)} should copy a directory.
+ * <p>
+ * A {@link CopyPlan} consists of a level of parallelism, i.e. the maximum number of files that
+ * may be copied at once, and the {@link CopyOption}s that specify how each file should be
+ * copied. {@link CopyPlan}s are immutable.
+ */
+public final class CopyPlan {
+	private final int parallelism;
+	private final CopyOption[] options;
+
+	private CopyPlan(int parallelism, CopyOption[] options) {
+		this.parallelism = parallelism;
+		this.options = options;
+	}
+
+	/**
+	 * Returns the level of parallelism of this {@link CopyPlan}.
+	 *
+	 * @return the maximum number of files that may be copied at once.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns the {@link CopyOption}s that specify how files should be copied.
+	 *
+	 * @return a copy of the {@link CopyOption}s that specify how files should be copied.
+	 */
+	public CopyOption[] getOptions() {
+		return options.clone();
+	}
+
+	/**
+	 * Returns a {@link CopyPlan} that copies one file at a time.
+	 *
+	 * @param options {@link CopyOption}s that specify how files should be copied.
+	 * @return a {@link CopyPlan} that copies one file at a time.
+	 */
+	public static CopyPlan sequential(CopyOption... options) {
+		return parallel(1, options);
+	}
+
+	/**
+	 * Returns a {@link CopyPlan} that copies as many files at once as there are available
+	 * processors.
+	 *
+	 * @param options {@link CopyOption}s that specify how files should be copied.
+	 * @return a {@link CopyPlan} that copies as many files at once as there are available
+	 * processors.
+	 * @see Runtime#availableProcessors()
+	 */
+	public static CopyPlan parallel(CopyOption... options) {
+		return parallel(Runtime.getRuntime().availableProcessors(), options);
+	}
+
+	/**
+	 * Returns a {@link CopyPlan} that copies up to the specified number of files at once.
+	 *
+	 * @param parallelism the maximum number of files that may be copied at once.
+	 * @param options {@link CopyOption}s that specify how files should be copied.
+	 * @return a {@link CopyPlan} that copies up to the specified number of files at once.
+	 */
+	public static CopyPlan parallel(int parallelism, CopyOption... options) {
+		Preconditions.checkArgument(parallelism > 0, "parallelism should be positive");
+		Preconditions.checkNotNull(options, "options should not be null");
+		return new CopyPlan(parallelism, options.clone());
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses one block of an entry independently of the other blocks so that the blocks of an
+ * entry can be compressed in parallel, as pigz does.
+ * <p>
+ * Every block but the last is ended with a sync flush, which pads the output to a byte boundary
+ * without ending the deflate stream, so the outputs of all blocks can simply be concatenated.
+ * The last 32 KiB of the previous block is used as a preset dictionary so that matches across
+ * block boundaries are not lost. The CRC of each block is computed separately and combined by
+ * the writer.
+ */
+final class DeflateBlockTask extends RecursiveAction {
+	//The maximum distance of a deflate back-reference.
+	private static final int DICTIONARY_SIZE = 32 << 10;
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient DeflaterPool deflaters;
+	private final transient byte[] input;
+	private final transient int length;
+	private final transient byte[] previousInput;
+	private final transient int previousLength;
+	private final transient int level;
+	private final transient boolean last;
+	private transient byte[] output;
+	private transient int outputLength;
+	private transient long crc;
+
+	DeflateBlockTask(
+			DeflaterPool deflaters, byte[] input, int length, byte[] previousInput,
+			int previousLength, int level, boolean last
+	) {
+		this.deflaters = deflaters;
+		this.input = input;
+		this.length = length;
+		this.previousInput = previousInput;
+		this.previousLength = previousLength;
+		this.level = level;
+		this.last = last;
+		output = input;
+	}
+
+	@Override
+	protected void compute() {
+		final CRC32 crc32 = new CRC32();
+		crc32.update(input, 0, length);
+		crc = crc32.getValue();
+
+		if (level == Deflater.NO_COMPRESSION) {
+			outputLength = length;
+			return;
+		}
+
+		final Deflater deflater = deflaters.borrow();
+
+		try {
+			deflate(deflater);
+		} finally {
+			deflaters.release(deflater);
+		}
+	}
+
+	byte[] getOutput() {
+		return output;
+	}
+
+	int getOutputLength() {
+		return outputLength;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	long getCrc() {
+		return crc;
+	}
+
+	private void deflate(Deflater deflater) {
+		deflater.setLevel(level);
+
+		if (previousLength != 0) {
+			final int dictionaryLength = Math.min(previousLength, DICTIONARY_SIZE);
+			deflater.setDictionary(
+					previousInput, previousLength - dictionaryLength, dictionaryLength
+			);
+		}
+
+		deflater.setInput(input, 0, length);
+		//Incompressible data expands by a few bytes per stored block of up to 64 KiB.
+		output = new byte[length + (length >> 10) + 64];
+
+		if (last) {
+			deflater.finish();
+
+			while (!deflater.finished()) {
+				deflate(deflater, Deflater.NO_FLUSH);
+			}
+
+			return;
+		}
+
+		//The flush is complete once the deflater no longer fills the output buffer.
+		boolean outputFull = true;
+
+		while (outputFull) {
+			outputFull = deflate(deflater, Deflater.SYNC_FLUSH);
+		}
+	}
+
+	private boolean deflate(Deflater deflater, int flush) {
+		if (outputLength == output.length) {
+			output = Arrays.copyOf(output, output.length * 2);
+		}
+
+		final int available = output.length - outputLength;
+		final int deflated = deflater.deflate(output, outputLength, available, flush);
+		outputLength += deflated;
+		return deflated == available;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Deflater;
+
+/**
+ * Lends raw {@link Deflater}s to the {@link DeflateBlockTask}s of a single {@link ZipWriter} so
+ * that each {@link Deflater} can be reused for many blocks and is ended when the
+ * {@link ZipWriter} is closed, rather than pinning native memory for as long as the threads that
+ * used it are alive.
+ */
+final class DeflaterPool implements AutoCloseable {
+	private final Deque<Deflater> deflaters = new ArrayDeque<>();
+	private boolean closed;
+
+	synchronized Deflater borrow() {
+		final Deflater deflater = deflaters.poll();
+		return deflater == null ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : deflater;
+	}
+
+	synchronized void release(Deflater deflater) {
+		//Blocks that are still being compressed when the pool is closed end their own
+		//Deflaters.
+		if (closed) {
+			deflater.end();
+		} else {
+			deflater.reset();
+			deflaters.push(deflater);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+
+		for (Deflater deflater : deflaters) {
+			deflater.end();
+		}
+
+		deflaters.clear();
+	}
+}
@@ -34,16 +34,34 @@ import java.util.function.Predicate;
 final class DeleteFileVisitor extends SimpleFileVisitor<Path> {
 	private final Path baseDirectory;
 	private final Predicate<Path> filter;
+	private final boolean testDirectoriesBeforeContents;
+	//The depth within a directory that is being deleted entirely, or 0 if there is none.
+	private int doomedDepth;
 
-	DeleteFileVisitor(Path baseDirectory, Predicate<Path> filter) {
+	DeleteFileVisitor(
+			Path baseDirectory, Predicate<Path> filter, boolean testDirectoriesBeforeContents
+	) {
 		this.baseDirectory = baseDirectory;
 		this.filter = filter;
+		this.testDirectoriesBeforeContents = testDirectoriesBeforeContents;
+	}
+
+	@Override
+	public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+		if (doomedDepth != 0) {
+			doomedDepth++;
+		} else if (testDirectoriesBeforeContents && !directory.equals(baseDirectory) &&
+				filter.test(directory)) {
+			doomedDepth = 1;
+		}
+
+		return FileVisitResult.CONTINUE;
 	}
 
 	@Override
 	public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
 			throws IOException {
-		if (filter.test(file)) {
+		if (doomedDepth != 0 || filter.test(file)) {
 			Files.delete(file);
 		}
 
@@ -57,11 +75,22 @@ final class DeleteFileVisitor extends SimpleFileVisitor<Path> {
 			return FileVisitResult.TERMINATE;
 		}
 
-		if (!directory.equals(baseDirectory) && filter.test(directory)) {
-			Files.walkFileTree(directory, new DeleteFileVisitor(directory, path -> true));
+		if (doomedDepth != 0) {
+			//All of the directory's contents have already been deleted.
+			doomedDepth--;
 			Files.delete(directory);
+		} else if (!testDirectoriesBeforeContents && !directory.equals(baseDirectory) &&
+				filter.test(directory)) {
+			//Only the entries that the filter rejected are left, and none of them are tested
+			//again.
+			deleteTree(directory);
 		}
 
 		return FileVisitResult.CONTINUE;
 	}
+
+	static void deleteTree(Path directory) throws IOException {
+		Files.walkFileTree(directory, new DeleteFileVisitor(directory, path -> true, true));
+		Files.delete(directory);
+	}
 }
@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+
+/**
+ * Reads the attributes of entries while iterating over a {@link DirectoryStream}.
+ * <p>
+ * If the stream is a {@link SecureDirectoryStream}, which it is on the default filesystem on
+ * most Unix-like systems, attributes are read relative to the open directory rather than by
+ * resolving the full path of each entry again.
+ */
+final class DirectoryEntries {
+	private DirectoryEntries() {}
+
+	static <A extends BasicFileAttributes> A readAttributes(
+			DirectoryStream<Path> stream, Path entry, Class<A> type, LinkOption... options
+	) throws IOException {
+		if (stream instanceof SecureDirectoryStream) {
+			final SecureDirectoryStream<Path> secureStream = (SecureDirectoryStream<Path>) stream;
+
+			if (type == BasicFileAttributes.class) {
+				return type.cast(secureStream.getFileAttributeView(
+						entry.getFileName(), BasicFileAttributeView.class, options
+				).readAttributes());
+			}
+
+			if (type == PosixFileAttributes.class) {
+				return type.cast(secureStream.getFileAttributeView(
+						entry.getFileName(), PosixFileAttributeView.class, options
+				).readAttributes());
+			}
+		}
+
+		return Files.readAttributes(entry, type, options);
+	}
+
+	/**
+	 * Returns an object that identifies the specified directory, so that a directory that is
+	 * reached more than once by following symbolic links can be recognized.
+	 */
+	static Object getDirectoryKey(Path directory, BasicFileAttributes attributes)
+			throws IOException {
+		final Object key = attributes.fileKey();
+		return key == null ? directory.toRealPath() : key;
+	}
+
+	static boolean isDirectory(DirectoryStream<Path> stream, Path entry, LinkOption... options) {
+		try {
+			return readAttributes(stream, entry, BasicFileAttributes.class, options).isDirectory();
+		} catch (IOException ignored) {
+			//Like Files#isDirectory, we treat entries whose attributes cannot be read as
+			//non-directories.
+			return false;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import com.google.common.hash.HashCode;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Finds the files in a batch that might have the same contents and hashes them so that
+ * {@link ZipWriter} can compress each distinct file only once.
+ * <p>
+ * Only files that are the same size as at least one other file in the batch are hashed, so a
+ * batch in which every file has a different size costs nothing beyond the attributes that have
+ * already been read. Empty files are never hashed, as they cost nothing to compress.
+ */
+final class DuplicateFileFinder {
+	private final Map<Long, List<Path>> filesBySize = new HashMap<>();
+
+	void add(Path file, long size) {
+		if (size > 0L) {
+			filesBySize.computeIfAbsent(size, key -> new ArrayList<>(1)).add(file);
+		}
+	}
+
+	/**
+	 * Returns the SHA-256 hashes of the files that might be duplicates. If the specified
+	 * {@link ForkJoinPool} is {@code null}, the files are hashed on the calling thread.
+	 * Files that cannot be read are left out.
+	 */
+	Map<Path, HashCode> hashCandidates(@Nullable ForkJoinPool pool) {
+		final List<Path> candidates = new ArrayList<>();
+		final List<Long> sizes = new ArrayList<>();
+
+		for (Map.Entry<Long, List<Path>> entry : filesBySize.entrySet()) {
+			if (entry.getValue().size() > 1) {
+				for (Path file : entry.getValue()) {
+					candidates.add(file);
+					sizes.add(entry.getKey());
+				}
+			}
+		}
+
+		if (candidates.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		final Map<Path, HashCode> hashes = new ConcurrentHashMap<>(candidates.size());
+
+		if (pool == null) {
+			ForkJoinHashTask.hash(candidates, hashes, 0, candidates.size());
+			return hashes;
+		}
+
+		final long[] sizeOffsets = new long[sizes.size() + 1];
+
+		for (int i = 0; i < sizes.size(); i++) {
+			sizeOffsets[i + 1] = sizeOffsets[i] + sizes.get(i);
+		}
+
+		pool.invoke(new ForkJoinHashTask(candidates, sizeOffsets, hashes));
+		return hashes;
+	}
+}
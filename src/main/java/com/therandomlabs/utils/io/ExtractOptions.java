@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes how {@link ZipFile#extractTo(Path, ExtractOptions)} should extract a zip file.
+ * {@link ExtractOptions} are immutable.
+ */
+public final class ExtractOptions {
+	private static final ExtractOptions DEFAULTS =
+			new ExtractOptions(Runtime.getRuntime().availableProcessors(), false, true);
+
+	private final int parallelism;
+	private final boolean replacingExisting;
+	private final boolean preservingLastModifiedTimes;
+
+	private ExtractOptions(
+			int parallelism, boolean replacingExisting, boolean preservingLastModifiedTimes
+	) {
+		this.parallelism = parallelism;
+		this.replacingExisting = replacingExisting;
+		this.preservingLastModifiedTimes = preservingLastModifiedTimes;
+	}
+
+	/**
+	 * Returns the number of threads that extract entries.
+	 *
+	 * @return the number of threads that extract entries.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns whether existing files are replaced.
+	 *
+	 * @return {@code true} if existing files are replaced, or {@code false} if extraction fails
+	 * for entries whose files already exist.
+	 */
+	public boolean isReplacingExisting() {
+		return replacingExisting;
+	}
+
+	/**
+	 * Returns whether the last modified times of entries are applied to the extracted files and
+	 * directories.
+	 *
+	 * @return {@code true} if last modified times are preserved, or otherwise {@code false}.
+	 */
+	public boolean isPreservingLastModifiedTimes() {
+		return preservingLastModifiedTimes;
+	}
+
+	/**
+	 * Returns a copy of these {@link ExtractOptions} that extracts entries using the specified
+	 * number of threads.
+	 *
+	 * @param parallelism the number of threads that should extract entries.
+	 * @return a copy of these {@link ExtractOptions} with the specified value.
+	 */
+	public ExtractOptions withParallelism(int parallelism) {
+		Preconditions.checkArgument(parallelism > 0, "parallelism should be positive");
+		return new ExtractOptions(parallelism, replacingExisting, preservingLastModifiedTimes);
+	}
+
+	/**
+	 * Returns a copy of these {@link ExtractOptions} that replaces existing files.
+	 *
+	 * @param replacingExisting whether existing files should be replaced.
+	 * @return a copy of these {@link ExtractOptions} with the specified value.
+	 */
+	public ExtractOptions replacingExisting(boolean replacingExisting) {
+		return new ExtractOptions(parallelism, replacingExisting, preservingLastModifiedTimes);
+	}
+
+	/**
+	 * Returns a copy of these {@link ExtractOptions} that applies the last modified times of
+	 * entries to the extracted files and directories.
+	 *
+	 * @param preservingLastModifiedTimes whether last modified times should be preserved.
+	 * @return a copy of these {@link ExtractOptions} with the specified value.
+	 */
+	public ExtractOptions preservingLastModifiedTimes(boolean preservingLastModifiedTimes) {
+		return new ExtractOptions(parallelism, replacingExisting, preservingLastModifiedTimes);
+	}
+
+	/**
+	 * Returns the default {@link ExtractOptions}, which extract entries using one thread per
+	 * available processor, do not replace existing files and preserve last modified times.
+	 *
+	 * @return the default {@link ExtractOptions}.
+	 */
+	public static ExtractOptions defaults() {
+		return DEFAULTS;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A directory entry paired with the attributes that were read when its directory was listed.
+ * <p>
+ * The attributes are a snapshot; they are not updated if the file changes after it has been
+ * listed. On filesystems that support the {@code posix} attribute view, the attributes are
+ * {@link PosixFileAttributes}.
+ *
+ * @see NIOUtils#stream(Path, java.nio.file.LinkOption...)
+ * @see NIOUtils#listWithAttributes(Path, java.nio.file.LinkOption...)
+ */
+public final class FileEntry {
+	private final Path path;
+	private final BasicFileAttributes attributes;
+
+	FileEntry(Path path, BasicFileAttributes attributes) {
+		this.path = path;
+		this.attributes = attributes;
+	}
+
+	/**
+	 * Returns the {@link Path} of this entry.
+	 *
+	 * @return the {@link Path} of this entry.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the attributes of this entry.
+	 *
+	 * @return the {@link BasicFileAttributes} of this entry.
+	 */
+	public BasicFileAttributes getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns whether POSIX attributes were read for this entry.
+	 *
+	 * @return {@code true} if the attributes of this entry are {@link PosixFileAttributes},
+	 * or otherwise {@code false}.
+	 */
+	public boolean hasPosixAttributes() {
+		return attributes instanceof PosixFileAttributes;
+	}
+
+	/**
+	 * Returns the POSIX attributes of this entry.
+	 *
+	 * @return the {@link PosixFileAttributes} of this entry.
+	 * @throws IllegalStateException if POSIX attributes were not read for this entry.
+	 */
+	public PosixFileAttributes getPosixAttributes() {
+		Preconditions.checkState(
+				hasPosixAttributes(), "POSIX attributes are not available for %s", path
+		);
+		return (PosixFileAttributes) attributes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return path.toString();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Lazily iterates over the entries of a directory, reading the attributes of each entry once
+ * as it is returned. Only the current entry is held in memory, so directories of any size can
+ * be iterated over.
+ */
+final class FileEntryIterator implements Iterator<FileEntry>, Closeable {
+	private final DirectoryStream<Path> stream;
+	private final Iterator<Path> iterator;
+	private final Class<? extends BasicFileAttributes> type;
+	private final LinkOption[] options;
+	private @Nullable FileEntry next;
+
+	FileEntryIterator(Path directory, LinkOption... options) throws IOException {
+		stream = Files.newDirectoryStream(directory);
+		iterator = stream.iterator();
+		type = directory.getFileSystem().supportedFileAttributeViews().contains("posix") ?
+				PosixFileAttributes.class : BasicFileAttributes.class;
+		this.options = options;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = findNext();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		return next != null;
+	}
+
+	@Override
+	public FileEntry next() {
+		hasNext();
+		final FileEntry entry = next;
+
+		if (entry == null) {
+			throw new NoSuchElementException();
+		}
+
+		next = null;
+		return entry;
+	}
+
+	@Override
+	public void close() throws IOException {
+		stream.close();
+	}
+
+	private @Nullable FileEntry findNext() throws IOException {
+		try {
+			while (iterator.hasNext()) {
+				final Path path = iterator.next();
+
+				try {
+					return new FileEntry(
+							path, DirectoryEntries.readAttributes(stream, path, type, options)
+					);
+				} catch (NoSuchFileException ex) {
+					//The entry might be a symbolic link whose target does not exist, in which
+					//case the attributes of the link itself are returned.
+					try {
+						return new FileEntry(
+								path, DirectoryEntries.readAttributes(
+										stream, path, type, LinkOption.NOFOLLOW_LINKS
+								)
+						);
+					} catch (NoSuchFileException ignored) {
+						//The entry was deleted after it was listed.
+					}
+				}
+			}
+		} catch (DirectoryIteratorException ex) {
+			throw ex.getCause();
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,461 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * A persistent index of file fingerprints that is used to find out which files in a directory
+ * tree have changed since the index was last updated.
+ * <p>
+ * A fingerprint consists of a file's size, last modified time and file key (on Unix-like
+ * systems, its device and inode), and optionally a SHA-256 hash of its contents.
+ * {@link #update()} walks the directory tree, compares each file against its previous
+ * fingerprint and writes the new fingerprints back to the index file. Files are only hashed if
+ * they are new or their size, last modified time or file key has changed, so a file that has
+ * only been touched is not reported as modified.
+ * <p>
+ * The index file is read into memory in one go rather than memory-mapped, so that it can be
+ * replaced while the index is open, which is not possible for a mapped file on Windows.
+ * Records are stored sorted by the UTF-8 bytes of their relative paths and looked up using a
+ * binary search over an array of record offsets.
+ * <p>
+ * {@link FileFingerprintIndex}es are not thread-safe.
+ */
+public final class FileFingerprintIndex {
+	private static final int MAGIC = 0x46505849;
+	private static final int VERSION = 1;
+	private static final int HASHING_FLAG = 1;
+	//Magic, version, flags and record count.
+	private static final int HEADER_SIZE = 4 * Integer.BYTES;
+	//Size, last modified time and file key hash.
+	private static final int METADATA_SIZE = 2 * Long.BYTES + Integer.BYTES;
+	private static final int HASH_SIZE = 32;
+	private static final int HASH_BUFFER_SIZE = 64 << 10;
+	private static final String TEMPORARY_FILE_PREFIX = ".saving-";
+	private static final Comparator<byte[]> KEY_COMPARATOR =
+			UnsignedBytes.lexicographicalComparator();
+
+	private final Path directory;
+	private final Path indexFile;
+	//Temporary files are hidden and named after the index file so that they cannot be mistaken
+	//for other files.
+	private final String temporaryFilePrefix;
+	private final boolean hashing;
+	private final int fingerprintSize;
+	private ByteBuffer records = ByteBuffer.allocate(0);
+	private int[] offsets = new int[0];
+
+	private FileFingerprintIndex(Path directory, Path indexFile, boolean hashing) {
+		this.directory = directory;
+		this.indexFile = indexFile;
+		temporaryFilePrefix = "." + PathUtils.getFileName(indexFile) + TEMPORARY_FILE_PREFIX;
+		this.hashing = hashing;
+		fingerprintSize = hashing ? METADATA_SIZE + HASH_SIZE : METADATA_SIZE;
+	}
+
+	/**
+	 * Returns the directory that is indexed by this {@link FileFingerprintIndex}.
+	 *
+	 * @return a {@link Path} to a directory.
+	 */
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Returns the file in which this {@link FileFingerprintIndex} is stored.
+	 *
+	 * @return a {@link Path} to the index file.
+	 */
+	public Path getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * Returns whether this {@link FileFingerprintIndex} stores content hashes.
+	 *
+	 * @return {@code true} if content hashes are stored, or otherwise {@code false}.
+	 */
+	public boolean isHashing() {
+		return hashing;
+	}
+
+	/**
+	 * Returns the number of files in this {@link FileFingerprintIndex}.
+	 *
+	 * @return the number of indexed files.
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * Walks the indexed directory, updates the index file and returns the files that have been
+	 * added, removed or modified since the last update.
+	 * Every file is checked, but only files whose size, last modified time or file key has
+	 * changed are hashed.
+	 * If the index file is within the indexed directory, it is not indexed.
+	 *
+	 * @return the {@link FingerprintChanges} since the last update.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public FingerprintChanges update() throws IOException {
+		final FingerprintFileVisitor visitor = new FingerprintFileVisitor();
+		Files.walkFileTree(directory, visitor);
+
+		final ImmutableList.Builder<Path> removed = ImmutableList.builder();
+
+		for (int i = visitor.seen.nextClearBit(0); i < offsets.length;
+			 i = visitor.seen.nextClearBit(i + 1)) {
+			removed.add(directory.resolve(
+					new String(getKey(offsets[i]), StandardCharsets.UTF_8)
+			));
+		}
+
+		visitor.entries.sort((entry1, entry2) -> KEY_COMPARATOR.compare(entry1.key, entry2.key));
+		save(visitor.entries);
+		load();
+
+		return new FingerprintChanges(
+				visitor.added.build(), removed.build(), visitor.modified.build()
+		);
+	}
+
+	/**
+	 * Opens the {@link FileFingerprintIndex} for the specified directory that is stored in the
+	 * specified file. If the index file does not exist, the index is empty, and every file is
+	 * reported as added by the first {@link #update()}.
+	 *
+	 * @param directory a {@link Path} to the directory to index.
+	 * @param indexFile a {@link Path} to the index file.
+	 * @param hashing whether content hashes should be stored.
+	 * @return a {@link FileFingerprintIndex}.
+	 * @throws IOException if the index file is not a valid index file, if it was created with
+	 * a different value for {@code hashing}, or if an I/O error occurs.
+	 */
+	public static FileFingerprintIndex open(Path directory, Path indexFile, boolean hashing)
+			throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		Preconditions.checkNotNull(indexFile, "indexFile should not be null");
+		Preconditions.checkArgument(
+				!Files.isDirectory(indexFile), "indexFile should not be a directory"
+		);
+
+		final FileFingerprintIndex index = new FileFingerprintIndex(
+				directory.toAbsolutePath().normalize(), indexFile.toAbsolutePath().normalize(),
+				hashing
+		);
+		index.load();
+		return index;
+	}
+
+	private void load() throws IOException {
+		if (!Files.exists(indexFile)) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+			final long size = channel.size();
+
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				throw new IOException("Invalid index file size: " + indexFile);
+			}
+
+			records = ByteBuffer.allocate((int) size);
+
+			while (records.hasRemaining()) {
+				if (channel.read(records) == -1) {
+					throw new IOException("Truncated index file: " + indexFile);
+				}
+			}
+		}
+
+		if (records.getInt(0) != MAGIC || records.getInt(Integer.BYTES) != VERSION) {
+			throw new IOException("Not a valid index file: " + indexFile);
+		}
+
+		if ((records.getInt(2 * Integer.BYTES) & HASHING_FLAG) != (hashing ? HASHING_FLAG : 0)) {
+			throw new IOException(
+					"Index file was created with hashing " + (hashing ? "disabled" : "enabled") +
+							": " + indexFile
+			);
+		}
+
+		final int count = records.getInt(3 * Integer.BYTES);
+
+		if (count < 0) {
+			throw new IOException("Not a valid index file: " + indexFile);
+		}
+
+		offsets = new int[count];
+		long offset = HEADER_SIZE;
+
+		for (int i = 0; i < count; i++) {
+			if (offset + Integer.BYTES > records.limit()) {
+				throw new IOException("Truncated index file: " + indexFile);
+			}
+
+			offsets[i] = (int) offset;
+			offset += Integer.BYTES + (long) records.getInt((int) offset) + fingerprintSize;
+		}
+
+		if (offset != records.limit()) {
+			throw new IOException("Truncated index file: " + indexFile);
+		}
+	}
+
+	private void save(List<Entry> entries) throws IOException {
+		final Path temporaryFile = TemporaryFiles.createSibling(indexFile, temporaryFilePrefix);
+
+		try {
+			write(temporaryFile, entries);
+
+			try {
+				Files.move(
+						temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE
+				);
+			} catch (AtomicMoveNotSupportedException ignored) {
+				Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	private void write(Path file, List<Entry> entries) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file))
+		)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(hashing ? HASHING_FLAG : 0);
+			out.writeInt(entries.size());
+
+			for (Entry entry : entries) {
+				out.writeInt(entry.key.length);
+				out.write(entry.key);
+				out.write(entry.fingerprint);
+			}
+		}
+	}
+
+	private boolean isIndexFile(Path file) {
+		if (file.equals(indexFile)) {
+			return true;
+		}
+
+		//Temporary files that are left behind by interrupted saves are also skipped.
+		final String fileName = PathUtils.getFileName(file);
+
+		if (!fileName.startsWith(temporaryFilePrefix) ||
+				!fileName.endsWith(TemporaryFiles.SUFFIX) ||
+				!file.resolveSibling(indexFile.getFileName()).equals(indexFile)) {
+			return false;
+		}
+
+		final String id = fileName.substring(
+				temporaryFilePrefix.length(), fileName.length() - TemporaryFiles.SUFFIX.length()
+		);
+		return !id.isEmpty() && id.chars().allMatch(Character::isDigit);
+	}
+
+	private int find(byte[] key) {
+		int low = 0;
+		int high = offsets.length - 1;
+
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int comparison = compareKey(offsets[middle], key);
+
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+
+		return -1;
+	}
+
+	private int compareKey(int offset, byte[] key) {
+		final int length = records.getInt(offset);
+		final int start = offset + Integer.BYTES;
+		final int commonLength = Math.min(length, key.length);
+
+		for (int i = 0; i < commonLength; i++) {
+			final int comparison = UnsignedBytes.compare(records.get(start + i), key[i]);
+
+			if (comparison != 0) {
+				return comparison;
+			}
+		}
+
+		return Integer.compare(length, key.length);
+	}
+
+	private byte[] getKey(int offset) {
+		final byte[] key = new byte[records.getInt(offset)];
+		final ByteBuffer buffer = records.duplicate();
+		buffer.position(offset + Integer.BYTES);
+		buffer.get(key);
+		return key;
+	}
+
+	private byte[] getFingerprint(int offset) {
+		final byte[] fingerprint = new byte[fingerprintSize];
+		final ByteBuffer buffer = records.duplicate();
+		buffer.position(offset + Integer.BYTES + records.getInt(offset));
+		buffer.get(fingerprint);
+		return fingerprint;
+	}
+
+	private byte[] newFingerprint(BasicFileAttributes attributes) {
+		final ByteBuffer fingerprint = ByteBuffer.allocate(fingerprintSize);
+		fingerprint.putLong(attributes.size());
+		fingerprint.putLong(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+		fingerprint.putInt(Objects.hashCode(attributes.fileKey()));
+		return fingerprint.array();
+	}
+
+	private void addHash(byte[] fingerprint, Path file, BasicFileAttributes attributes)
+			throws IOException {
+		if (hashing && attributes.isRegularFile()) {
+			System.arraycopy(hash(file), 0, fingerprint, METADATA_SIZE, HASH_SIZE);
+		}
+	}
+
+	private static byte[] hash(Path file) throws IOException {
+		final Hasher hasher = Hashing.sha256().newHasher();
+		final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int read; (read = in.read(buffer)) != -1; ) {
+				hasher.putBytes(buffer, 0, read);
+			}
+		}
+
+		return hasher.hash().asBytes();
+	}
+
+	private static boolean metadataEquals(byte[] fingerprint1, byte[] fingerprint2) {
+		for (int i = 0; i < METADATA_SIZE; i++) {
+			if (fingerprint1[i] != fingerprint2[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static final class Entry {
+		final byte[] key;
+		final byte[] fingerprint;
+
+		Entry(byte[] key, byte[] fingerprint) {
+			this.key = key;
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	private final class FingerprintFileVisitor extends SimpleFileVisitor<Path> {
+		final List<Entry> entries = new ArrayList<>();
+		final BitSet seen = new BitSet(offsets.length);
+		final ImmutableList.Builder<Path> added = ImmutableList.builder();
+		final ImmutableList.Builder<Path> modified = ImmutableList.builder();
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+				throws IOException {
+			if (isIndexFile(file)) {
+				return FileVisitResult.CONTINUE;
+			}
+
+			final byte[] key = PathUtils.withUnixDirectorySeparators(directory.relativize(file)).
+					getBytes(StandardCharsets.UTF_8);
+			final int index = find(key);
+			final byte[] fingerprint = newFingerprint(attributes);
+
+			if (index == -1) {
+				addHash(fingerprint, file, attributes);
+				entries.add(new Entry(key, fingerprint));
+				added.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			seen.set(index);
+
+			final byte[] oldFingerprint = getFingerprint(offsets[index]);
+
+			if (metadataEquals(fingerprint, oldFingerprint)) {
+				entries.add(new Entry(key, oldFingerprint));
+				return FileVisitResult.CONTINUE;
+			}
+
+			addHash(fingerprint, file, attributes);
+			entries.add(new Entry(key, fingerprint));
+
+			//If the contents are hashed, a file that has only been touched is not modified.
+			if (!hashing || !ByteBuffer.wrap(fingerprint, METADATA_SIZE, HASH_SIZE).equals(
+					ByteBuffer.wrap(oldFingerprint, METADATA_SIZE, HASH_SIZE)
+			)) {
+				modified.add(file);
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+	}
+}
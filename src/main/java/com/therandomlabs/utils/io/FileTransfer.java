@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Copies regular files using the cheapest strategy available for the source and target
+ * providers:
+ * <ul>
+ * <li>Within a single non-default filesystem (e.g. within one zip file), the provider's own
+ * {@link Files#copy(Path, Path, CopyOption...)} is used, as it can avoid decoding the data.</li>
+ * <li>Between two {@link Path}s on the default filesystem,
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} is used, or memory-mapped
+ * chunk copies for very large files.</li>
+ * <li>Across providers (e.g. into or out of a zip file), the data is pumped through a pooled
+ * direct {@link ByteBuffer}.</li>
+ * </ul>
+ * Anything that is not a regular file, as well as any {@link CopyOption}s that this class does
+ * not understand, is handed to {@link Files#copy(Path, Path, CopyOption...)}.
+ */
+final class FileTransfer {
+	//Files at least this large are copied using memory-mapped chunks.
+	private static final long MAPPED_THRESHOLD = 1L << 30;
+
+	private static final long MAPPED_CHUNK_SIZE = 64L << 20;
+	private static final int BUFFER_SIZE = 256 << 10;
+	private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<>(
+			Math.max(2, Runtime.getRuntime().availableProcessors() * 2)
+	);
+	private static final FileSystemProvider DEFAULT_PROVIDER =
+			FileSystems.getDefault().provider();
+
+	private FileTransfer() {}
+
+	static void copy(Path source, Path target, CopyOption... options) throws IOException {
+		boolean replaceExisting = false;
+		boolean copyAttributes = false;
+		boolean followLinks = true;
+
+		for (CopyOption option : options) {
+			if (option == StandardCopyOption.REPLACE_EXISTING) {
+				replaceExisting = true;
+			} else if (option == StandardCopyOption.COPY_ATTRIBUTES) {
+				copyAttributes = true;
+			} else if (option == LinkOption.NOFOLLOW_LINKS) {
+				followLinks = false;
+			} else {
+				Files.copy(source, target, options);
+				return;
+			}
+		}
+
+		final FileSystemProvider sourceProvider = source.getFileSystem().provider();
+
+		if (source.getFileSystem().equals(target.getFileSystem()) &&
+				sourceProvider != DEFAULT_PROVIDER) {
+			Files.copy(source, target, options);
+			return;
+		}
+
+		final BasicFileAttributes attributes = followLinks ?
+				Files.readAttributes(source, BasicFileAttributes.class) :
+				Files.readAttributes(
+						source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+				);
+
+		if (!attributes.isRegularFile()) {
+			Files.copy(source, target, options);
+			return;
+		}
+
+		//Like Files#copy, copying a file onto itself does nothing.
+		if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(source, target)) {
+			return;
+		}
+
+		if (replaceExisting) {
+			Files.deleteIfExists(target);
+		}
+
+		final boolean withinDefaultProvider = sourceProvider == DEFAULT_PROVIDER &&
+				target.getFileSystem().provider() == DEFAULT_PROVIDER;
+		//Only a target that has been created by this call is deleted if the copy fails.
+		boolean targetCreated = false;
+
+		try (SeekableByteChannel in = withinDefaultProvider ?
+				FileChannel.open(source, StandardOpenOption.READ) : Files.newByteChannel(source)) {
+			try (SeekableByteChannel out = withinDefaultProvider ?
+					FileChannel.open(target, newFileOptions()) :
+					Files.newByteChannel(target, newFileOptions())) {
+				targetCreated = true;
+
+				if (withinDefaultProvider) {
+					transfer((FileChannel) in, (FileChannel) out, attributes.size());
+				} else {
+					pump(in, out);
+				}
+			}
+
+			if (copyAttributes) {
+				copyAttributes(source, target, attributes);
+			}
+		} catch (IOException ex) {
+			if (targetCreated) {
+				try {
+					Files.deleteIfExists(target);
+				} catch (IOException ex2) {
+					ex.addSuppressed(ex2);
+				}
+			}
+
+			throw ex;
+		}
+	}
+
+	private static void transfer(FileChannel in, FileChannel out, long size) throws IOException {
+		long position = 0L;
+
+		if (size >= MAPPED_THRESHOLD) {
+			while (position < size) {
+				final ByteBuffer chunk = in.map(
+						FileChannel.MapMode.READ_ONLY, position,
+						Math.min(MAPPED_CHUNK_SIZE, size - position)
+				);
+
+				while (chunk.hasRemaining()) {
+					position += out.write(chunk);
+				}
+			}
+
+			return;
+		}
+
+		while (position < size) {
+			final long transferred = in.transferTo(position, size - position, out);
+
+			//The source file has been truncated.
+			if (transferred <= 0L) {
+				break;
+			}
+
+			position += transferred;
+		}
+	}
+
+	private static long pump(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+		final ByteBuffer buffer = acquireBuffer();
+		long total = 0L;
+
+		try {
+			while (in.read(buffer) != -1) {
+				buffer.flip();
+
+				while (buffer.hasRemaining()) {
+					total += out.write(buffer);
+				}
+
+				buffer.clear();
+			}
+		} finally {
+			releaseBuffer(buffer);
+		}
+
+		return total;
+	}
+
+	private static ByteBuffer acquireBuffer() {
+		final ByteBuffer buffer = BUFFERS.poll();
+		return buffer == null ? ByteBuffer.allocateDirect(BUFFER_SIZE) : buffer;
+	}
+
+	private static void releaseBuffer(ByteBuffer buffer) {
+		buffer.clear();
+		BUFFERS.offer(buffer);
+	}
+
+	private static void copyAttributes(Path source, Path target, BasicFileAttributes attributes)
+			throws IOException {
+		Files.getFileAttributeView(target, BasicFileAttributeView.class).setTimes(
+				attributes.lastModifiedTime(), attributes.lastAccessTime(),
+				attributes.creationTime()
+		);
+
+		final PosixFileAttributeView sourceView =
+				Files.getFileAttributeView(source, PosixFileAttributeView.class);
+		final PosixFileAttributeView targetView =
+				Files.getFileAttributeView(target, PosixFileAttributeView.class);
+
+		if (sourceView != null && targetView != null) {
+			final PosixFileAttributes posixAttributes = sourceView.readAttributes();
+			targetView.setPermissions(posixAttributes.permissions());
+		}
+	}
+
+	private static OpenOption[] newFileOptions() {
+		return new OpenOption[] {
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW
+		};
+	}
+}
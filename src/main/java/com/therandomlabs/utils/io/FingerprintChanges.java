@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The files that were added, removed or modified since a {@link FileFingerprintIndex} was last
+ * updated. {@link FingerprintChanges} are immutable.
+ */
+public final class FingerprintChanges {
+	private final ImmutableList<Path> added;
+	private final ImmutableList<Path> removed;
+	private final ImmutableList<Path> modified;
+
+	FingerprintChanges(
+			ImmutableList<Path> added, ImmutableList<Path> removed, ImmutableList<Path> modified
+	) {
+		this.added = added;
+		this.removed = removed;
+		this.modified = modified;
+	}
+
+	/**
+	 * Returns the files that were not in the index.
+	 *
+	 * @return an {@link ImmutableList} of {@link Path}s.
+	 */
+	public ImmutableList<Path> getAdded() {
+		return added;
+	}
+
+	/**
+	 * Returns the files that were in the index but no longer exist.
+	 *
+	 * @return an {@link ImmutableList} of {@link Path}s.
+	 */
+	public ImmutableList<Path> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Returns the files whose fingerprints have changed.
+	 *
+	 * @return an {@link ImmutableList} of {@link Path}s.
+	 */
+	public ImmutableList<Path> getModified() {
+		return modified;
+	}
+
+	/**
+	 * Returns whether any files were added, removed or modified.
+	 *
+	 * @return {@code true} if nothing has changed, or otherwise {@code false}.
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && modified.isEmpty();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).
+				add("added", added).
+				add("removed", removed).
+				add("modified", modified).
+				toString();
+	}
+}
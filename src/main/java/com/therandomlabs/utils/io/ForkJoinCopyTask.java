@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+final class ForkJoinCopyTask extends RecursiveAction {
+	//The number of files that are copied by a single task.
+	private static final int FILE_BATCH_SIZE = 32;
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Path sourceDirectory;
+	private final transient Path targetDirectory;
+	private final transient CopyOption[] options;
+	private final transient Queue<IOException> failures;
+	private final transient @Nullable Path directory;
+	private final transient @Nullable List<Path> files;
+
+	ForkJoinCopyTask(
+			Path sourceDirectory, Path targetDirectory, CopyOption[] options,
+			Queue<IOException> failures
+	) {
+		this(sourceDirectory, targetDirectory, options, failures, sourceDirectory, null);
+	}
+
+	private ForkJoinCopyTask(
+			Path sourceDirectory, Path targetDirectory, CopyOption[] options,
+			Queue<IOException> failures, @Nullable Path directory, @Nullable List<Path> files
+	) {
+		this.sourceDirectory = sourceDirectory;
+		this.targetDirectory = targetDirectory;
+		this.options = options;
+		this.failures = failures;
+		this.directory = directory;
+		this.files = files;
+	}
+
+	@Override
+	protected void compute() {
+		if (directory != null) {
+			copyDirectory(directory);
+		} else if (files != null) {
+			copyFiles(files);
+		}
+	}
+
+	private void copyDirectory(Path currentDirectory) {
+		//The target directory is created before any of its children are copied.
+		try {
+			Files.createDirectories(getTarget(currentDirectory));
+		} catch (IOException ex) {
+			failures.add(ex);
+			return;
+		}
+
+		final List<ForkJoinCopyTask> tasks = new ArrayList<>();
+		List<Path> batch = new ArrayList<>(FILE_BATCH_SIZE);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(currentDirectory)) {
+			for (Path child : stream) {
+				if (isDirectory(child)) {
+					tasks.add(newTask(child, null));
+					continue;
+				}
+
+				batch.add(child);
+
+				if (batch.size() == FILE_BATCH_SIZE) {
+					tasks.add(newTask(null, batch));
+					batch = new ArrayList<>(FILE_BATCH_SIZE);
+				}
+			}
+		} catch (IOException ex) {
+			failures.add(ex);
+		} catch (DirectoryIteratorException ex) {
+			failures.add(ex.getCause());
+		}
+
+		if (!batch.isEmpty()) {
+			tasks.add(newTask(null, batch));
+		}
+
+		invokeAll(tasks);
+	}
+
+	private void copyFiles(List<Path> fileBatch) {
+		for (Path file : fileBatch) {
+			try {
+				FileTransfer.copy(file, getTarget(file), options);
+			} catch (IOException ex) {
+				failures.add(ex);
+			}
+		}
+	}
+
+	private ForkJoinCopyTask newTask(
+			@Nullable Path childDirectory, @Nullable List<Path> fileBatch
+	) {
+		return new ForkJoinCopyTask(
+				sourceDirectory, targetDirectory, options, failures, childDirectory, fileBatch
+		);
+	}
+
+	private Path getTarget(Path source) {
+		return PathUtils.resolve(targetDirectory, sourceDirectory.relativize(source));
+	}
+
+	private static boolean isDirectory(Path path) {
+		//Like Files#walkFileTree, we do not follow symbolic links.
+		try {
+			return Files.readAttributes(
+					path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+			).isDirectory();
+		} catch (IOException ignored) {
+			//If the attributes cannot be read, the path is treated as a file so that the error is
+			//reported when it is copied.
+			return false;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+final class ForkJoinDeleteTask extends RecursiveAction {
+	//The number of files that are deleted by a single task.
+	private static final int FILE_BATCH_SIZE = 64;
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Queue<IOException> failures;
+	private final transient @Nullable Path directory;
+	private final transient @Nullable List<Path> files;
+	private boolean failed;
+
+	ForkJoinDeleteTask(Path directory, Queue<IOException> failures) {
+		this(failures, directory, null);
+	}
+
+	private ForkJoinDeleteTask(
+			Queue<IOException> failures, @Nullable Path directory, @Nullable List<Path> files
+	) {
+		this.failures = failures;
+		this.directory = directory;
+		this.files = files;
+	}
+
+	@Override
+	protected void compute() {
+		if (directory != null) {
+			deleteDirectory(directory);
+		} else if (files != null) {
+			deleteFiles(files);
+		}
+	}
+
+	private void deleteDirectory(Path currentDirectory) {
+		final List<ForkJoinDeleteTask> tasks = new ArrayList<>();
+		List<Path> batch = new ArrayList<>(FILE_BATCH_SIZE);
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(currentDirectory)) {
+			for (Path child : stream) {
+				if (isDirectory(child)) {
+					tasks.add(new ForkJoinDeleteTask(failures, child, null));
+					continue;
+				}
+
+				batch.add(child);
+
+				if (batch.size() == FILE_BATCH_SIZE) {
+					tasks.add(new ForkJoinDeleteTask(failures, null, batch));
+					batch = new ArrayList<>(FILE_BATCH_SIZE);
+				}
+			}
+		} catch (IOException ex) {
+			fail(ex);
+		} catch (DirectoryIteratorException ex) {
+			fail(ex.getCause());
+		}
+
+		if (!batch.isEmpty()) {
+			tasks.add(new ForkJoinDeleteTask(failures, null, batch));
+		}
+
+		invokeAll(tasks);
+
+		for (ForkJoinDeleteTask task : tasks) {
+			failed |= task.failed;
+		}
+
+		//If a child could not be deleted, deleting this directory would only fail again.
+		if (!failed) {
+			try {
+				Files.delete(currentDirectory);
+			} catch (IOException ex) {
+				fail(ex);
+			}
+		}
+	}
+
+	private void deleteFiles(List<Path> fileBatch) {
+		for (Path file : fileBatch) {
+			try {
+				Files.delete(file);
+			} catch (IOException ex) {
+				fail(ex);
+			}
+		}
+	}
+
+	private void fail(IOException ex) {
+		failed = true;
+		failures.add(ex);
+	}
+
+	private static boolean isDirectory(Path path) {
+		//Symbolic links are deleted rather than followed.
+		try {
+			return Files.readAttributes(
+					path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+			).isDirectory();
+		} catch (IOException ignored) {
+			//If the attributes cannot be read, the path is treated as a file so that the error is
+			//reported when it is deleted.
+			return false;
+		}
+	}
+}
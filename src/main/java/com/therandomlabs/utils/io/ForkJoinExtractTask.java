@@ -0,0 +1,166 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RecursiveAction;
+
+final class ForkJoinExtractTask extends RecursiveAction {
+	//A range of entries is split until it contains at most this many entries or bytes.
+	private static final int FILE_BATCH_SIZE = 64;
+	private static final long BYTE_BATCH_SIZE = 4L << 20;
+
+	private static final int BUFFER_SIZE = 64 << 10;
+
+	//Symbolic links are never followed so that an existing link cannot redirect an entry to
+	//outside of the target directory.
+	private static final OpenOption[] CREATE_NEW = {
+			StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW, LinkOption.NOFOLLOW_LINKS
+	};
+	private static final OpenOption[] REPLACE_EXISTING = {
+			StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, LinkOption.NOFOLLOW_LINKS
+	};
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient List<Path> entries;
+	private final transient List<BasicFileAttributes> attributes;
+	private final transient List<Path> files;
+	//The total size of the entries before each index, so that ranges can be split by size.
+	private final transient long[] sizeOffsets;
+	private final transient ExtractOptions options;
+	private final transient Queue<IOException> failures;
+	private final transient int start;
+	private final transient int end;
+
+	ForkJoinExtractTask(
+			List<Path> entries, List<BasicFileAttributes> attributes, List<Path> files,
+			ExtractOptions options, Queue<IOException> failures
+	) {
+		this(
+				entries, attributes, files, getSizeOffsets(attributes), options, failures, 0,
+				entries.size()
+		);
+	}
+
+	private ForkJoinExtractTask(
+			List<Path> entries, List<BasicFileAttributes> attributes, List<Path> files,
+			long[] sizeOffsets, ExtractOptions options, Queue<IOException> failures, int start,
+			int end
+	) {
+		this.entries = entries;
+		this.attributes = attributes;
+		this.files = files;
+		this.sizeOffsets = sizeOffsets;
+		this.options = options;
+		this.failures = failures;
+		this.start = start;
+		this.end = end;
+	}
+
+	@Override
+	protected void compute() {
+		if (end - start > 1 && (end - start > FILE_BATCH_SIZE ||
+				sizeOffsets[end] - sizeOffsets[start] > BYTE_BATCH_SIZE)) {
+			final int middle = (start + end) >>> 1;
+			invokeAll(
+					new ForkJoinExtractTask(
+							entries, attributes, files, sizeOffsets, options, failures, start,
+							middle
+					),
+					new ForkJoinExtractTask(
+							entries, attributes, files, sizeOffsets, options, failures, middle,
+							end
+					)
+			);
+			return;
+		}
+
+		byte[] buffer = null;
+
+		for (int i = start; i < end; i++) {
+			final BasicFileAttributes entryAttributes = attributes.get(i);
+			final int bufferSize =
+					(int) Math.min(Math.max(entryAttributes.size(), 1L), BUFFER_SIZE);
+
+			if (buffer == null || buffer.length < bufferSize) {
+				buffer = new byte[bufferSize];
+			}
+
+			try {
+				extract(entries.get(i), entryAttributes, files.get(i), buffer);
+			} catch (IOException ex) {
+				failures.add(ex);
+			}
+		}
+	}
+
+	private void extract(
+			Path entry, BasicFileAttributes entryAttributes, Path file, byte[] buffer
+	) throws IOException {
+		final OpenOption[] openOptions =
+				options.isReplacingExisting() ? REPLACE_EXISTING : CREATE_NEW;
+
+		//The file is not extended to the entry's size up front: writing past the end of a file
+		//only makes it sparse rather than allocating it, and the size in the central directory
+		//might be wrong. The buffer is sized to the entry so that small entries take one write.
+		try (InputStream in = Files.newInputStream(entry);
+			 FileChannel channel = FileChannel.open(file, openOptions)) {
+			for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+				final ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+
+				while (data.hasRemaining()) {
+					channel.write(data);
+				}
+			}
+		}
+
+		if (options.isPreservingLastModifiedTimes()) {
+			Files.setLastModifiedTime(file, entryAttributes.lastModifiedTime());
+		}
+	}
+
+	private static long[] getSizeOffsets(List<BasicFileAttributes> attributes) {
+		final long[] sizeOffsets = new long[attributes.size() + 1];
+
+		for (int i = 0; i < attributes.size(); i++) {
+			sizeOffsets[i + 1] = sizeOffsets[i] + Math.max(attributes.get(i).size(), 0L);
+		}
+
+		return sizeOffsets;
+	}
+}
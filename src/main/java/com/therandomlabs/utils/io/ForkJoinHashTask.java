@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+final class ForkJoinHashTask extends RecursiveAction {
+	//A range of files is split until it contains at most this many files or bytes.
+	private static final int FILE_BATCH_SIZE = 64;
+	private static final long BYTE_BATCH_SIZE = 4L << 20;
+
+	private static final int BUFFER_SIZE = 64 << 10;
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient List<Path> files;
+	//The total size of the files before each index, so that ranges can be split by size.
+	private final transient long[] sizeOffsets;
+	private final transient Map<Path, HashCode> hashes;
+	private final transient int start;
+	private final transient int end;
+
+	ForkJoinHashTask(List<Path> files, long[] sizeOffsets, Map<Path, HashCode> hashes) {
+		this(files, sizeOffsets, hashes, 0, files.size());
+	}
+
+	private ForkJoinHashTask(
+			List<Path> files, long[] sizeOffsets, Map<Path, HashCode> hashes, int start, int end
+	) {
+		this.files = files;
+		this.sizeOffsets = sizeOffsets;
+		this.hashes = hashes;
+		this.start = start;
+		this.end = end;
+	}
+
+	@Override
+	protected void compute() {
+		if (end - start > 1 && (end - start > FILE_BATCH_SIZE ||
+				sizeOffsets[end] - sizeOffsets[start] > BYTE_BATCH_SIZE)) {
+			final int middle = (start + end) >>> 1;
+			invokeAll(
+					new ForkJoinHashTask(files, sizeOffsets, hashes, start, middle),
+					new ForkJoinHashTask(files, sizeOffsets, hashes, middle, end)
+			);
+			return;
+		}
+
+		hash(files, hashes, start, end);
+	}
+
+	/**
+	 * Hashes the files in the specified range on the calling thread.
+	 * Files that cannot be read are skipped.
+	 */
+	static void hash(List<Path> files, Map<Path, HashCode> hashes, int start, int end) {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+
+		for (int i = start; i < end; i++) {
+			final Path file = files.get(i);
+
+			try {
+				hashes.put(file, hash(file, buffer));
+			} catch (IOException ignored) {
+				//The file is not deduplicated, and the error is reported when it is added.
+			}
+		}
+	}
+
+	/**
+	 * Returns the hash of the specified file, which is read using the specified buffer.
+	 */
+	static HashCode hash(Path file, byte[] buffer) throws IOException {
+		final Hasher hasher = Hashing.sha256().newHasher();
+
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int read; (read = in.read(buffer)) != -1; ) {
+				hasher.putBytes(buffer, 0, read);
+			}
+		}
+
+		return hasher.hash();
+	}
+}
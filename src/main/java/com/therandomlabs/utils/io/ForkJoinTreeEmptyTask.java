@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class ForkJoinTreeEmptyTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final transient Path directory;
+	//The keys of the directories that have been searched, so that cycles are not followed.
+	private final transient Set<Object> visited;
+	private final transient AtomicBoolean fileFound;
+	private final transient Queue<IOException> failures;
+
+	ForkJoinTreeEmptyTask(
+			Path directory, Set<Object> visited, AtomicBoolean fileFound,
+			Queue<IOException> failures
+	) {
+		this.directory = directory;
+		this.visited = visited;
+		this.fileFound = fileFound;
+		this.failures = failures;
+	}
+
+	@Override
+	protected void compute() {
+		final List<ForkJoinTreeEmptyTask> tasks = new ArrayList<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path child : stream) {
+				//Another task has already found a file, so the answer is known.
+				if (fileFound.get()) {
+					return;
+				}
+
+				final BasicFileAttributes attributes;
+
+				try {
+					attributes = DirectoryEntries.readAttributes(
+							stream, child, BasicFileAttributes.class
+					);
+				} catch (IOException ignored) {
+					//Like Files#isDirectory, we treat entries whose attributes cannot be read as
+					//non-directories.
+					fileFound.set(true);
+					return;
+				}
+
+				if (!attributes.isDirectory()) {
+					fileFound.set(true);
+					return;
+				}
+
+				if (visited.add(DirectoryEntries.getDirectoryKey(child, attributes))) {
+					tasks.add(new ForkJoinTreeEmptyTask(child, visited, fileFound, failures));
+				}
+			}
+		} catch (IOException ex) {
+			failures.add(ex);
+		} catch (DirectoryIteratorException ex) {
+			failures.add(ex.getCause());
+		}
+
+		//The stream has been closed, so subdirectories are searched without keeping their
+		//parents open.
+		invokeAll(tasks);
+	}
+}
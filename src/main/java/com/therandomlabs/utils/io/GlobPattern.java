@@ -0,0 +1,229 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A glob that has been split into its name segments so that it can be matched one name at a
+ * time while walking a directory tree.
+ * <p>
+ * Matching is performed by a small nondeterministic automaton whose states are the indices of
+ * the segments, stored as bits in a {@code long}. A segment that is exactly {@code **} consumes
+ * one or more names; any other segment consumes exactly one name that matches it.
+ * A state set of {@code 0} means that no path below the current one can match, so the subtree
+ * can be pruned.
+ * <p>
+ * Globs that cannot be split safely (for example, because they contain a name separator inside
+ * a group, an escape character or a {@code **} that is not a whole segment) are not prunable;
+ * for such globs, every path is considered alive and {@link #matches(Path)} should be used
+ * instead of {@link #accepts(long)}.
+ */
+final class GlobPattern {
+	private static final String ANY_DIRECTORIES = "**";
+	private static final String WILDCARD_CHARACTERS = "*?[{";
+	private static final int MAX_SEGMENTS = Long.SIZE - 1;
+
+	private final PathMatcher matcher;
+	private final boolean prunable;
+	//Both arrays are empty if this glob is not prunable.
+	private final String[] segments;
+	//The matcher of each segment, or null for segments that are exactly "**".
+	private final PathMatcher[] segmentMatchers;
+	private final int literalPrefixLength;
+
+	GlobPattern(FileSystem fileSystem, String glob) {
+		matcher = fileSystem.getPathMatcher("glob:" + glob);
+		final List<String> splitGlob = split(glob);
+
+		if (splitGlob == null) {
+			prunable = false;
+			segments = new String[0];
+			segmentMatchers = new PathMatcher[0];
+			literalPrefixLength = 0;
+			return;
+		}
+
+		prunable = true;
+		segments = splitGlob.toArray(new String[0]);
+		segmentMatchers = new PathMatcher[segments.length];
+		int prefixLength = -1;
+
+		for (int i = 0; i < segments.length; i++) {
+			if (!ANY_DIRECTORIES.equals(segments[i])) {
+				segmentMatchers[i] = fileSystem.getPathMatcher("glob:" + segments[i]);
+			}
+
+			if (prefixLength == -1 && !isLiteral(segments[i])) {
+				prefixLength = i;
+			}
+		}
+
+		literalPrefixLength = prefixLength == -1 ? segments.length : prefixLength;
+	}
+
+	boolean isPrunable() {
+		return prunable;
+	}
+
+	/**
+	 * Returns the literal segments at the start of this glob, i.e. the directory that every
+	 * match must be under.
+	 */
+	List<String> getLiteralPrefix() {
+		final List<String> prefix = new ArrayList<>(literalPrefixLength);
+
+		for (int i = 0; i < literalPrefixLength; i++) {
+			prefix.add(segments[i]);
+		}
+
+		return prefix;
+	}
+
+	/**
+	 * Returns the states after the literal prefix has been consumed.
+	 */
+	long getStatesAfterLiteralPrefix() {
+		return isPrunable() ? 1L << literalPrefixLength : 1L;
+	}
+
+	long advance(long states, Path name) {
+		if (!isPrunable()) {
+			return states;
+		}
+
+		long next = 0L;
+
+		for (int i = 0; i < segments.length; i++) {
+			if ((states & 1L << i) == 0L) {
+				continue;
+			}
+
+			final PathMatcher segmentMatcher = segmentMatchers[i];
+
+			if (segmentMatcher == null) {
+				next |= 1L << i | 1L << i + 1;
+			} else if (segmentMatcher.matches(name)) {
+				next |= 1L << i + 1;
+			}
+		}
+
+		return next;
+	}
+
+	/**
+	 * Returns whether a path in the specified states matches this glob.
+	 * This is only meaningful if this glob is prunable.
+	 */
+	boolean accepts(long states) {
+		return (states & 1L << segments.length) != 0L;
+	}
+
+	/**
+	 * Returns whether a descendant of a path in the specified states could match this glob.
+	 */
+	boolean canDescend(long states) {
+		return !isPrunable() || (states & ~(1L << segments.length)) != 0L;
+	}
+
+	/**
+	 * Returns whether every descendant of a path in the specified states matches this glob,
+	 * i.e. whether this glob ends in {@code **} and that segment has been reached.
+	 */
+	boolean acceptsAllDescendants(long states) {
+		return isPrunable() && ANY_DIRECTORIES.equals(segments[segments.length - 1]) &&
+				(states & 1L << segments.length - 1) != 0L;
+	}
+
+	/**
+	 * Returns whether the specified path, relative to the directory being matched, matches this
+	 * glob.
+	 */
+	boolean matches(Path relativePath) {
+		return matcher.matches(relativePath);
+	}
+
+	private static @Nullable List<String> split(String glob) {
+		if (glob.isEmpty() || glob.charAt(0) == IOConstants.UNIX_DIRECTORY_SEPARATOR ||
+				glob.indexOf(IOConstants.WINDOWS_DIRECTORY_SEPARATOR) != -1) {
+			return null;
+		}
+
+		final List<String> segments = new ArrayList<>();
+		int depth = 0;
+		int start = 0;
+
+		for (int i = 0; i < glob.length(); i++) {
+			final char character = glob.charAt(i);
+
+			if (character == '[' || character == '{') {
+				depth++;
+			} else if ((character == ']' || character == '}') && depth > 0) {
+				depth--;
+			} else if (character == IOConstants.UNIX_DIRECTORY_SEPARATOR) {
+				if (depth != 0 || i == start) {
+					return null;
+				}
+
+				segments.add(glob.substring(start, i));
+				start = i + 1;
+			}
+		}
+
+		if (start == glob.length()) {
+			return null;
+		}
+
+		segments.add(glob.substring(start));
+
+		if (segments.size() > MAX_SEGMENTS) {
+			return null;
+		}
+
+		for (String segment : segments) {
+			if (segment.contains(ANY_DIRECTORIES) && !ANY_DIRECTORIES.equals(segment)) {
+				return null;
+			}
+		}
+
+		return segments;
+	}
+
+	private static boolean isLiteral(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			if (WILDCARD_CHARACTERS.indexOf(segment.charAt(i)) != -1) {
+				return false;
+			}
+		}
+
+		//"." and ".." cannot be resolved literally without changing the meaning of the glob.
+		return !".".equals(segment) && !"..".equals(segment);
+	}
+}
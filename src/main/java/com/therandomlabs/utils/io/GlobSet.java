@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A set of include and exclude globs that are matched against a directory tree in a single
+ * pass.
+ * <p>
+ * Calling {@link NIOUtils#matchGlob(Path, String)} once per glob walks the tree once per glob.
+ * {@link #match(Path)} instead walks the tree once, advancing the automata of all globs
+ * together. A subtree is only visited if at least one include glob could match a path within it,
+ * and it is skipped entirely if an exclude glob matches every path within it
+ * (e.g. {@code build/**}).
+ * <p>
+ * A {@link Path} matches a {@link GlobSet} if it matches at least one include glob and no
+ * exclude globs. Like with {@link NIOUtils#matchGlob(Path, String)}, globs are relative to the
+ * directory being matched and should use the Unix path separator ({@code /}).
+ * {@link GlobSet}s are immutable.
+ */
+public final class GlobSet {
+	private final ImmutableList<String> includes;
+	private final ImmutableList<String> excludes;
+
+	private GlobSet(ImmutableList<String> includes, ImmutableList<String> excludes) {
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	/**
+	 * Returns the include globs of this {@link GlobSet}.
+	 *
+	 * @return an {@link ImmutableList} of include globs.
+	 */
+	public ImmutableList<String> getIncludes() {
+		return includes;
+	}
+
+	/**
+	 * Returns the exclude globs of this {@link GlobSet}.
+	 *
+	 * @return an {@link ImmutableList} of exclude globs.
+	 */
+	public ImmutableList<String> getExcludes() {
+		return excludes;
+	}
+
+	/**
+	 * Walks the specified directory once and returns every {@link Path} within it that matches
+	 * this {@link GlobSet}, along with the include globs that matched it.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @return an {@link ImmutableMap} that maps every matching {@link Path} to the
+	 * {@link ImmutableSet} of include globs that it matches, in the order in which the
+	 * {@link Path}s were visited and the globs were specified.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ImmutableMap<Path, ImmutableSet<String>> match(Path directory) throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+
+		directory = directory.toAbsolutePath().normalize();
+
+		final GlobSetFileVisitor visitor = new GlobSetFileVisitor(
+				directory, compile(directory.getFileSystem(), includes),
+				compile(directory.getFileSystem(), excludes)
+		);
+		Files.walkFileTree(directory, visitor);
+		return visitor.matches.build();
+	}
+
+	/**
+	 * Returns a {@link GlobSet} that consists of the specified include and exclude globs.
+	 *
+	 * @param includes a collection of include globs.
+	 * @param excludes a collection of exclude globs.
+	 * @return a {@link GlobSet} that consists of the specified include and exclude globs.
+	 */
+	public static GlobSet of(Collection<String> includes, Collection<String> excludes) {
+		Preconditions.checkNotNull(includes, "includes should not be null");
+		Preconditions.checkNotNull(excludes, "excludes should not be null");
+		return new GlobSet(ImmutableList.copyOf(includes), ImmutableList.copyOf(excludes));
+	}
+
+	/**
+	 * Returns a {@link GlobSet} that consists of the specified include globs.
+	 *
+	 * @param includes an array of include globs.
+	 * @return a {@link GlobSet} that consists of the specified include globs.
+	 */
+	public static GlobSet of(String... includes) {
+		Preconditions.checkNotNull(includes, "includes should not be null");
+		return new GlobSet(ImmutableList.copyOf(includes), ImmutableList.of());
+	}
+
+	private static GlobPattern[] compile(FileSystem fileSystem, ImmutableList<String> globs) {
+		final GlobPattern[] patterns = new GlobPattern[globs.size()];
+
+		for (int i = 0; i < patterns.length; i++) {
+			patterns[i] = new GlobPattern(fileSystem, globs.get(i));
+		}
+
+		return patterns;
+	}
+
+	private final class GlobSetFileVisitor extends SimpleFileVisitor<Path> {
+		private final Path directory;
+		private final GlobPattern[] includePatterns;
+		private final GlobPattern[] excludePatterns;
+		private final Deque<long[]> states = new ArrayDeque<>();
+		private final ImmutableMap.Builder<Path, ImmutableSet<String>> matches =
+				ImmutableMap.builder();
+
+		GlobSetFileVisitor(
+				Path directory, GlobPattern[] includePatterns, GlobPattern[] excludePatterns
+		) {
+			this.directory = directory;
+			this.includePatterns = includePatterns;
+			this.excludePatterns = excludePatterns;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+			final long[] pathStates;
+
+			if (states.isEmpty()) {
+				pathStates = new long[includePatterns.length + excludePatterns.length];
+				Arrays.fill(pathStates, 1L);
+			} else {
+				pathStates = advance(path);
+			}
+
+			if (!canDescend(pathStates)) {
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			states.push(pathStates);
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+			advance(file);
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult postVisitDirectory(Path path, IOException ex) throws IOException {
+			if (ex != null) {
+				throw ex;
+			}
+
+			states.pop();
+			return FileVisitResult.CONTINUE;
+		}
+
+		private long[] advance(Path path) {
+			final long[] parentStates = states.element();
+			final long[] pathStates = new long[parentStates.length];
+			final Path name = path.getFileName();
+			Path relativePath = null;
+			ImmutableSet.Builder<String> matched = null;
+
+			for (int i = 0; i < pathStates.length; i++) {
+				if (parentStates[i] == 0L) {
+					continue;
+				}
+
+				final boolean include = i < includePatterns.length;
+				final GlobPattern pattern =
+						include ? includePatterns[i] : excludePatterns[i - includePatterns.length];
+				pathStates[i] = pattern.advance(parentStates[i], name);
+
+				//Exclude globs are only checked if an include glob matches.
+				if (!include || pathStates[i] == 0L) {
+					continue;
+				}
+
+				final boolean matches;
+
+				if (pattern.isPrunable()) {
+					matches = pattern.accepts(pathStates[i]);
+				} else {
+					if (relativePath == null) {
+						relativePath = directory.relativize(path);
+					}
+
+					matches = pattern.matches(relativePath);
+				}
+
+				if (!matches) {
+					continue;
+				}
+
+				if (matched == null) {
+					matched = ImmutableSet.builder();
+				}
+
+				matched.add(includes.get(i));
+			}
+
+			if (matched != null && !isExcluded(path, pathStates)) {
+				matches.put(path, matched.build());
+			}
+
+			return pathStates;
+		}
+
+		private boolean isExcluded(Path path, long[] pathStates) {
+			for (int i = 0; i < excludePatterns.length; i++) {
+				final long excludeStates = pathStates[includePatterns.length + i];
+
+				if (excludeStates != 0L) {
+					final GlobPattern pattern = excludePatterns[i];
+
+					if (pattern.isPrunable() ? pattern.accepts(excludeStates) :
+							pattern.matches(directory.relativize(path))) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+
+		private boolean canDescend(long[] pathStates) {
+			for (int i = includePatterns.length; i < pathStates.length; i++) {
+				if (pathStates[i] != 0L &&
+						excludePatterns[i - includePatterns.length].acceptsAllDescendants(
+								pathStates[i]
+						)) {
+					return false;
+				}
+			}
+
+			for (int i = 0; i < includePatterns.length; i++) {
+				if (pathStates[i] != 0L && includePatterns[i].canDescend(pathStates[i])) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
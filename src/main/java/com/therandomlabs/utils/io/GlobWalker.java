@@ -0,0 +1,177 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Lazily walks a directory tree in the same order as {@link Files#walk(Path,
+ * java.nio.file.FileVisitOption...)}, returning only {@link Path}s that match a
+ * {@link GlobPattern}. Subtrees that cannot contain any matches are never opened, and entries
+ * that cannot match are never read from the filesystem beyond their names.
+ */
+final class GlobWalker implements Iterator<Path>, Closeable {
+	private static final class Frame {
+		final DirectoryStream<Path> stream;
+		final Iterator<Path> iterator;
+		final long states;
+
+		Frame(DirectoryStream<Path> stream, long states) {
+			this.stream = stream;
+			iterator = stream.iterator();
+			this.states = states;
+		}
+	}
+
+	private final Path directory;
+	private final GlobPattern pattern;
+	private final Deque<Frame> frames = new ArrayDeque<>();
+	private @Nullable Path next;
+
+	GlobWalker(Path directory, GlobPattern pattern) throws IOException {
+		this.directory = directory;
+		this.pattern = pattern;
+
+		Path start = directory;
+
+		for (String segment : pattern.getLiteralPrefix()) {
+			start = start.resolve(segment);
+		}
+
+		if (!Files.exists(start, LinkOption.NOFOLLOW_LINKS)) {
+			return;
+		}
+
+		final long states = pattern.getStatesAfterLiteralPrefix();
+
+		//Like NIOUtils#matchGlob, we never match the directory itself.
+		if (!start.equals(directory) && isMatch(start, states)) {
+			next = start;
+		}
+
+		if (pattern.canDescend(states) && Files.isDirectory(start, LinkOption.NOFOLLOW_LINKS)) {
+			frames.push(new Frame(Files.newDirectoryStream(start), states));
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = findNext();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+
+		return next != null;
+	}
+
+	@Override
+	public Path next() {
+		hasNext();
+		final Path path = next;
+
+		if (path == null) {
+			throw new NoSuchElementException();
+		}
+
+		next = null;
+		return path;
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+
+		while (!frames.isEmpty()) {
+			try {
+				frames.pop().stream.close();
+			} catch (IOException ex) {
+				if (exception == null) {
+					exception = ex;
+				} else {
+					exception.addSuppressed(ex);
+				}
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private @Nullable Path findNext() throws IOException {
+		while (!frames.isEmpty()) {
+			final Frame frame = frames.peek();
+			final Path child;
+
+			try {
+				if (!frame.iterator.hasNext()) {
+					frames.pop().stream.close();
+					continue;
+				}
+
+				child = frame.iterator.next();
+			} catch (DirectoryIteratorException ex) {
+				throw ex.getCause();
+			}
+
+			final long states = pattern.advance(frame.states, child.getFileName());
+
+			if (states == 0L) {
+				continue;
+			}
+
+			if (pattern.canDescend(states) &&
+					Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+				frames.push(new Frame(Files.newDirectoryStream(child), states));
+			}
+
+			if (isMatch(child, states)) {
+				return child;
+			}
+		}
+
+		return null;
+	}
+
+	private boolean isMatch(Path path, long states) {
+		return pattern.isPrunable() ?
+				pattern.accepts(states) : pattern.matches(directory.relativize(path));
+	}
+}
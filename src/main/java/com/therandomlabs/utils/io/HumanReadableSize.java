@@ -21,17 +21,45 @@
  * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
+
 package com.therandomlabs.utils.io;
 
+import java.io.IOException;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import com.google.common.base.Preconditions;
+
 /**
  * Contains utility methods for converting sizes in bytes to human-readable formats.
  * The code in this class has been taken and adapted from
  * <a href="https://programming.guide/java/formatting-byte-size-to-human-readable-format.html">
  * here
  * </a>.
+ * <p>
+ * Sizes are formatted with one decimal place using the decimal separator and digits of the
+ * default locale for formatting, in the same way as {@link String#format(String, Object...)}
+ * would, but using fixed-point integer arithmetic. The overloads that write to a
+ * {@link StringBuilder}, an {@link Appendable} or a {@code char} array do not allocate any
+ * objects, so they are suitable for hot paths such as logging.
+ * <p>
+ * Sizes can be parsed with {@link #parse(CharSequence)} and
+ * {@link #parseLenient(CharSequence)}, which accept both decimal (SI) and binary (IEC) units
+ * and do not allocate any objects unless parsing fails. {@link #parse(CharSequence)} always
+ * uses {@code .} as the decimal separator regardless of the locale, while
+ * {@link #parseLenient(CharSequence)} also accepts {@code ,} and the decimal separator of the
+ * default locale for formatting, so it can parse sizes that are formatted in that locale.
+ * For any size {@code x}, if the default locale for formatting uses {@code .} as its decimal
+ * separator, {@code decimal(parse(decimal(x)))} is equal to {@code decimal(x)}, and the same
+ * holds for {@link #binary(long)}, except that sizes that are formatted as {@code 1024.0} of a
+ * binary unit are parsed as {@code 1.0} of the next unit.
  */
 public final class HumanReadableSize {
-	private static final String FORMAT_STRING = "%s%.1f %s";
+	/**
+	 * The maximum number of characters in a human-readable size, e.g. {@code "-1024.0 KiB"}.
+	 */
+	public static final int MAX_LENGTH = 11;
+
 	private static final String[] DECIMAL_SYMBOLS = {
 			"B", "kB", "MB", "GB", "TB", "PB", "EB"
 	};
@@ -39,6 +67,41 @@ public final class HumanReadableSize {
 			"B", "KiB", "MiB", "GiB", "TiB", "PiB", "EiB"
 	};
 
+	//The sizes below which each binary unit is used. These are doubles so that sizes are
+	//assigned the same units as when they were compared using Math.pow.
+	private static final double[] BINARY_THRESHOLDS = new double[BINARY_SYMBOLS.length - 1];
+
+	//10^0 to 10^18.
+	private static final long[] POWERS_OF_TEN = new long[19];
+	private static final int MAX_FRACTION_DIGITS = POWERS_OF_TEN.length - 1;
+	private static final String BINARY_PREFIXES = "KMGTPE";
+	//The largest integer part is 2^63, which is 9223372036854775808.
+	private static final long MAX_INTEGER_PREFIX = Long.MAX_VALUE / 10L;
+	private static final int MAX_INTEGER_LAST_DIGIT = 8;
+
+	private static final long MANTISSA_MASK = (1L << 52) - 1L;
+	private static final long IMPLICIT_BIT = 1L << 52;
+	//The biased exponent of a double whose value is its mantissa including the implicit bit.
+	private static final int MANTISSA_EXPONENT = 1075;
+
+	private static final ThreadLocal<char[]> BUFFER =
+			ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+	private static volatile FormatSymbols formatSymbols =
+			new FormatSymbols(Locale.getDefault(Locale.Category.FORMAT));
+
+	static {
+		for (int i = 1; i < BINARY_THRESHOLDS.length; i++) {
+			BINARY_THRESHOLDS[i] = Math.pow(1024.0, i) * 1024 - 52;
+		}
+
+		POWERS_OF_TEN[0] = 1L;
+
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+		}
+	}
+
 	private HumanReadableSize() {}
 
 	/**
@@ -50,26 +113,54 @@ public final class HumanReadableSize {
 	 * or {@code "1,0 MB"} depending on the locale.
 	 */
 	public static String decimal(long bytes) {
-		final String sign = bytes < 0 ? "-" : "";
-
-		//Math.abs(Long.MIN_VALUE) is Long.MIN_VALUE.
-		long abs = bytes == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(bytes);
-
-		if (abs < 1000L) {
-			return bytes + " " + DECIMAL_SYMBOLS[0];
-		}
+		final char[] buffer = BUFFER.get();
+		return new String(buffer, 0, format(bytes, false, buffer, 0));
+	}
 
-		for (int i = 1; i < DECIMAL_SYMBOLS.length - 1; i++) {
-			if (abs < 999_950L) {
-				return String.format(FORMAT_STRING, sign, abs / 1000.0, DECIMAL_SYMBOLS[i]);
-			}
+	/**
+	 * Appends the specified size in a human-readable format in decimal (SI) units to the
+	 * specified {@link StringBuilder}.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param builder a {@link StringBuilder}.
+	 * @return the specified {@link StringBuilder}.
+	 * @see #decimal(long)
+	 */
+	public static StringBuilder decimal(long bytes, StringBuilder builder) {
+		return append(bytes, false, builder);
+	}
 
-			abs /= 1000;
-		}
+	/**
+	 * Appends the specified size in a human-readable format in decimal (SI) units to the
+	 * specified {@link Appendable}.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param appendable an {@link Appendable}.
+	 * @param <A> the type of the {@link Appendable}.
+	 * @return the specified {@link Appendable}.
+	 * @throws IOException if the {@link Appendable} throws an {@link IOException}.
+	 * @see #decimal(long)
+	 */
+	public static <A extends Appendable> A decimal(long bytes, A appendable) throws IOException {
+		return append(bytes, false, appendable);
+	}
 
-		return String.format(
-				FORMAT_STRING, sign, abs / 1000.0, DECIMAL_SYMBOLS[DECIMAL_SYMBOLS.length - 1]
-		);
+	/**
+	 * Writes the specified size in a human-readable format in decimal (SI) units to the
+	 * specified {@code char} array.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param buffer a {@code char} array with room for at least {@link #MAX_LENGTH} characters
+	 * after {@code offset}.
+	 * @param offset the index in {@code buffer} at which the size should be written.
+	 * @return the number of characters that were written.
+	 * @throws IndexOutOfBoundsException if there are fewer than {@link #MAX_LENGTH} characters
+	 * after {@code offset}.
+	 * @see #decimal(long)
+	 */
+	public static int decimal(long bytes, char[] buffer, int offset) {
+		checkBuffer(buffer, offset);
+		return format(bytes, false, buffer, offset) - offset;
 	}
 
 	/**
@@ -81,26 +172,495 @@ public final class HumanReadableSize {
 	 * the string {@code "1.0 MiB"} is returned, or {@code "1,0 MiB"} depending on the locale.
 	 */
 	public static String binary(long bytes) {
-		final String sign = bytes < 0 ? "-" : "";
+		final char[] buffer = BUFFER.get();
+		return new String(buffer, 0, format(bytes, true, buffer, 0));
+	}
+
+	/**
+	 * Appends the specified size in a human-readable format in binary units to the specified
+	 * {@link StringBuilder}.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param builder a {@link StringBuilder}.
+	 * @return the specified {@link StringBuilder}.
+	 * @see #binary(long)
+	 */
+	public static StringBuilder binary(long bytes, StringBuilder builder) {
+		return append(bytes, true, builder);
+	}
+
+	/**
+	 * Appends the specified size in a human-readable format in binary units to the specified
+	 * {@link Appendable}.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param appendable an {@link Appendable}.
+	 * @param <A> the type of the {@link Appendable}.
+	 * @return the specified {@link Appendable}.
+	 * @throws IOException if the {@link Appendable} throws an {@link IOException}.
+	 * @see #binary(long)
+	 */
+	public static <A extends Appendable> A binary(long bytes, A appendable) throws IOException {
+		return append(bytes, true, appendable);
+	}
 
+	/**
+	 * Writes the specified size in a human-readable format in binary units to the specified
+	 * {@code char} array.
+	 *
+	 * @param bytes a size in bytes.
+	 * @param buffer a {@code char} array with room for at least {@link #MAX_LENGTH} characters
+	 * after {@code offset}.
+	 * @param offset the index in {@code buffer} at which the size should be written.
+	 * @return the number of characters that were written.
+	 * @throws IndexOutOfBoundsException if there are fewer than {@link #MAX_LENGTH} characters
+	 * after {@code offset}.
+	 * @see #binary(long)
+	 */
+	public static int binary(long bytes, char[] buffer, int offset) {
+		checkBuffer(buffer, offset);
+		return format(bytes, true, buffer, offset) - offset;
+	}
+
+	/**
+	 * Parses the specified human-readable size in decimal (SI) or binary (IEC) units.
+	 * The size should consist of an optional {@code -}, one or more digits, optionally followed
+	 * by {@code .} and one or more digits, an optional space and a unit, which is one of
+	 * {@code B}, {@code kB}, {@code MB}, {@code GB}, {@code TB}, {@code PB}, {@code EB},
+	 * {@code KiB}, {@code MiB}, {@code GiB}, {@code TiB}, {@code PiB} and {@code EiB}, e.g.
+	 * {@code "512 MiB"} or {@code "1.5GB"}. Sizes that are not a whole number of bytes are
+	 * rounded half up. Sizes that are out of range by less than half of the precision with which
+	 * they are written, such as {@code "8.0 EiB"}, are clamped, as they may have been rounded
+	 * when they were formatted.
+	 *
+	 * @param text a human-readable size.
+	 * @return the size in bytes.
+	 * @throws NumberFormatException if the size is not valid or is out of range.
+	 */
+	public static long parse(CharSequence text) {
+		Preconditions.checkNotNull(text, "text should not be null");
+		return parse(text, 0, text.length(), false);
+	}
+
+	/**
+	 * Parses the specified range of a {@link CharSequence} as a human-readable size in decimal
+	 * (SI) or binary (IEC) units.
+	 *
+	 * @param text a {@link CharSequence} that contains a human-readable size.
+	 * @param start the index of the first character of the size.
+	 * @param end the index after the last character of the size.
+	 * @return the size in bytes.
+	 * @throws NumberFormatException if the size is not valid or is out of range.
+	 * @see #parse(CharSequence)
+	 */
+	public static long parse(CharSequence text, int start, int end) {
+		Preconditions.checkNotNull(text, "text should not be null");
+		Preconditions.checkPositionIndexes(start, end, text.length());
+		return parse(text, start, end, false);
+	}
+
+	/**
+	 * Parses the specified human-readable size in decimal (SI) or binary (IEC) units leniently.
+	 * This is equivalent to {@link #parse(CharSequence)}, except that:
+	 * <ul>
+	 * <li>leading and trailing whitespace is ignored, and any amount of whitespace may separate
+	 * the number and the unit;</li>
+	 * <li>the number may start with {@code +}, may use {@code ,} or the decimal separator of
+	 * the default locale for formatting instead of {@code .}, may omit the digits on either side
+	 * of the decimal separator and may contain digits other than ASCII digits;</li>
+	 * <li>units are case-insensitive, and the trailing {@code B} may be omitted, e.g.
+	 * {@code "2k"} or {@code "1.5 gib"};</li>
+	 * <li>if there is no unit, the size is in bytes.</li>
+	 * </ul>
+	 * As with IEC units, units without an {@code i}, such as {@code KB}, are decimal.
+	 *
+	 * @param text a human-readable size.
+	 * @return the size in bytes.
+	 * @throws NumberFormatException if the size is not valid or is out of range.
+	 */
+	public static long parseLenient(CharSequence text) {
+		Preconditions.checkNotNull(text, "text should not be null");
+		return parse(text, 0, text.length(), true);
+	}
+
+	/**
+	 * Parses the specified range of a {@link CharSequence} as a human-readable size in decimal
+	 * (SI) or binary (IEC) units leniently.
+	 *
+	 * @param text a {@link CharSequence} that contains a human-readable size.
+	 * @param start the index of the first character of the size.
+	 * @param end the index after the last character of the size.
+	 * @return the size in bytes.
+	 * @throws NumberFormatException if the size is not valid or is out of range.
+	 * @see #parseLenient(CharSequence)
+	 */
+	public static long parseLenient(CharSequence text, int start, int end) {
+		Preconditions.checkNotNull(text, "text should not be null");
+		Preconditions.checkPositionIndexes(start, end, text.length());
+		return parse(text, start, end, true);
+	}
+
+	private static StringBuilder append(long bytes, boolean binary, StringBuilder builder) {
+		Preconditions.checkNotNull(builder, "builder should not be null");
+		final char[] buffer = BUFFER.get();
+		return builder.append(buffer, 0, format(bytes, binary, buffer, 0));
+	}
+
+	private static <A extends Appendable> A append(long bytes, boolean binary, A appendable)
+			throws IOException {
+		Preconditions.checkNotNull(appendable, "appendable should not be null");
+		final char[] buffer = BUFFER.get();
+		final int length = format(bytes, binary, buffer, 0);
+
+		for (int i = 0; i < length; i++) {
+			appendable.append(buffer[i]);
+		}
+
+		return appendable;
+	}
+
+	private static void checkBuffer(char[] buffer, int offset) {
+		Preconditions.checkNotNull(buffer, "buffer should not be null");
+		Preconditions.checkPositionIndexes(offset, offset + MAX_LENGTH, buffer.length);
+	}
+
+	private static int format(long bytes, boolean binary, char[] buffer, int offset) {
 		//Math.abs(Long.MIN_VALUE) is Long.MIN_VALUE.
-		long abs = bytes == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(bytes);
+		final long abs = bytes == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(bytes);
+
+		if (bytes < 0L) {
+			buffer[offset++] = '-';
+		}
+
+		//Sizes in bytes are not localized.
+		if (abs < (binary ? 1024L : 1000L)) {
+			offset = putDigits(abs, '0', buffer, offset);
+			buffer[offset++] = ' ';
+			buffer[offset++] = 'B';
+			return offset;
+		}
 
-		if (abs < 1024L) {
-			return bytes + " " + BINARY_SYMBOLS[0];
+		final String[] symbols = binary ? BINARY_SYMBOLS : DECIMAL_SYMBOLS;
+		int unit = 1;
+		final long tenths;
+
+		if (binary) {
+			while (unit < symbols.length - 1 && abs >= BINARY_THRESHOLDS[unit]) {
+				unit++;
+			}
+
+			tenths = getBinaryTenths(abs, unit);
+		} else {
+			long scaled = abs;
+
+			while (unit < symbols.length - 1 && scaled >= 999_950L) {
+				scaled /= 1000L;
+				unit++;
+			}
+
+			//The size is scaled / 1000, which has at most three decimal places, rounded half up.
+			tenths = (scaled + 50L) / 100L;
 		}
 
-		for (int i = 1; i < BINARY_SYMBOLS.length - 1; i++) {
-			final double size = Math.pow(1024.0, i);
+		final FormatSymbols formatSymbols = getFormatSymbols();
+		offset = putDigits(tenths / 10L, formatSymbols.zeroDigit, buffer, offset);
+		buffer[offset++] = formatSymbols.decimalSeparator;
+		buffer[offset++] = (char) (formatSymbols.zeroDigit + tenths % 10L);
+		buffer[offset++] = ' ';
 
-			if (abs < size * 1024 - 52) {
-				return String.format(FORMAT_STRING, sign, abs / size, BINARY_SYMBOLS[i]);
+		final String symbol = symbols[unit];
+		symbol.getChars(0, symbol.length(), buffer, offset);
+		return offset + symbol.length();
+	}
+
+	private static long parse(CharSequence text, int start, int end, boolean lenient) {
+		int index = start;
+		int unitEnd = end;
+
+		if (lenient) {
+			while (index < unitEnd && Character.isWhitespace(text.charAt(index))) {
+				index++;
+			}
+
+			while (unitEnd > index && Character.isWhitespace(text.charAt(unitEnd - 1))) {
+				unitEnd--;
 			}
 		}
 
-		return String.format(
-				FORMAT_STRING, sign, abs / Math.pow(1024.0, BINARY_SYMBOLS.length - 1.0),
-				BINARY_SYMBOLS[BINARY_SYMBOLS.length - 1]
+		boolean negative = false;
+
+		if (index < unitEnd) {
+			final char sign = text.charAt(index);
+
+			if (sign == '-') {
+				negative = true;
+				index++;
+			} else if (lenient && sign == '+') {
+				index++;
+			}
+		}
+
+		//The integer part is unsigned and may be up to 2^63 so that Long.MIN_VALUE can be parsed.
+		long integer = 0L;
+		int integerDigits = 0;
+
+		for (int digit; index < unitEnd &&
+				(digit = toDigit(text.charAt(index), lenient)) != -1; index++) {
+			if (integer > MAX_INTEGER_PREFIX ||
+					integer == MAX_INTEGER_PREFIX && digit > MAX_INTEGER_LAST_DIGIT) {
+				throw outOfRange(text, start, end);
+			}
+
+			integer = integer * 10L + digit;
+			integerDigits++;
+		}
+
+		long fraction = 0L;
+		int fractionDigits = 0;
+		boolean separator = false;
+
+		if (index < unitEnd && isDecimalSeparator(text.charAt(index), lenient)) {
+			separator = true;
+			index++;
+
+			for (int digit; index < unitEnd &&
+					(digit = toDigit(text.charAt(index), lenient)) != -1; index++) {
+				if (fractionDigits == MAX_FRACTION_DIGITS) {
+					throw invalid(text, start, end);
+				}
+
+				fraction = fraction * 10L + digit;
+				fractionDigits++;
+			}
+		}
+
+		if (lenient ? integerDigits + fractionDigits == 0 :
+				integerDigits == 0 || separator && fractionDigits == 0) {
+			throw invalid(text, start, end);
+		}
+
+		if (lenient) {
+			while (index < unitEnd && Character.isWhitespace(text.charAt(index))) {
+				index++;
+			}
+		} else if (index < unitEnd && text.charAt(index) == ' ') {
+			index++;
+		}
+
+		//The unit is encoded as its index, which is negative for binary units.
+		final int unit = lenient ?
+				parseLenientUnit(text, index, unitEnd) : parseUnit(text, index, unitEnd);
+
+		if (unit == Integer.MIN_VALUE) {
+			throw invalid(text, start, end);
+		}
+
+		final boolean binary = unit < 0;
+		final int exponent = Math.abs(unit);
+		final long multiplier = binary ? 1L << 10 * exponent : POWERS_OF_TEN[3 * exponent];
+
+		//The magnitude is unsigned so that it can reach 2^63. This bounds it below 2^63 plus twice
+		//the multiplier, which cannot overflow, and the exact range is checked below.
+		if (Long.compareUnsigned(integer, Long.MAX_VALUE / multiplier + 1L) > 0) {
+			throw outOfRange(text, start, end);
+		}
+
+		long magnitude =
+				integer * multiplier + getFractionBytes(fraction, fractionDigits, multiplier);
+
+		final long limit = negative ? Long.MIN_VALUE : Long.MAX_VALUE;
+
+		if (Long.compareUnsigned(magnitude, limit) > 0) {
+			final long halfPrecision = multiplier / POWERS_OF_TEN[fractionDigits] / 2L;
+
+			if (Long.compareUnsigned(magnitude - limit, halfPrecision) > 0) {
+				throw outOfRange(text, start, end);
+			}
+
+			magnitude = limit;
+		}
+
+		return negative ? -magnitude : magnitude;
+	}
+
+	private static boolean isDecimalSeparator(char character, boolean lenient) {
+		if (character == '.') {
+			return true;
+		}
+
+		return lenient &&
+				(character == ',' || character == getFormatSymbols().decimalSeparator);
+	}
+
+	private static int toDigit(char character, boolean lenient) {
+		if (character >= '0' && character <= '9') {
+			return character - '0';
+		}
+
+		return lenient ? Character.digit(character, 10) : -1;
+	}
+
+	private static int parseUnit(CharSequence text, int start, int end) {
+		for (int i = 0; i < DECIMAL_SYMBOLS.length; i++) {
+			if (contentEquals(text, start, end, DECIMAL_SYMBOLS[i])) {
+				return i;
+			}
+
+			if (contentEquals(text, start, end, BINARY_SYMBOLS[i])) {
+				return -i;
+			}
+		}
+
+		return Integer.MIN_VALUE;
+	}
+
+	private static int parseLenientUnit(CharSequence text, int start, int end) {
+		if (start == end) {
+			return 0;
+		}
+
+		int index = start;
+		final int exponent =
+				BINARY_PREFIXES.indexOf(Character.toUpperCase(text.charAt(index))) + 1;
+
+		if (exponent != 0) {
+			index++;
+		}
+
+		final boolean binary = exponent != 0 && index < end &&
+				Character.toLowerCase(text.charAt(index)) == 'i';
+
+		if (binary) {
+			index++;
+		}
+
+		if (index < end && Character.toLowerCase(text.charAt(index)) == 'b') {
+			index++;
+		} else if (exponent == 0) {
+			return Integer.MIN_VALUE;
+		}
+
+		if (index != end) {
+			return Integer.MIN_VALUE;
+		}
+
+		return binary ? -exponent : exponent;
+	}
+
+	private static boolean contentEquals(CharSequence text, int start, int end, String string) {
+		if (end - start != string.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < string.length(); i++) {
+			if (text.charAt(start + i) != string.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of bytes in {@code fraction / 10^fractionDigits} of the specified
+	 * unit, rounded half up.
+	 */
+	private static long getFractionBytes(long fraction, int fractionDigits, long multiplier) {
+		if (fraction == 0L) {
+			return 0L;
+		}
+
+		final long divisor = POWERS_OF_TEN[fractionDigits];
+		long quotient;
+		long remainder;
+
+		if (Long.bitCount(multiplier) == 1) {
+			//fraction * multiplier might not fit in a long, so it is divided one bit at a time.
+			quotient = 0L;
+			remainder = fraction;
+
+			for (long bit = multiplier; bit > 1L; bit >>>= 1) {
+				quotient <<= 1;
+				remainder <<= 1;
+
+				if (remainder >= divisor) {
+					quotient++;
+					remainder -= divisor;
+				}
+			}
+		} else if (multiplier >= divisor) {
+			//The multiplier is a power of ten.
+			return fraction * (multiplier / divisor);
+		} else {
+			final long scaledDivisor = divisor / multiplier;
+			quotient = fraction / scaledDivisor;
+			remainder = (fraction % scaledDivisor) * multiplier;
+		}
+
+		return remainder * 2L >= divisor ? quotient + 1L : quotient;
+	}
+
+	private static NumberFormatException invalid(CharSequence text, int start, int end) {
+		return new NumberFormatException("Invalid size: \"" + text.subSequence(start, end) + '"');
+	}
+
+	private static NumberFormatException outOfRange(CharSequence text, int start, int end) {
+		return new NumberFormatException(
+				"Size is out of range: \"" + text.subSequence(start, end) + '"'
 		);
 	}
+
+	private static long getBinaryTenths(long abs, int unit) {
+		//The size is abs / 1024^unit in double precision, which is exactly mantissa / 2^shift.
+		final long bits = Double.doubleToRawLongBits(abs);
+		final long mantissa = bits & MANTISSA_MASK | IMPLICIT_BIT;
+		final int shift = 10 * unit + MANTISSA_EXPONENT - (int) (bits >>> 52);
+		final long scaled = mantissa * 10L;
+		final long half = 1L << shift - 1;
+		final long remainder = scaled & (half << 1) - 1L;
+
+		//Doubles are formatted by rounding their shortest decimal representation half up.
+		//If the size is less than half an ulp below a tie, its shortest representation is the
+		//tie itself, so it is rounded up. An ulp is 10 in units of the remainder.
+		return (scaled >>> shift) + (remainder + 5L > half ? 1L : 0L);
+	}
+
+	private static int putDigits(long value, char zeroDigit, char[] buffer, int offset) {
+		long divisor = 1L;
+
+		while (divisor * 10L <= value) {
+			divisor *= 10L;
+		}
+
+		for (; divisor != 0L; divisor /= 10L) {
+			buffer[offset++] = (char) (zeroDigit + value / divisor % 10L);
+		}
+
+		return offset;
+	}
+
+	private static FormatSymbols getFormatSymbols() {
+		final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		FormatSymbols symbols = formatSymbols;
+
+		if (!symbols.locale.equals(locale)) {
+			symbols = new FormatSymbols(locale);
+			formatSymbols = symbols;
+		}
+
+		return symbols;
+	}
+
+	private static final class FormatSymbols {
+		final Locale locale;
+		final char decimalSeparator;
+		final char zeroDigit;
+
+		FormatSymbols(Locale locale) {
+			this.locale = locale;
+			final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+			decimalSeparator = symbols.getDecimalSeparator();
+			zeroDigit = symbols.getZeroDigit();
+		}
+	}
 }
@@ -24,17 +24,32 @@
 package com.therandomlabs.utils.io;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.util.ArrayList;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.google.common.base.Preconditions;
 
@@ -62,9 +77,69 @@ public final class NIOUtils {
 		}
 	}
 
+	/**
+	 * Returns a lazily populated {@link Stream} of the entries within the specified directory.
+	 * The attributes of each entry are read once as the entry is listed. On filesystems that
+	 * support the {@code posix} attribute view, {@link PosixFileAttributes} are read.
+	 * <p>
+	 * Only the current entry is held in memory, so this method can be used to iterate over
+	 * directories that contain millions of entries. Entries that are deleted after they are
+	 * listed but before their attributes are read are skipped. For symbolic links whose targets
+	 * do not exist, the attributes of the links themselves are read.
+	 * <p>
+	 * The returned {@link Stream} holds an open directory, so it should be closed, e.g. by using
+	 * a try-with-resources statement. If an I/O error occurs while the {@link Stream} is being
+	 * consumed, an {@link UncheckedIOException} is thrown.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param options {@link LinkOption}s that indicate how symbolic links should be handled.
+	 * @return a lazily populated {@link Stream} of {@link FileEntry}s.
+	 * @throws IOException if an I/O error occurs when opening the directory.
+	 */
+	public static Stream<FileEntry> stream(Path directory, LinkOption... options)
+			throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		Preconditions.checkNotNull(options, "options should not be null");
+
+		final FileEntryIterator iterator = new FileEntryIterator(directory, options);
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false
+		).onClose(() -> {
+			try {
+				iterator.close();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		});
+	}
+
+	/**
+	 * Returns a list of entries within the specified directory along with their attributes,
+	 * which are read once as the entries are listed.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param options {@link LinkOption}s that indicate how symbolic links should be handled.
+	 * @return a mutable {@link List} of {@link FileEntry}s.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #stream(Path, LinkOption...)
+	 */
+	public static List<FileEntry> listWithAttributes(Path directory, LinkOption... options)
+			throws IOException {
+		try (Stream<FileEntry> stream = stream(directory, options)) {
+			return stream.collect(Collectors.toList());
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
 	/**
 	 * Returns whether the tree of the specified directory is empty, i.e. does not contain
 	 * any files and only contains directories.
+	 * Symbolic links are followed, and directories that have already been searched, e.g. because
+	 * a symbolic link points to one of their ancestors, are not searched again.
 	 *
 	 * @param directory a {@link Path} to a directory.
 	 * @return {@code true} if the tree of the specified directory is empty,
@@ -77,22 +152,84 @@ public final class NIOUtils {
 				Files.isDirectory(directory), "directory should be a directory"
 		);
 
-		List<Path> children = list(directory);
+		final Set<Object> visited = new HashSet<>();
+		visited.add(DirectoryEntries.getDirectoryKey(
+				directory, Files.readAttributes(directory, BasicFileAttributes.class)
+		));
+
+		//Each directory is closed before its subdirectories are opened, so only one directory
+		//is open at a time regardless of the depth of the tree.
+		final Deque<Path> directories = new ArrayDeque<>();
+		directories.push(directory);
+
+		while (!directories.isEmpty()) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directories.pop())) {
+				for (Path child : stream) {
+					final BasicFileAttributes attributes;
+
+					try {
+						attributes = DirectoryEntries.readAttributes(
+								stream, child, BasicFileAttributes.class
+						);
+					} catch (IOException ignored) {
+						//Like Files#isDirectory, we treat entries whose attributes cannot be
+						//read as non-directories.
+						return false;
+					}
+
+					if (!attributes.isDirectory()) {
+						return false;
+					}
+
+					if (visited.add(DirectoryEntries.getDirectoryKey(child, attributes))) {
+						directories.push(child);
+					}
+				}
+			} catch (DirectoryIteratorException ex) {
+				throw ex.getCause();
+			}
+		}
 
-		while (!children.isEmpty()) {
-			final List<Path> nextChildren = new ArrayList<>();
+		return true;
+	}
 
-			for (Path child : children) {
-				if (!Files.isDirectory(child)) {
-					return false;
-				}
+	/**
+	 * Returns whether the tree of the specified directory is empty, i.e. does not contain
+	 * any files and only contains directories.
+	 * Subdirectories are searched concurrently using up to the specified number of threads,
+	 * and the search stops as soon as any thread finds a file.
+	 * Symbolic links are followed, and directories that have already been searched, e.g. because
+	 * a symbolic link points to one of their ancestors, are not searched again.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param parallelism the maximum number of directories that may be searched at once.
+	 * @return {@code true} if the tree of the specified directory is empty,
+	 * or otherwise {@code false}.
+	 * @throws IOException if no file is found and an I/O error occurs when opening a directory.
+	 */
+	public static boolean isTreeEmpty(Path directory, int parallelism) throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		Preconditions.checkArgument(parallelism > 0, "parallelism should be positive");
 
-				nextChildren.addAll(list(child));
-			}
+		final Set<Object> visited = ConcurrentHashMap.newKeySet();
+		visited.add(DirectoryEntries.getDirectoryKey(
+				directory, Files.readAttributes(directory, BasicFileAttributes.class)
+		));
 
-			children = nextChildren;
+		final AtomicBoolean fileFound = new AtomicBoolean();
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		ForkJoinIO.invoke(
+				new ForkJoinTreeEmptyTask(directory, visited, fileFound, failures), parallelism
+		);
+
+		if (fileFound.get()) {
+			return false;
 		}
 
+		ForkJoinIO.throwIfFailed(failures, "Failed to search " + directory);
 		return true;
 	}
 
@@ -122,6 +259,8 @@ public final class NIOUtils {
 	 * @param targetDirectory a {@link Path} to a target directory.
 	 * @param options {@link CopyOption}s that specify how the files should be copied.
 	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the files have no common ancestor, e.g. because they
+	 * are on different drives.
 	 */
 	public static void copyPreservingDirectoryStructure(
 			Collection<Path> files, Path targetDirectory, CopyOption... options
@@ -139,7 +278,9 @@ public final class NIOUtils {
 
 		if (files.size() == 1) {
 			final Path file = files.iterator().next();
-			Files.copy(file, targetDirectory.resolve(file.getFileName()), options);
+			FileTransfer.copy(
+					file, PathUtils.resolve(targetDirectory, file.getFileName()), options
+			);
 			return;
 		}
 
@@ -147,11 +288,16 @@ public final class NIOUtils {
 				map(file -> file.toAbsolutePath().normalize()).
 				collect(Collectors.toList());
 		final Path commonAncestor = PathUtils.getCommonAncestor(normalized);
+		Preconditions.checkArgument(
+				commonAncestor != null,
+				"files should have a common ancestor, e.g. be on the same drive"
+		);
 
 		for (Path file : normalized) {
-			final Path target = targetDirectory.resolve(commonAncestor.relativize(file));
+			final Path target =
+					PathUtils.resolve(targetDirectory, commonAncestor.relativize(file));
 			ensureParentExists(target);
-			Files.copy(file, target, options);
+			FileTransfer.copy(file, target, options);
 		}
 	}
 
@@ -180,6 +326,84 @@ public final class NIOUtils {
 		);
 	}
 
+	/**
+	 * Recursively copies the specified source directory to the specified target location
+	 * according to the specified {@link CopyPlan}.
+	 * <p>
+	 * Files are copied concurrently by up to {@link CopyPlan#getParallelism()} threads.
+	 * Every directory is created before any files are copied into it.
+	 * Unlike {@link #copyDirectory(Path, Path, CopyOption...)}, this method does not stop at the
+	 * first failure; instead, it attempts to copy every file, then throws a single
+	 * {@link IOException} to which all failures have been added as suppressed exceptions.
+	 *
+	 * @param sourceDirectory a {@link Path} to the directory to copy.
+	 * @param targetDirectory a {@link Path} to the target location.
+	 * @param plan a {@link CopyPlan} that specifies how files should be copied.
+	 * @throws IOException if any file or directory could not be copied.
+	 */
+	public static void copyDirectory(Path sourceDirectory, Path targetDirectory, CopyPlan plan)
+			throws IOException {
+		Preconditions.checkNotNull(sourceDirectory, "sourceDirectory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(sourceDirectory), "sourceDirectory should be a directory"
+		);
+		Preconditions.checkNotNull(targetDirectory, "targetDirectory should not be null");
+		Preconditions.checkArgument(
+				!Files.isRegularFile(targetDirectory),
+				"targetDirectory should not be a file"
+		);
+		Preconditions.checkNotNull(plan, "plan should not be null");
+
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		ForkJoinIO.invoke(
+				new ForkJoinCopyTask(
+						sourceDirectory, targetDirectory, plan.getOptions(), failures
+				),
+				plan.getParallelism()
+		);
+		ForkJoinIO.throwIfFailed(
+				failures, "Failed to copy " + sourceDirectory + " to " + targetDirectory
+		);
+	}
+
+	/**
+	 * Makes the specified target directory a copy of the specified source directory, copying
+	 * only files that have changed.
+	 * <p>
+	 * By default, a file is considered unchanged if the target file has the same size and last
+	 * modified time. {@link SyncOptions#comparingContents(boolean)} can be used to instead
+	 * compare the contents of files that have the same size.
+	 * Files are copied with their attributes, so files that are copied are skipped by the next
+	 * sync. Symbolic links are copied rather than followed.
+	 * If {@link SyncOptions#deletingExtraneous(boolean)} is enabled, files and directories in the
+	 * target directory that do not exist in the source directory are deleted.
+	 *
+	 * @param sourceDirectory a {@link Path} to the directory to copy.
+	 * @param targetDirectory a {@link Path} to the target location.
+	 * @param options {@link SyncOptions} that specify how the directories should be compared.
+	 * @return a {@link SyncResult} that describes what was copied and deleted.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static SyncResult syncDirectory(
+			Path sourceDirectory, Path targetDirectory, SyncOptions options
+	) throws IOException {
+		Preconditions.checkNotNull(sourceDirectory, "sourceDirectory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(sourceDirectory), "sourceDirectory should be a directory"
+		);
+		Preconditions.checkNotNull(targetDirectory, "targetDirectory should not be null");
+		Preconditions.checkArgument(
+				!Files.isRegularFile(targetDirectory),
+				"targetDirectory should not be a file"
+		);
+		Preconditions.checkNotNull(options, "options should not be null");
+
+		final SyncFileVisitor visitor =
+				new SyncFileVisitor(sourceDirectory, targetDirectory, options);
+		Files.walkFileTree(sourceDirectory, visitor);
+		return visitor.getResult();
+	}
+
 	/**
 	 * Recursively deletes the specified directory.
 	 *
@@ -187,11 +411,37 @@ public final class NIOUtils {
 	 * @throws IOException if an I/O error occurs.
 	 */
 	public static void deleteDirectory(Path directory) throws IOException {
-		if (!list(directory).isEmpty()) {
-			deleteInDirectory(directory, path -> true);
-		}
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		DeleteFileVisitor.deleteTree(directory);
+	}
+
+	/**
+	 * Recursively deletes the specified directory using up to the specified number of threads.
+	 * <p>
+	 * Sibling subtrees are deleted concurrently, and files within a directory are deleted in
+	 * concurrent batches. Each directory is deleted after all of its children have been deleted.
+	 * This method does not stop at the first failure; instead, it deletes as much of the tree as
+	 * possible, then throws a single {@link IOException} to which all failures have been added
+	 * as suppressed exceptions.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param parallelism the maximum number of files or directories that may be deleted at once.
+	 * @throws IOException if any file or directory could not be deleted.
+	 */
+	public static void deleteDirectory(Path directory, int parallelism) throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS),
+				"directory should be a directory"
+		);
+		Preconditions.checkArgument(parallelism > 0, "parallelism should be positive");
 
-		Files.delete(directory);
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		ForkJoinIO.invoke(new ForkJoinDeleteTask(directory, failures), parallelism);
+		ForkJoinIO.throwIfFailed(failures, "Failed to delete " + directory);
 	}
 
 	/**
@@ -210,7 +460,31 @@ public final class NIOUtils {
 				Files.isDirectory(directory), "directory should be a directory"
 		);
 		Preconditions.checkNotNull(filter, "filter should not be null");
-		Files.walkFileTree(directory, new DeleteFileVisitor(directory, filter));
+		Files.walkFileTree(directory, new DeleteFileVisitor(directory, filter, false));
+	}
+
+	/**
+	 * Recursively deletes all files and directories in the specified directory that match the
+	 * specified filter.
+	 * <p>
+	 * Unlike {@link #deleteInDirectory(Path, Predicate)}, which tests a directory after its
+	 * contents have been filtered, this method tests each directory before its contents are
+	 * visited. If a directory matches the filter, it is deleted along with all of its contents,
+	 * which are never tested against the filter.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param filter a {@link Predicate} that determines which files and directories should be
+	 * deleted.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static void deleteTreesInDirectory(Path directory, Predicate<Path> filter)
+			throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		Preconditions.checkNotNull(filter, "filter should not be null");
+		Files.walkFileTree(directory, new DeleteFileVisitor(directory, filter, true));
 	}
 
 	/**
@@ -242,9 +516,40 @@ public final class NIOUtils {
 	 * specified directory.
 	 * @throws IOException if an I/O error occurs.
 	 * @see FileSystem#getPathMatcher(String)
+	 * @see #streamGlob(Path, String)
 	 */
-	@SuppressWarnings("PMD.CloseResource")
 	public static List<Path> matchGlob(Path directory, String glob) throws IOException {
+		try (Stream<Path> stream = streamGlob(directory, glob)) {
+			return stream.collect(Collectors.toList());
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	/**
+	 * Returns a lazily populated {@link Stream} of {@link Path}s that match the specified glob
+	 * relative to the specified directory.
+	 * <p>
+	 * The glob is split into its name segments. The walk starts at the directory denoted by the
+	 * leading literal segments, and subtrees that cannot contain any matches are not visited.
+	 * For example, for the glob {@code src/main/**}{@code /*.java}, only
+	 * {@code directory/src/main} is walked. Globs that cannot be split into name segments
+	 * (for example, because they contain an escape character or a name separator within a group)
+	 * are matched against every path in the tree.
+	 * <p>
+	 * The returned {@link Stream} holds open directories, so it should be closed, e.g. by using
+	 * a try-with-resources statement. If an I/O error occurs while the {@link Stream} is being
+	 * consumed, an {@link UncheckedIOException} is thrown.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param glob a glob. The Unix path separator ({@code /}) should be used instead of the
+	 * Windows path separator ({@code \}), as the backslash is used as an escape character.
+	 * @return a lazily populated {@link Stream} of {@link Path}s that match the specified glob
+	 * relative to the specified directory.
+	 * @throws IOException if an I/O error occurs when opening the directory.
+	 * @see FileSystem#getPathMatcher(String)
+	 */
+	public static Stream<Path> streamGlob(Path directory, String glob) throws IOException {
 		Preconditions.checkNotNull(directory, "directory should not be null");
 		Preconditions.checkArgument(
 				Files.isDirectory(directory), "directory should be a directory"
@@ -253,13 +558,19 @@ public final class NIOUtils {
 
 		directory = directory.toAbsolutePath().normalize();
 
-		final FileSystem fileSystem = directory.getFileSystem();
-		final PathMatcher matcher = fileSystem.getPathMatcher(
-				"glob:" + PathUtils.withUnixDirectorySeparators(directory) + "/" + glob
-		);
-
-		try (Stream<Path> stream = Files.walk(directory)) {
-			return stream.filter(matcher::matches).collect(Collectors.toList());
-		}
+		final GlobWalker walker =
+				new GlobWalker(directory, new GlobPattern(directory.getFileSystem(), glob));
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(
+						walker, Spliterator.DISTINCT | Spliterator.NONNULL
+				),
+				false
+		).onClose(() -> {
+			try {
+				walker.close();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		});
 	}
 }
@@ -0,0 +1,464 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A compact, append-only table of {@link Path}s for keeping large file inventories in memory.
+ * <p>
+ * Each {@link Path} that is added is given an {@code int} ID, as are its ancestors. An entry only
+ * stores the ID of its parent and the ID of its name, and each distinct name is stored once as
+ * UTF-8 in a shared byte array, so a {@link Path} costs about eight bytes plus the size of any
+ * names that have not been seen before, however deep it is. {@link Path}s are only created
+ * when they are requested with {@link #toPath(int)}.
+ * <p>
+ * {@link Path}s are normalized when they are added and compared by their names, which are
+ * compared case-sensitively. The {@link Path}s from a directory walk, such as those returned by
+ * {@link NIOUtils#streamGlob(Path, String)}, can be added with {@link #addAll(Stream)}.
+ * <p>
+ * {@link PathTable}s are not thread-safe.
+ */
+public final class PathTable {
+	private static final int NO_PARENT = -1;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final FileSystem fileSystem;
+	private final String separator;
+
+	private int size;
+	private int[] parents = new int[INITIAL_CAPACITY];
+	private int[] names = new int[INITIAL_CAPACITY];
+	//Top-level entries that are roots, after which no separator is added.
+	private final BitSet roots = new BitSet();
+	//Open-addressing hash table of entry IDs plus one, keyed by parent and name.
+	private int[] entrySlots = new int[INITIAL_CAPACITY * 2];
+
+	private int nameCount;
+	//The names are stored back to back, and name i spans nameOffsets[i] to nameOffsets[i + 1].
+	private byte[] nameBytes = new byte[INITIAL_CAPACITY * 8];
+	private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+	private int[] nameHashes = new int[INITIAL_CAPACITY];
+	//Open-addressing hash table of name IDs plus one, keyed by name.
+	private int[] nameSlots = new int[INITIAL_CAPACITY * 2];
+
+	//Consecutive paths from a directory walk usually have the same parent.
+	private @Nullable Path lastParent;
+	private int lastParentID = NO_PARENT;
+
+	/**
+	 * Creates an empty {@link PathTable} for {@link Path}s on the default file system.
+	 */
+	public PathTable() {
+		this(FileSystems.getDefault());
+	}
+
+	/**
+	 * Creates an empty {@link PathTable} for {@link Path}s on the specified file system.
+	 *
+	 * @param fileSystem a {@link FileSystem}.
+	 */
+	public PathTable(FileSystem fileSystem) {
+		Preconditions.checkNotNull(fileSystem, "fileSystem should not be null");
+		this.fileSystem = fileSystem;
+		separator = fileSystem.getSeparator();
+	}
+
+	/**
+	 * Returns the file system of the {@link Path}s in this {@link PathTable}.
+	 *
+	 * @return a {@link FileSystem}.
+	 */
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * Returns the number of entries in this {@link PathTable}, including the ancestors of the
+	 * {@link Path}s that have been added. The IDs of the entries are {@code 0} to
+	 * {@code size() - 1}.
+	 *
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of distinct names in this {@link PathTable}.
+	 *
+	 * @return the number of distinct names.
+	 */
+	public int getNameCount() {
+		return nameCount;
+	}
+
+	/**
+	 * Adds a {@link Path} and its ancestors to this {@link PathTable}.
+	 *
+	 * @param path a {@link Path} on the file system of this {@link PathTable}.
+	 * @return the ID of the {@link Path}'s entry.
+	 */
+	public int add(Path path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		Preconditions.checkArgument(
+				path.getFileSystem() == fileSystem,
+				"path should be on the file system of this PathTable"
+		);
+
+		path = path.normalize();
+		final Path parent = path.getParent();
+		final Path fileName = path.getFileName();
+
+		if (parent != null && fileName != null && parent.equals(lastParent)) {
+			return getOrAddEntry(lastParentID, getOrAddName(fileName.toString()), false);
+		}
+
+		final Path root = path.getRoot();
+		int id = NO_PARENT;
+
+		if (root != null) {
+			id = getOrAddEntry(NO_PARENT, getOrAddName(root.toString()), true);
+		}
+
+		final int nameCount = path.getNameCount();
+
+		//The root of a path such as "/" has a name count of zero but an empty file name.
+		if (fileName == null) {
+			return id;
+		}
+
+		for (int i = 0; i < nameCount; i++) {
+			if (i == nameCount - 1 && parent != null) {
+				lastParent = parent;
+				lastParentID = id;
+			}
+
+			id = getOrAddEntry(id, getOrAddName(path.getName(i).toString()), false);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Adds {@link Path}s and their ancestors to this {@link PathTable}.
+	 * The {@link Stream} is not closed.
+	 *
+	 * @param paths a {@link Stream} of {@link Path}s on the file system of this
+	 * {@link PathTable}.
+	 * @return the IDs of the entries of the {@link Path}s in the order they were added.
+	 */
+	public int[] addAll(Stream<? extends Path> paths) {
+		Preconditions.checkNotNull(paths, "paths should not be null");
+
+		int[] ids = new int[INITIAL_CAPACITY];
+		int count = 0;
+
+		for (Iterator<? extends Path> it = paths.iterator(); it.hasNext(); ) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, grow(count));
+			}
+
+			ids[count++] = add(it.next());
+		}
+
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * Returns the ID of the entry of the specified {@link Path}.
+	 *
+	 * @param path a {@link Path}.
+	 * @return the ID of the entry of the normalized form of the specified {@link Path},
+	 * or {@code -1} if it is not in this {@link PathTable}.
+	 */
+	public int indexOf(Path path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+
+		if (path.getFileSystem() != fileSystem) {
+			return -1;
+		}
+
+		path = path.normalize();
+		final Path root = path.getRoot();
+		int id = NO_PARENT;
+
+		if (root != null) {
+			id = findEntry(NO_PARENT, findName(root.toString()), true);
+
+			if (id == -1) {
+				return -1;
+			}
+		}
+
+		if (path.getFileName() == null) {
+			return id;
+		}
+
+		for (int i = 0; i < path.getNameCount(); i++) {
+			id = findEntry(id, findName(path.getName(i).toString()), false);
+
+			if (id == -1) {
+				return -1;
+			}
+		}
+
+		return id;
+	}
+
+	/**
+	 * Returns whether this {@link PathTable} contains the specified {@link Path}.
+	 *
+	 * @param path a {@link Path}.
+	 * @return {@code true} if the normalized form of the specified {@link Path} is in this
+	 * {@link PathTable}, or otherwise {@code false}.
+	 */
+	public boolean contains(Path path) {
+		return indexOf(path) != -1;
+	}
+
+	/**
+	 * Returns the ID of the parent of an entry.
+	 *
+	 * @param id an entry ID.
+	 * @return the ID of the parent of the entry, or {@code -1} if the entry is a root or a
+	 * relative {@link Path} with a single name.
+	 */
+	public int getParent(int id) {
+		Preconditions.checkElementIndex(id, size, "id");
+		return parents[id];
+	}
+
+	/**
+	 * Returns the name of an entry. The name of a root entry is the string representation of the
+	 * root, e.g. {@code /}.
+	 *
+	 * @param id an entry ID.
+	 * @return the name of the entry.
+	 */
+	public String getFileName(int id) {
+		Preconditions.checkElementIndex(id, size, "id");
+		final int name = names[id];
+		return new String(
+				nameBytes, nameOffsets[name], nameOffsets[name + 1] - nameOffsets[name],
+				StandardCharsets.UTF_8
+		);
+	}
+
+	/**
+	 * Creates the {@link Path} of an entry.
+	 *
+	 * @param id an entry ID.
+	 * @return the {@link Path} of the entry.
+	 */
+	public Path toPath(int id) {
+		Preconditions.checkElementIndex(id, size, "id");
+
+		int depth = 0;
+
+		for (int ancestor = id; ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+			depth++;
+		}
+
+		final int[] chain = new int[depth];
+
+		for (int ancestor = id; ancestor != NO_PARENT; ancestor = parents[ancestor]) {
+			chain[--depth] = ancestor;
+		}
+
+		final StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < chain.length; i++) {
+			if (i != 0 && !roots.get(chain[i - 1])) {
+				builder.append(separator);
+			}
+
+			builder.append(getFileName(chain[i]));
+		}
+
+		return fileSystem.getPath(builder.toString());
+	}
+
+	private int getOrAddEntry(int parent, int name, boolean root) {
+		final int slot = getEntrySlot(parent, name, root);
+
+		if (entrySlots[slot] != 0) {
+			return entrySlots[slot] - 1;
+		}
+
+		if (size == parents.length) {
+			parents = Arrays.copyOf(parents, grow(size));
+			names = Arrays.copyOf(names, parents.length);
+		}
+
+		final int id = size++;
+		parents[id] = parent;
+		names[id] = name;
+		roots.set(id, root);
+		entrySlots[slot] = id + 1;
+
+		if (size * 2 > entrySlots.length) {
+			entrySlots = new int[entrySlots.length * 2];
+
+			for (int i = 0; i < size; i++) {
+				int newSlot = mix(parents[i] * 31 + names[i]) & (entrySlots.length - 1);
+
+				while (entrySlots[newSlot] != 0) {
+					newSlot = (newSlot + 1) & (entrySlots.length - 1);
+				}
+
+				entrySlots[newSlot] = i + 1;
+			}
+		}
+
+		return id;
+	}
+
+	private int findEntry(int parent, int name, boolean root) {
+		return name == -1 ? -1 : entrySlots[getEntrySlot(parent, name, root)] - 1;
+	}
+
+	//Returns the slot of the matching entry, or the empty slot in which it should be added.
+	private int getEntrySlot(int parent, int name, boolean root) {
+		final int mask = entrySlots.length - 1;
+		int slot = mix(parent * 31 + name) & mask;
+
+		for (int entry; (entry = entrySlots[slot]) != 0; slot = (slot + 1) & mask) {
+			if (parents[entry - 1] == parent && names[entry - 1] == name &&
+					roots.get(entry - 1) == root) {
+				break;
+			}
+		}
+
+		return slot;
+	}
+
+	private int getOrAddName(String name) {
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		final int hash = mix(Arrays.hashCode(bytes));
+		final int slot = getNameSlot(bytes, hash);
+
+		if (nameSlots[slot] != 0) {
+			return nameSlots[slot] - 1;
+		}
+
+		if (nameCount == nameHashes.length) {
+			nameHashes = Arrays.copyOf(nameHashes, grow(nameCount));
+			nameOffsets = Arrays.copyOf(nameOffsets, nameHashes.length + 1);
+		}
+
+		final int offset = nameOffsets[nameCount];
+
+		if (bytes.length > nameBytes.length - offset) {
+			Preconditions.checkState(
+					bytes.length <= Integer.MAX_VALUE - 8 - offset,
+					"PathTable names should not exceed 2 GiB"
+			);
+			nameBytes = Arrays.copyOf(
+					nameBytes, Math.max(grow(nameBytes.length), offset + bytes.length)
+			);
+		}
+
+		System.arraycopy(bytes, 0, nameBytes, offset, bytes.length);
+
+		final int id = nameCount++;
+		nameOffsets[nameCount] = offset + bytes.length;
+		nameHashes[id] = hash;
+		nameSlots[slot] = id + 1;
+
+		if (nameCount * 2 > nameSlots.length) {
+			nameSlots = new int[nameSlots.length * 2];
+
+			for (int i = 0; i < nameCount; i++) {
+				int newSlot = nameHashes[i] & (nameSlots.length - 1);
+
+				while (nameSlots[newSlot] != 0) {
+					newSlot = (newSlot + 1) & (nameSlots.length - 1);
+				}
+
+				nameSlots[newSlot] = i + 1;
+			}
+		}
+
+		return id;
+	}
+
+	private int findName(String name) {
+		final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		return nameSlots[getNameSlot(bytes, mix(Arrays.hashCode(bytes)))] - 1;
+	}
+
+	//Returns the slot of the matching name, or the empty slot in which it should be added.
+	private int getNameSlot(byte[] bytes, int hash) {
+		final int mask = nameSlots.length - 1;
+		int slot = hash & mask;
+
+		for (int id; (id = nameSlots[slot]) != 0; slot = (slot + 1) & mask) {
+			if (nameHashes[id - 1] == hash && nameEquals(id - 1, bytes)) {
+				break;
+			}
+		}
+
+		return slot;
+	}
+
+	private boolean nameEquals(int id, byte[] bytes) {
+		final int offset = nameOffsets[id];
+
+		if (nameOffsets[id + 1] - offset != bytes.length) {
+			return false;
+		}
+
+		for (int i = 0; i < bytes.length; i++) {
+			if (nameBytes[offset + i] != bytes[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int grow(int length) {
+		//Grows by half, but never past the largest array size that most VMs allow.
+		final int newLength = length + (length >> 1) + 1;
+		return newLength < 0 || newLength > Integer.MAX_VALUE - 8 ?
+				Integer.MAX_VALUE - 8 : newLength;
+	}
+
+	private static int mix(int hash) {
+		//Spreads the bits so that linear probing works with power of two table sizes.
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A set of root directories that can quickly find out which root, if any, contains a
+ * {@link Path}. A root contains itself and all of its descendants.
+ * <p>
+ * Roots are stored in a radix tree that is keyed by the characters of their normalized string
+ * representations, and a match is only accepted at a name separator, so {@code /a/bc} is not
+ * contained by {@code /a/b}. A query therefore takes time proportional to the length of the
+ * {@link Path} rather than to the number of roots, and it does not allocate apart from the
+ * {@link Path}'s string representation, which the default file system creates once and caches.
+ * <p>
+ * {@link Path}s are compared by their string representations rather than with
+ * {@link Path#equals(Object)}, so on file systems with case-insensitive names, the {@link Path}s
+ * that are queried should use the same case as the roots. Queried {@link Path}s are not
+ * normalized, and relative {@link Path}s are only contained by relative roots.
+ * <p>
+ * {@link PathTrie}s are thread-safe. Roots are added under a lock, and nodes that might be
+ * visited by a concurrent query are replaced rather than modified, so queries never block.
+ */
+public final class PathTrie {
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private final FileSystem fileSystem;
+	private final char separator;
+	private final Node head = new Node("", NO_CHILDREN);
+	private volatile int size;
+
+	/**
+	 * Creates an empty {@link PathTrie} for {@link Path}s on the default file system.
+	 */
+	public PathTrie() {
+		this(FileSystems.getDefault());
+	}
+
+	/**
+	 * Creates an empty {@link PathTrie} for {@link Path}s on the specified file system.
+	 *
+	 * @param fileSystem a {@link FileSystem}.
+	 */
+	public PathTrie(FileSystem fileSystem) {
+		Preconditions.checkNotNull(fileSystem, "fileSystem should not be null");
+		Preconditions.checkArgument(
+				fileSystem.getSeparator().length() == 1,
+				"fileSystem should have a single-character separator"
+		);
+		this.fileSystem = fileSystem;
+		separator = fileSystem.getSeparator().charAt(0);
+	}
+
+	/**
+	 * Returns the file system of the {@link Path}s in this {@link PathTrie}.
+	 *
+	 * @return a {@link FileSystem}.
+	 */
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * Returns the number of roots in this {@link PathTrie}.
+	 *
+	 * @return the number of roots.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds a root to this {@link PathTrie}. The root is normalized before it is added.
+	 *
+	 * @param root a {@link Path} on the file system of this {@link PathTrie}.
+	 * @return {@code true} if the root was added, or {@code false} if it was already present.
+	 */
+	public synchronized boolean addRoot(Path root) {
+		Preconditions.checkNotNull(root, "root should not be null");
+		Preconditions.checkArgument(
+				root.getFileSystem() == fileSystem,
+				"root should be on the file system of this PathTrie"
+		);
+
+		root = root.normalize();
+		final String key = root.toString();
+		Node node = head;
+		int index = 0;
+
+		while (index < key.length()) {
+			final Node[] children = node.children;
+			final int childIndex = find(children, key.charAt(index));
+
+			if (childIndex < 0) {
+				final Node leaf = new Node(key.substring(index), NO_CHILDREN);
+				leaf.root = root;
+				node.children = insert(children, -childIndex - 1, leaf);
+				size++;
+				return true;
+			}
+
+			Node child = children[childIndex];
+			final String label = child.label;
+			final int commonLength = getCommonLength(label, key, index);
+
+			if (commonLength < label.length()) {
+				//The child might be being visited by a query, so rather than shortening its label,
+				//it is replaced by a node for the common part with a copy of the child under it.
+				final Node tail = new Node(label.substring(commonLength), child.children);
+				tail.root = child.root;
+				child = new Node(label.substring(0, commonLength), new Node[] {tail});
+
+				final Node[] newChildren = children.clone();
+				newChildren[childIndex] = child;
+				node.children = newChildren;
+			}
+
+			node = child;
+			index += commonLength;
+		}
+
+		if (node.root != null) {
+			return false;
+		}
+
+		node.root = root;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Returns the closest root in this {@link PathTrie} that contains the specified {@link Path}.
+	 *
+	 * @param path a normalized {@link Path}.
+	 * @return the closest root that is equal to or an ancestor of the specified {@link Path},
+	 * or {@code null} if there is none.
+	 */
+	public @Nullable Path getContainingRoot(Path path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return findRoot(path, true);
+	}
+
+	/**
+	 * Returns whether any root in this {@link PathTrie} contains the specified {@link Path}.
+	 *
+	 * @param path a normalized {@link Path}.
+	 * @return {@code true} if any root is equal to or an ancestor of the specified {@link Path},
+	 * or otherwise {@code false}.
+	 */
+	public boolean isUnderAnyRoot(Path path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return findRoot(path, false) != null;
+	}
+
+	private @Nullable Path findRoot(Path path, boolean closest) {
+		if (path.getFileSystem() != fileSystem) {
+			return null;
+		}
+
+		final String key = path.toString();
+		Path containingRoot = null;
+		Node node = head;
+		int index = 0;
+
+		while (true) {
+			final Path root = node.root;
+
+			if (root != null && isNameBoundary(key, index)) {
+				if (!closest) {
+					return root;
+				}
+
+				containingRoot = root;
+			}
+
+			if (index == key.length()) {
+				return containingRoot;
+			}
+
+			final Node[] children = node.children;
+			final int childIndex = find(children, key.charAt(index));
+
+			if (childIndex < 0) {
+				return containingRoot;
+			}
+
+			node = children[childIndex];
+			final String label = node.label;
+
+			if (!key.regionMatches(index, label, 0, label.length())) {
+				return containingRoot;
+			}
+
+			index += label.length();
+		}
+	}
+
+	private boolean isNameBoundary(String key, int index) {
+		//A root that ends with a separator, such as "/", ends at a boundary itself.
+		return index == key.length() || key.charAt(index) == separator ||
+				(index != 0 && key.charAt(index - 1) == separator);
+	}
+
+	private static int find(Node[] children, char character) {
+		int low = 0;
+		int high = children.length - 1;
+
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final char middleCharacter = children[middle].label.charAt(0);
+
+			if (middleCharacter < character) {
+				low = middle + 1;
+			} else if (middleCharacter > character) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+
+		return -(low + 1);
+	}
+
+	private static Node[] insert(Node[] children, int index, Node child) {
+		final Node[] newChildren = new Node[children.length + 1];
+		System.arraycopy(children, 0, newChildren, 0, index);
+		newChildren[index] = child;
+		System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+		return newChildren;
+	}
+
+	private static int getCommonLength(String label, String key, int offset) {
+		final int maxLength = Math.min(label.length(), key.length() - offset);
+		int length = 0;
+
+		while (length < maxLength && label.charAt(length) == key.charAt(offset + length)) {
+			length++;
+		}
+
+		return length;
+	}
+
+	private static final class Node {
+		final String label;
+		//Children are sorted by the first character of their labels, which are all different.
+		//The array is never modified after it is published.
+		volatile Node[] children;
+		volatile @Nullable Path root;
+
+		Node(String label, Node[] children) {
+			this.label = label;
+			this.children = children;
+		}
+	}
+}
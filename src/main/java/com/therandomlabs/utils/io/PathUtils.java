@@ -23,38 +23,103 @@
 
 package com.therandomlabs.utils.io;
 
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.Objects;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Contains utility methods for manipulating paths. No methods in this class access the filesystem.
  */
 public final class PathUtils {
+	//Returned by findInvalidIndex if a path is valid.
+	private static final int VALID = -2;
+	//Returned by the character checks if a path has to be parsed to find out whether it is valid.
+	private static final int UNDECIDED = -3;
+
+	private static final String WINDOWS_RESERVED_CHARACTERS = "<>:\"|?*";
+
 	private PathUtils() {}
 
 	/**
-	 * Returns whether the specified string is a valid path.
+	 * Returns whether the specified string is a valid path on the default file system.
 	 *
 	 * @param path a string.
 	 * @return {@code true} if the specified string is a valid path, or otherwise {@code false}.
+	 * @see #isValid(FileSystem, String)
 	 */
 	public static boolean isValid(String path) {
-		if (path == null) {
-			return false;
-		}
+		return isValid(FileSystems.getDefault(), path);
+	}
 
-		try {
-			Paths.get(path);
-			return true;
-		} catch (InvalidPathException ignored) {}
+	/**
+	 * Returns whether the specified string is a valid path on the specified file system.
+	 * <p>
+	 * On the default file system, the characters of the path are checked against the rules of
+	 * the platform, so that most paths are validated without being parsed and no exception is
+	 * thrown for invalid paths. Paths that cannot be validated this way, such as Windows UNC
+	 * paths and paths on other file systems, are parsed using {@link FileSystem#getPath(String,
+	 * String...)}.
+	 *
+	 * @param fileSystem a {@link FileSystem}.
+	 * @param path a string.
+	 * @return {@code true} if the specified string is a valid path, or otherwise {@code false}.
+	 */
+	public static boolean isValid(FileSystem fileSystem, String path) {
+		Preconditions.checkNotNull(fileSystem, "fileSystem should not be null");
+		return path != null && findInvalidIndex(fileSystem, path) == VALID;
+	}
 
-		return false;
+	/**
+	 * Validates the specified strings as paths on the default file system.
+	 *
+	 * @param paths a collection of strings.
+	 * @return an {@link ImmutableMap} of the specified strings that are not valid paths to the
+	 * index of the first invalid character in each, in iteration order.
+	 * @see #validateAll(FileSystem, Collection)
+	 */
+	public static ImmutableMap<String, Integer> validateAll(Collection<String> paths) {
+		return validateAll(FileSystems.getDefault(), paths);
+	}
+
+	/**
+	 * Validates the specified strings as paths on the specified file system in the same way as
+	 * {@link #isValid(FileSystem, String)}.
+	 *
+	 * @param fileSystem a {@link FileSystem}.
+	 * @param paths a collection of strings.
+	 * @return an {@link ImmutableMap} of the specified strings that are not valid paths to the
+	 * index of the first invalid character in each, or {@code -1} if the file system does not
+	 * report one, in iteration order.
+	 */
+	public static ImmutableMap<String, Integer> validateAll(
+			FileSystem fileSystem, Collection<String> paths
+	) {
+		Preconditions.checkNotNull(fileSystem, "fileSystem should not be null");
+		Preconditions.checkNotNull(paths, "paths should not be null");
+
+		//A LinkedHashMap is used so that duplicate strings are allowed.
+		final Map<String, Integer> invalidPaths = new LinkedHashMap<>();
+
+		for (String path : paths) {
+			Preconditions.checkNotNull(path, "paths should not contain null elements");
+			final int index = findInvalidIndex(fileSystem, path);
+
+			if (index != VALID) {
+				invalidPaths.put(path, index);
+			}
+		}
+
+		return ImmutableMap.copyOf(invalidPaths);
 	}
 
 	/**
@@ -93,60 +158,161 @@ public final class PathUtils {
 
 	/**
 	 * Returns the closest common ancestor {@link Path} of two {@link Path}s.
+	 * The {@link Path}s are normalized before they are compared, and the returned {@link Path}
+	 * is associated with the same {@link FileSystem} as {@code path1}.
 	 *
 	 * @param path1 a {@link Path}.
 	 * @param path2 another {@link Path}.
-	 * @return the closest common ancestor {@link Path} of two {@link Path}s.
+	 * @return the closest common ancestor {@link Path} of two {@link Path}s, or {@code null} if
+	 * they have no common ancestor, e.g. if they have different roots.
 	 */
-	@SuppressWarnings("GrazieInspection")
-	public static Path getCommonAncestor(Path path1, Path path2) {
+	public static @Nullable Path getCommonAncestor(Path path1, Path path2) {
 		Preconditions.checkNotNull(path1, "path1 should not be null");
 		Preconditions.checkNotNull(path2, "path2 should not be null");
 
-		//Taken from https://stackoverflow.com/a/54596369
-
 		if (path1.equals(path2)) {
 			return path1;
 		}
 
-		path1 = path1.normalize();
-		path2 = path2.normalize();
-
-		final int smallestNameCount = Math.min(path1.getNameCount(), path2.getNameCount());
-
-		for (int i = smallestNameCount; i > 0; i--) {
-			final Path subpath1 = path1.subpath(0, i);
-
-			if (subpath1.equals(path2.subpath(0, i))) {
-				//Since Path#subpath strips away the initial "/", we prepend Path#getRoot.
-				return Paths.get(Objects.toString(path1.getRoot(), "") + subpath1.toString());
-			}
-		}
-
-		return path1.getRoot();
+		return narrowCommonAncestor(path1.normalize(), path2.normalize());
 	}
 
 	/**
 	 * Returns the closest common ancestor {@link Path} of a collection of {@link Path}s.
+	 * The {@link Path}s are normalized before they are compared, and the returned {@link Path}
+	 * is associated with the same {@link FileSystem} as the first {@link Path}.
 	 *
 	 * @param paths a collection of {@link Path}s.
-	 * @return the closest common ancestor {@link Path} of the specified {@link Path}s.
+	 * @return the closest common ancestor {@link Path} of the specified {@link Path}s, or
+	 * {@code null} if they have no common ancestor, e.g. if they have different roots.
 	 */
-	@SuppressWarnings("NullAway")
-	public static Path getCommonAncestor(Collection<Path> paths) {
+	public static @Nullable Path getCommonAncestor(Collection<Path> paths) {
 		Preconditions.checkNotNull(paths, "paths should not be null");
 		Preconditions.checkArgument(paths.size() > 1, "paths should contain at least two elements");
 
-		Path ancestor = null;
+		final Iterator<Path> iterator = paths.iterator();
+		@Nullable Path ancestor = iterator.next().normalize();
+
+		//The ancestor only ever gets shorter, so each path is compared against it in place
+		//and at most one Path is created per name that is removed from it.
+		while (ancestor != null && iterator.hasNext()) {
+			ancestor = narrowCommonAncestor(ancestor, iterator.next().normalize());
+		}
+
+		return ancestor;
+	}
 
-		//We use ImmutableSet#copyOf to remove duplicates.
-		for (Path path : ImmutableSet.copyOf(paths)) {
-			ancestor = ancestor == null ? path : getCommonAncestor(ancestor, path);
+	private static @Nullable Path narrowCommonAncestor(@Nullable Path ancestor, Path path) {
+		while (ancestor != null && !path.startsWith(ancestor)) {
+			ancestor = ancestor.getParent();
 		}
 
 		return ancestor;
 	}
 
+	private static int findInvalidIndex(FileSystem fileSystem, String path) {
+		int index = UNDECIDED;
+
+		if (fileSystem == FileSystems.getDefault()) {
+			index = "\\".equals(fileSystem.getSeparator()) ?
+					findInvalidWindowsIndex(path) : findInvalidUnixIndex(path);
+		}
+
+		if (index != UNDECIDED) {
+			return index;
+		}
+
+		try {
+			fileSystem.getPath(path);
+			return VALID;
+		} catch (InvalidPathException ex) {
+			return ex.getIndex();
+		}
+	}
+
+	/**
+	 * Checks a path against the rules of the default file system on Unix-like platforms, which
+	 * only disallow the null character. Non-ASCII characters are left to the parser, as they are
+	 * only valid if they can be encoded in the platform encoding.
+	 */
+	static int findInvalidUnixIndex(String path) {
+		boolean ascii = true;
+
+		for (int i = 0; i < path.length(); i++) {
+			final char character = path.charAt(i);
+
+			if (character == '\u0000') {
+				return i;
+			}
+
+			if (character >= 0x80) {
+				ascii = false;
+			}
+		}
+
+		return ascii ? VALID : UNDECIDED;
+	}
+
+	/**
+	 * Checks a path against the rules of the default file system on Windows, which disallow
+	 * control characters and reserved characters other than the colon after a drive letter.
+	 * UNC paths and names with trailing spaces are left to the parser.
+	 */
+	static int findInvalidWindowsIndex(String path) {
+		if (path.length() > 1 && isWindowsSeparator(path.charAt(0)) &&
+				isWindowsSeparator(path.charAt(1))) {
+			return UNDECIDED;
+		}
+
+		final char driveLetter = path.isEmpty() ? ' ' : (char) (path.charAt(0) | 0x20);
+		final boolean drive = path.length() > 1 && path.charAt(1) == ':' &&
+				driveLetter >= 'a' && driveLetter <= 'z';
+		char previous = IOConstants.WINDOWS_DIRECTORY_SEPARATOR;
+
+		for (int i = drive ? 2 : 0; i < path.length(); i++) {
+			final char character = path.charAt(i);
+
+			if (character < ' ' || WINDOWS_RESERVED_CHARACTERS.indexOf(character) != -1) {
+				return i;
+			}
+
+			if (previous == ' ' && isWindowsSeparator(character)) {
+				return UNDECIDED;
+			}
+
+			previous = character;
+		}
+
+		return previous == ' ' ? UNDECIDED : VALID;
+	}
+
+	private static boolean isWindowsSeparator(char character) {
+		return character == IOConstants.WINDOWS_DIRECTORY_SEPARATOR ||
+				character == IOConstants.UNIX_DIRECTORY_SEPARATOR;
+	}
+
+	/**
+	 * Resolves the specified relative {@link Path} against the specified base {@link Path}.
+	 * Unlike {@link Path#resolve(Path)}, this method also works when the two {@link Path}s are
+	 * associated with different providers, e.g. when copying from a zip file to the default
+	 * filesystem.
+	 *
+	 * @param base a base {@link Path}.
+	 * @param relative a relative {@link Path}.
+	 * @return the resolved {@link Path}.
+	 */
+	static Path resolve(Path base, Path relative) {
+		if (base.getFileSystem().provider() == relative.getFileSystem().provider()) {
+			return base.resolve(relative);
+		}
+
+		for (Path name : relative) {
+			base = base.resolve(name.toString());
+		}
+
+		return base;
+	}
+
 	/**
 	 * Returns the string representation of the specified {@link Path} with Unix directory
 	 * separators.
@@ -174,4 +340,57 @@ public final class PathUtils {
 				IOConstants.WINDOWS_DIRECTORY_SEPARATOR, IOConstants.UNIX_DIRECTORY_SEPARATOR
 		);
 	}
+
+	/**
+	 * Returns the specified path with Unix directory separators, redundant separators collapsed
+	 * and {@code .} names removed, e.g. {@code a\.\b//c} becomes {@code a/b/c}.
+	 * A leading pair of separators, which denotes a UNC path on Windows, and a trailing separator
+	 * are kept, and a path that only consists of {@code .} names becomes {@code .}.
+	 * {@code ..} names are left as they are.
+	 * <p>
+	 * If the path is already normalized, its string representation is returned without being
+	 * copied, so the specified {@link String} itself is returned if the path is a {@link String}.
+	 *
+	 * @param path a path.
+	 * @return the normalized path.
+	 * @see IOConstants#UNIX_DIRECTORY_SEPARATOR
+	 */
+	public static String normalizeSeparators(CharSequence path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return SeparatorNormalizer.normalize(path);
+	}
+
+	/**
+	 * Normalizes a path in a {@code char} array in place in the same way as
+	 * {@link #normalizeSeparators(CharSequence)}. The normalized path is never longer than the
+	 * original path, and the array is not written to if the path is already normalized.
+	 *
+	 * @param path a {@code char} array that contains a path.
+	 * @param offset the index of the first character of the path.
+	 * @param length the length of the path.
+	 * @return the length of the normalized path, which starts at {@code offset}.
+	 */
+	public static int normalizeSeparators(char[] path, int offset, int length) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		Preconditions.checkPositionIndexes(offset, offset + length, path.length);
+		return SeparatorNormalizer.normalize(path, offset, length);
+	}
+
+	/**
+	 * Normalizes the path between the position and the limit of a {@link ByteBuffer} in place in
+	 * the same way as {@link #normalizeSeparators(CharSequence)}, and sets the limit to the end
+	 * of the normalized path. The path should be encoded in UTF-8 or another encoding in which
+	 * separators and periods are single bytes that never occur within other characters.
+	 * The buffer is not written to if the path is already normalized, so read-only buffers can
+	 * be checked.
+	 *
+	 * @param path a {@link ByteBuffer} that contains a path.
+	 * @return the length of the normalized path.
+	 * @throws java.nio.ReadOnlyBufferException if the buffer is read-only and the path is not
+	 * normalized.
+	 */
+	public static int normalizeSeparators(ByteBuffer path) {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return SeparatorNormalizer.normalize(path);
+	}
 }
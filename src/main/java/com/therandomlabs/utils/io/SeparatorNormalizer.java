@@ -0,0 +1,321 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Normalizes path strings to Unix directory separators, collapsing redundant separators and
+ * removing {@code .} names in the same pass. A leading pair of separators, which denotes a UNC
+ * path on Windows, is kept, and a path that only consists of {@code .} names becomes {@code .}.
+ * <p>
+ * Paths are scanned before they are normalized so that normalized paths are returned as they
+ * are without being copied or written to. {@link ByteBuffer}s are scanned eight bytes at a time
+ * for separators.
+ */
+final class SeparatorNormalizer {
+	private static final char SEPARATOR = IOConstants.UNIX_DIRECTORY_SEPARATOR;
+	private static final char WINDOWS_SEPARATOR = IOConstants.WINDOWS_DIRECTORY_SEPARATOR;
+
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+	//The separators repeated in every byte of a long.
+	private static final long SEPARATORS = ONES * SEPARATOR;
+	private static final long WINDOWS_SEPARATORS = ONES * WINDOWS_SEPARATOR;
+
+	private SeparatorNormalizer() {}
+
+	static String normalize(CharSequence path) {
+		if (isNormalized(path)) {
+			return path.toString();
+		}
+
+		final char[] chars = new char[path.length()];
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = path.charAt(i);
+		}
+
+		return new String(chars, 0, normalizeNames(chars, 0, chars.length));
+	}
+
+	static int normalize(char[] path, int offset, int length) {
+		return isNormalized(path, offset, length) ? length : normalizeNames(path, offset, length);
+	}
+
+	static int normalize(ByteBuffer path) {
+		final int start = path.position();
+		final int end = path.limit();
+
+		if (isNormalized(path, start, end)) {
+			return end - start;
+		}
+
+		final int length = normalizeNames(path, start, end);
+		path.limit(start + length);
+		return length;
+	}
+
+	private static boolean isNormalized(String path) {
+		//String#indexOf is an intrinsic that scans several characters at a time.
+		return path.indexOf(WINDOWS_SEPARATOR) == -1 && path.indexOf("//", 1) == -1 &&
+				path.indexOf("/./") == -1 && !path.startsWith("./") && !path.endsWith("/.");
+	}
+
+	private static boolean isNormalized(CharSequence path) {
+		if (path instanceof String) {
+			return isNormalized((String) path);
+		}
+
+		final int length = path.length();
+		int index = 0;
+
+		while (index < length && isSeparator(path.charAt(index))) {
+			if (path.charAt(index) == WINDOWS_SEPARATOR || index == 2) {
+				return false;
+			}
+
+			index++;
+		}
+
+		//The index is at the start of a name.
+		while (index < length) {
+			if (path.charAt(index) == '.' && length != 1 &&
+					(index + 1 == length || isSeparator(path.charAt(index + 1)))) {
+				return false;
+			}
+
+			while (index < length && !isSeparator(path.charAt(index))) {
+				index++;
+			}
+
+			if (index == length) {
+				return true;
+			}
+
+			if (path.charAt(index) == WINDOWS_SEPARATOR ||
+					(index + 1 < length && isSeparator(path.charAt(index + 1)))) {
+				return false;
+			}
+
+			index++;
+		}
+
+		return true;
+	}
+
+	private static boolean isNormalized(char[] path, int offset, int length) {
+		final int end = offset + length;
+		int index = offset;
+
+		while (index < end && isSeparator(path[index])) {
+			if (path[index] == WINDOWS_SEPARATOR || index == offset + 2) {
+				return false;
+			}
+
+			index++;
+		}
+
+		while (index < end) {
+			if (path[index] == '.' && length != 1 &&
+					(index + 1 == end || isSeparator(path[index + 1]))) {
+				return false;
+			}
+
+			while (index < end && !isSeparator(path[index])) {
+				index++;
+			}
+
+			if (index == end) {
+				return true;
+			}
+
+			if (path[index] == WINDOWS_SEPARATOR ||
+					(index + 1 < end && isSeparator(path[index + 1]))) {
+				return false;
+			}
+
+			index++;
+		}
+
+		return true;
+	}
+
+	private static boolean isNormalized(ByteBuffer path, int start, int end) {
+		int index = start;
+
+		while (index < end && isSeparator(path.get(index))) {
+			if (path.get(index) == WINDOWS_SEPARATOR || index == start + 2) {
+				return false;
+			}
+
+			index++;
+		}
+
+		while (index < end) {
+			if (path.get(index) == '.' && end - start != 1 &&
+					(index + 1 == end || isSeparator(path.get(index + 1)))) {
+				return false;
+			}
+
+			index = findSeparator(path, index, end);
+
+			if (index == end) {
+				return true;
+			}
+
+			if (path.get(index) == WINDOWS_SEPARATOR ||
+					(index + 1 < end && isSeparator(path.get(index + 1)))) {
+				return false;
+			}
+
+			index++;
+		}
+
+		return true;
+	}
+
+	private static int normalizeNames(char[] path, int offset, int length) {
+		final int end = offset + length;
+		int in = offset;
+		int out = offset;
+
+		if (in < end && isSeparator(path[in])) {
+			path[out++] = SEPARATOR;
+
+			if (end - in > 1 && isSeparator(path[in + 1]) &&
+					(end - in == 2 || !isSeparator(path[in + 2]))) {
+				path[out++] = SEPARATOR;
+			}
+
+			while (in < end && isSeparator(path[in])) {
+				in++;
+			}
+		}
+
+		//Names are only ever moved backwards, so the path can be normalized in place.
+		while (in < end) {
+			int nameEnd = in;
+
+			while (nameEnd < end && !isSeparator(path[nameEnd])) {
+				nameEnd++;
+			}
+
+			if (nameEnd - in != 1 || path[in] != '.') {
+				System.arraycopy(path, in, path, out, nameEnd - in);
+				out += nameEnd - in;
+
+				if (nameEnd < end) {
+					path[out++] = SEPARATOR;
+				}
+			}
+
+			in = nameEnd;
+
+			while (in < end && isSeparator(path[in])) {
+				in++;
+			}
+		}
+
+		if (out == offset && length != 0) {
+			path[out++] = '.';
+		}
+
+		return out - offset;
+	}
+
+	private static int normalizeNames(ByteBuffer path, int start, int end) {
+		int in = start;
+		int out = start;
+
+		if (in < end && isSeparator(path.get(in))) {
+			path.put(out++, (byte) SEPARATOR);
+
+			if (end - in > 1 && isSeparator(path.get(in + 1)) &&
+					(end - in == 2 || !isSeparator(path.get(in + 2)))) {
+				path.put(out++, (byte) SEPARATOR);
+			}
+
+			while (in < end && isSeparator(path.get(in))) {
+				in++;
+			}
+		}
+
+		while (in < end) {
+			final int nameEnd = findSeparator(path, in, end);
+
+			if (nameEnd - in != 1 || path.get(in) != '.') {
+				//Names only have to be moved once something before them has been removed.
+				if (out == in) {
+					out = nameEnd;
+				} else {
+					while (in < nameEnd) {
+						path.put(out++, path.get(in++));
+					}
+				}
+
+				if (nameEnd < end) {
+					path.put(out++, (byte) SEPARATOR);
+				}
+			}
+
+			in = nameEnd;
+
+			while (in < end && isSeparator(path.get(in))) {
+				in++;
+			}
+		}
+
+		if (out == start && end != start) {
+			path.put(out++, (byte) '.');
+		}
+
+		return out - start;
+	}
+
+	private static int findSeparator(ByteBuffer path, int index, int end) {
+		while (index + Long.BYTES <= end && !hasSeparator(path.getLong(index))) {
+			index += Long.BYTES;
+		}
+
+		while (index < end && !isSeparator(path.get(index))) {
+			index++;
+		}
+
+		return index;
+	}
+
+	private static boolean hasSeparator(long bytes) {
+		return (getZeroBytes(bytes ^ SEPARATORS) | getZeroBytes(bytes ^ WINDOWS_SEPARATORS)) != 0L;
+	}
+
+	//Returns a nonzero value if and only if any of the bytes are zero.
+	private static long getZeroBytes(long bytes) {
+		return (bytes - ONES) & ~bytes & HIGH_BITS;
+	}
+
+	private static boolean isSeparator(int character) {
+		return character == SEPARATOR || character == WINDOWS_SEPARATOR;
+	}
+}
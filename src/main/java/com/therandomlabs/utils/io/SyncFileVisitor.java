@@ -0,0 +1,256 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+final class SyncFileVisitor extends SimpleFileVisitor<Path> {
+	private static final int COMPARISON_BUFFER_SIZE = 64 << 10;
+
+	private final Path sourceDirectory;
+	private final Path targetDirectory;
+	private final SyncOptions options;
+	//The names of the source entries in each directory that is being visited.
+	private final Deque<Set<String>> sourceNames = new ArrayDeque<>();
+	private final ImmutableList.Builder<Path> copied = ImmutableList.builder();
+	private final ImmutableList.Builder<Path> deleted = ImmutableList.builder();
+	private long unchangedCount;
+	private long copiedBytes;
+
+	SyncFileVisitor(Path sourceDirectory, Path targetDirectory, SyncOptions options) {
+		this.sourceDirectory = sourceDirectory;
+		this.targetDirectory = targetDirectory;
+		this.options = options;
+	}
+
+	@Override
+	public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+			throws IOException {
+		addSourceName(directory);
+
+		final Path target = getTarget(directory);
+		final BasicFileAttributes targetAttributes = readAttributes(target);
+
+		if (targetAttributes == null || !targetAttributes.isDirectory()) {
+			if (targetAttributes != null) {
+				delete(target, targetAttributes);
+			}
+
+			Files.createDirectories(target);
+		}
+
+		if (options.isDeletingExtraneous()) {
+			sourceNames.push(new HashSet<>());
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+		addSourceName(file);
+
+		final Path target = getTarget(file);
+		final BasicFileAttributes targetAttributes = readAttributes(target);
+
+		if (targetAttributes != null) {
+			if (isUnchanged(file, attributes, target, targetAttributes)) {
+				unchangedCount++;
+				return FileVisitResult.CONTINUE;
+			}
+
+			if (targetAttributes.isDirectory()) {
+				delete(target, targetAttributes);
+			}
+		}
+
+		//COPY_ATTRIBUTES preserves the last modified time so that the next sync can skip the file.
+		FileTransfer.copy(
+				file, target, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS
+		);
+		copied.add(target);
+
+		if (attributes.isRegularFile()) {
+			copiedBytes += attributes.size();
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	@Override
+	public FileVisitResult postVisitDirectory(Path directory, IOException ex) throws IOException {
+		if (ex != null) {
+			throw ex;
+		}
+
+		if (!options.isDeletingExtraneous()) {
+			return FileVisitResult.CONTINUE;
+		}
+
+		final Set<String> names = sourceNames.pop();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(getTarget(directory))) {
+			for (Path entry : stream) {
+				if (!names.contains(entry.getFileName().toString())) {
+					delete(entry, DirectoryEntries.readAttributes(
+							stream, entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+					));
+				}
+			}
+		} catch (DirectoryIteratorException ex2) {
+			throw ex2.getCause();
+		}
+
+		return FileVisitResult.CONTINUE;
+	}
+
+	SyncResult getResult() {
+		return new SyncResult(copied.build(), deleted.build(), unchangedCount, copiedBytes);
+	}
+
+	private void addSourceName(Path path) {
+		if (!sourceNames.isEmpty()) {
+			sourceNames.element().add(path.getFileName().toString());
+		}
+	}
+
+	private boolean isUnchanged(
+			Path source, BasicFileAttributes attributes, Path target,
+			BasicFileAttributes targetAttributes
+	) throws IOException {
+		if (attributes.isSymbolicLink() && targetAttributes.isSymbolicLink()) {
+			return Files.readSymbolicLink(source).toString().equals(
+					Files.readSymbolicLink(target).toString()
+			);
+		}
+
+		if (!attributes.isRegularFile() || !targetAttributes.isRegularFile() ||
+				attributes.size() != targetAttributes.size()) {
+			return false;
+		}
+
+		//Filesystems store last modified times with different precisions, so we only compare
+		//milliseconds.
+		final boolean sameTime = attributes.lastModifiedTime().toMillis() ==
+				targetAttributes.lastModifiedTime().toMillis();
+
+		if (!options.isComparingContents()) {
+			return sameTime;
+		}
+
+		if (!contentEquals(source, target, attributes.size())) {
+			return false;
+		}
+
+		if (!sameTime) {
+			//The file has only been touched, so the next sync can skip it without reading it.
+			Files.setLastModifiedTime(target, attributes.lastModifiedTime());
+		}
+
+		return true;
+	}
+
+	private void delete(Path target, BasicFileAttributes targetAttributes) throws IOException {
+		if (targetAttributes.isDirectory()) {
+			DeleteFileVisitor.deleteTree(target);
+		} else {
+			Files.delete(target);
+		}
+
+		deleted.add(target);
+	}
+
+	private Path getTarget(Path source) {
+		return PathUtils.resolve(targetDirectory, sourceDirectory.relativize(source));
+	}
+
+	private static @Nullable BasicFileAttributes readAttributes(Path path) throws IOException {
+		try {
+			return Files.readAttributes(
+					path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS
+			);
+		} catch (NoSuchFileException ignored) {
+			return null;
+		}
+	}
+
+	private static boolean contentEquals(Path path1, Path path2, long size) throws IOException {
+		final byte[] buffer1 = new byte[(int) Math.min(size, COMPARISON_BUFFER_SIZE)];
+		final byte[] buffer2 = new byte[buffer1.length];
+
+		try (InputStream in1 = Files.newInputStream(path1);
+			 InputStream in2 = Files.newInputStream(path2)) {
+			for (long remaining = size; remaining > 0L; ) {
+				final int length = (int) Math.min(remaining, buffer1.length);
+
+				//If the last chunk is shorter, the rest of both buffers still holds the previous
+				//chunk, which was equal.
+
+				if (!readFully(in1, buffer1, length) || !readFully(in2, buffer2, length) ||
+						!Arrays.equals(buffer1, buffer2)) {
+					return false;
+				}
+
+				remaining -= length;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean readFully(InputStream in, byte[] buffer, int length)
+			throws IOException {
+		for (int offset = 0; offset < length; ) {
+			final int read = in.read(buffer, offset, length - offset);
+
+			if (read == -1) {
+				return false;
+			}
+
+			offset += read;
+		}
+
+		return true;
+	}
+}
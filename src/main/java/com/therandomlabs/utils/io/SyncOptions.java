@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+
+/**
+ * Describes how {@link NIOUtils#syncDirectory(Path, Path, SyncOptions)} should decide which
+ * files have changed and what it should do with files that only exist in the target directory.
+ * {@link SyncOptions} are immutable.
+ */
+public final class SyncOptions {
+	private static final SyncOptions DEFAULTS = new SyncOptions(false, false);
+
+	private final boolean comparingContents;
+	private final boolean deletingExtraneous;
+
+	private SyncOptions(boolean comparingContents, boolean deletingExtraneous) {
+		this.comparingContents = comparingContents;
+		this.deletingExtraneous = deletingExtraneous;
+	}
+
+	/**
+	 * Returns whether files are compared by content rather than by last modified time.
+	 *
+	 * @return {@code true} if files of the same size are compared by content,
+	 * or {@code false} if they are compared by last modified time.
+	 */
+	public boolean isComparingContents() {
+		return comparingContents;
+	}
+
+	/**
+	 * Returns whether files and directories that only exist in the target directory are
+	 * deleted.
+	 *
+	 * @return {@code true} if extraneous files and directories are deleted,
+	 * or otherwise {@code false}.
+	 */
+	public boolean isDeletingExtraneous() {
+		return deletingExtraneous;
+	}
+
+	/**
+	 * Returns a copy of these {@link SyncOptions} that compares files of the same size by content
+	 * rather than by last modified time. This is slower, as both files must be read, but it
+	 * detects changes that do not change the last modified time, and it does not copy files that
+	 * have only been touched.
+	 *
+	 * @param comparingContents whether files should be compared by content.
+	 * @return a copy of these {@link SyncOptions} with the specified value.
+	 */
+	public SyncOptions comparingContents(boolean comparingContents) {
+		return new SyncOptions(comparingContents, deletingExtraneous);
+	}
+
+	/**
+	 * Returns a copy of these {@link SyncOptions} that deletes files and directories in the
+	 * target directory that do not exist in the source directory.
+	 *
+	 * @param deletingExtraneous whether extraneous files and directories should be deleted.
+	 * @return a copy of these {@link SyncOptions} with the specified value.
+	 */
+	public SyncOptions deletingExtraneous(boolean deletingExtraneous) {
+		return new SyncOptions(comparingContents, deletingExtraneous);
+	}
+
+	/**
+	 * Returns the default {@link SyncOptions}, which compare files by size and last modified
+	 * time and do not delete anything that only exists in the target directory.
+	 *
+	 * @return the default {@link SyncOptions}.
+	 */
+	public static SyncOptions defaults() {
+		return DEFAULTS;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.Path;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A summary of what {@link NIOUtils#syncDirectory(Path, Path, SyncOptions)} did.
+ * {@link SyncResult}s are immutable.
+ */
+public final class SyncResult {
+	private final ImmutableList<Path> copied;
+	private final ImmutableList<Path> deleted;
+	private final long unchangedCount;
+	private final long copiedBytes;
+
+	SyncResult(
+			ImmutableList<Path> copied, ImmutableList<Path> deleted, long unchangedCount,
+			long copiedBytes
+	) {
+		this.copied = copied;
+		this.deleted = deleted;
+		this.unchangedCount = unchangedCount;
+		this.copiedBytes = copiedBytes;
+	}
+
+	/**
+	 * Returns the files in the target directory that were created or replaced.
+	 *
+	 * @return an {@link ImmutableList} of {@link Path}s in the target directory.
+	 */
+	public ImmutableList<Path> getCopied() {
+		return copied;
+	}
+
+	/**
+	 * Returns the files and directories in the target directory that were deleted.
+	 * If a directory was deleted, its contents are not listed separately.
+	 *
+	 * @return an {@link ImmutableList} of {@link Path}s in the target directory.
+	 */
+	public ImmutableList<Path> getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * Returns the number of files that were already up to date and were therefore not copied.
+	 *
+	 * @return the number of unchanged files.
+	 */
+	public long getUnchangedCount() {
+		return unchangedCount;
+	}
+
+	/**
+	 * Returns the total size of the regular files that were copied.
+	 *
+	 * @return the number of bytes that were copied.
+	 */
+	public long getCopiedBytes() {
+		return copiedBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).
+				add("copied", copied.size()).
+				add("deleted", deleted.size()).
+				add("unchanged", unchangedCount).
+				add("copiedBytes", HumanReadableSize.decimal(copiedBytes)).
+				toString();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the temporary files that are written and then moved over existing files.
+ * <p>
+ * A temporary file is created next to the file that it replaces so that it can be moved into
+ * place atomically. Its name is unique, so it never replaces an unrelated file or the temporary
+ * file of a concurrent writer. Unlike {@link Files#createTempFile(Path, String, String,
+ * java.nio.file.attribute.FileAttribute[])}, which always restricts access to the owner, the
+ * temporary file is created with the default permissions of new files, and if the file that it
+ * replaces exists, its POSIX permissions are copied so that they survive the move.
+ */
+final class TemporaryFiles {
+	static final String SUFFIX = ".tmp";
+
+	private TemporaryFiles() {}
+
+	static Path createSibling(Path file, String prefix) throws IOException {
+		final Path absoluteFile = file.toAbsolutePath();
+		Path temporaryFile;
+
+		while (true) {
+			temporaryFile = absoluteFile.resolveSibling(
+					prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + SUFFIX
+			);
+
+			try {
+				Files.createFile(temporaryFile);
+				break;
+			} catch (FileAlreadyExistsException ignored) {
+				//Another file already has this name, so a different name is tried.
+			}
+		}
+
+		if (file.getFileSystem().supportedFileAttributeViews().contains("posix") &&
+				Files.exists(absoluteFile)) {
+			try {
+				Files.setPosixFilePermissions(
+						temporaryFile, Files.getPosixFilePermissions(absoluteFile)
+				);
+			} catch (IOException ex) {
+				Files.deleteIfExists(temporaryFile);
+				throw ex;
+			}
+		}
+
+		return temporaryFile;
+	}
+}
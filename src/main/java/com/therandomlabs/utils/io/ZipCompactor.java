@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Reclaims the dead space that is left in zip files by appending with
+ * {@link ZipWriter#append(Path)}.
+ * <p>
+ * Compaction copies every live entry to a new zip file as is, without recompressing it, and then
+ * replaces the original zip file, so it takes time proportional to the size of the live data.
+ * Data before the first entry that is not referenced by the central directory, such as a
+ * self-extracting stub, is not preserved.
+ */
+public final class ZipCompactor {
+	private static final String TEMPORARY_FILE_PREFIX = ".compacting-";
+
+	private ZipCompactor() {}
+
+	/**
+	 * Returns the number of bytes in the specified zip file that are taken up by entries that
+	 * are no longer referenced by its central directory.
+	 *
+	 * @param path a {@link Path} to a zip file.
+	 * @return the number of bytes of dead space in the zip file.
+	 * @throws java.util.zip.ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static long getDeadSpace(Path path) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return ZipLayout.read(path).getDeadSpace();
+	}
+
+	/**
+	 * Compacts the specified zip file if more than the specified fraction of it is dead space.
+	 *
+	 * @param path a {@link Path} to a zip file.
+	 * @param maxDeadSpaceRatio the fraction of the zip file's size that may be dead space
+	 * before it is compacted, e.g. {@code 0.25}.
+	 * @return {@code true} if the zip file was compacted, or otherwise {@code false}.
+	 * @throws java.util.zip.ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static boolean compactIfNeeded(Path path, double maxDeadSpaceRatio)
+			throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		Preconditions.checkArgument(
+				maxDeadSpaceRatio >= 0.0 && maxDeadSpaceRatio <= 1.0,
+				"maxDeadSpaceRatio should be between 0.0 and 1.0"
+		);
+
+		final ZipLayout layout = ZipLayout.read(path);
+
+		if (layout.getDeadSpace() <= layout.getFileSize() * maxDeadSpaceRatio) {
+			return false;
+		}
+
+		compact(path, layout);
+		return true;
+	}
+
+	/**
+	 * Compacts the specified zip file so that it contains no dead space.
+	 *
+	 * @param path a {@link Path} to a zip file.
+	 * @throws java.util.zip.ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static void compact(Path path) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		compact(path, ZipLayout.read(path));
+	}
+
+	private static void compact(Path path, ZipLayout layout) throws IOException {
+		final Path temporaryFile = TemporaryFiles.createSibling(
+				path, "." + PathUtils.getFileName(path) + TEMPORARY_FILE_PREFIX
+		);
+
+		try {
+			try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ);
+				 ZipWriter zipWriter = new ZipWriter(temporaryFile)) {
+				for (ZipLayout.Record record : layout.getRecords().values()) {
+					zipWriter.copyRecord(source, record);
+				}
+			}
+
+			try {
+				Files.move(
+						temporaryFile, path, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE
+				);
+			} catch (AtomicMoveNotSupportedException ignored) {
+				Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+}
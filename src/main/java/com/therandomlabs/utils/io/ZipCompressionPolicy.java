@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Decides how {@link ZipWriter} compresses each entry.
+ * <p>
+ * Each entry is assigned a deflate compression level between {@link Deflater#BEST_SPEED} and
+ * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}. A level of
+ * {@link Deflater#NO_COMPRESSION} means that the entry is stored rather than deflated.
+ * The level is chosen as follows:
+ * <ol>
+ * <li>If a level has been set for the entry's file extension, that level is used.
+ * By default, the extensions of common formats that are already compressed, such as
+ * {@code png}, {@code jar} and {@code gz}, are stored.</li>
+ * <li>Otherwise, if high-entropy sampling is enabled and the start of the entry looks like
+ * random data, the entry is stored, as deflating it would only waste time.</li>
+ * <li>Otherwise, the default level is used.</li>
+ * </ol>
+ * <p>
+ * If deduplication is enabled, which it is by default, files with identical contents that are
+ * added together by {@link ZipWriter#addDirectory(java.nio.file.Path, String)} or
+ * {@link ZipWriter#addPreservingDirectoryStructure(java.util.Collection)} are compressed only
+ * once, and the compressed data is copied for each duplicate. Only files that are the same size
+ * as another file are hashed, and files are only treated as duplicates if they would be assigned
+ * the same level, so the resulting entries are the same as if each file had been compressed.
+ * <p>
+ * {@link ZipCompressionPolicy}s are immutable.
+ */
+public final class ZipCompressionPolicy {
+	private static final ImmutableSet<String> COMPRESSED_EXTENSIONS = ImmutableSet.of(
+			"7z", "apk", "avif", "br", "bz2", "docx", "ear", "flac", "gif", "gz", "heic", "jar",
+			"jpeg", "jpg", "lz4", "lzma", "m4a", "mkv", "mov", "mp3", "mp4", "odt", "ogg", "png",
+			"pptx", "rar", "tgz", "war", "webm", "webp", "whl", "woff", "woff2", "xlsx", "xz",
+			"zip", "zst"
+	);
+
+	//Samples smaller than this are too small to be judged.
+	private static final int MIN_SAMPLE_SIZE = 512;
+
+	//Only the start of a sample is examined.
+	private static final int MAX_SAMPLE_SIZE = 64 << 10;
+
+	//Data with at least this many bits of entropy per byte is considered incompressible.
+	//Deflate cannot do much better than the order-0 entropy, and compressed formats are usually
+	//above 7.9 bits per byte.
+	private static final double HIGH_ENTROPY_THRESHOLD = 7.5;
+
+	private static final ZipCompressionPolicy DEFAULTS;
+
+	static {
+		final ImmutableMap.Builder<String, Integer> extensionLevels = ImmutableMap.builder();
+
+		for (String extension : COMPRESSED_EXTENSIONS) {
+			extensionLevels.put(extension, Deflater.NO_COMPRESSION);
+		}
+
+		DEFAULTS = new ZipCompressionPolicy(
+				Deflater.DEFAULT_COMPRESSION, extensionLevels.build(), true, true
+		);
+	}
+
+	private final int level;
+	private final ImmutableMap<String, Integer> extensionLevels;
+	private final boolean storingHighEntropy;
+	private final boolean deduplicating;
+
+	private ZipCompressionPolicy(
+			int level, ImmutableMap<String, Integer> extensionLevels, boolean storingHighEntropy,
+			boolean deduplicating
+	) {
+		this.level = level;
+		this.extensionLevels = extensionLevels;
+		this.storingHighEntropy = storingHighEntropy;
+		this.deduplicating = deduplicating;
+	}
+
+	/**
+	 * Returns the level that is used for entries for which no other rule applies.
+	 *
+	 * @return the default compression level.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the compression levels that have been set for specific file extensions.
+	 *
+	 * @return an {@link ImmutableMap} of lowercase file extensions to compression levels.
+	 */
+	public ImmutableMap<String, Integer> getExtensionLevels() {
+		return extensionLevels;
+	}
+
+	/**
+	 * Returns whether entries whose data looks random are stored.
+	 *
+	 * @return {@code true} if high-entropy entries are stored, or otherwise {@code false}.
+	 */
+	public boolean isStoringHighEntropy() {
+		return storingHighEntropy;
+	}
+
+	/**
+	 * Returns whether files with identical contents that are added together are compressed
+	 * only once.
+	 *
+	 * @return {@code true} if duplicate files are compressed only once, or otherwise
+	 * {@code false}.
+	 */
+	public boolean isDeduplicating() {
+		return deduplicating;
+	}
+
+	/**
+	 * Returns the compression level for an entry with the specified name that starts with the
+	 * specified data.
+	 *
+	 * @param entryName an entry name.
+	 * @param sample a buffer that contains the start of the entry's data.
+	 * @param sampleLength the number of bytes of data in {@code sample}.
+	 * @return a compression level, or {@link Deflater#NO_COMPRESSION} if the entry should be
+	 * stored.
+	 */
+	public int getLevel(String entryName, byte[] sample, int sampleLength) {
+		Preconditions.checkNotNull(entryName, "entryName should not be null");
+		Preconditions.checkNotNull(sample, "sample should not be null");
+		Preconditions.checkPositionIndex(sampleLength, sample.length, "sampleLength");
+
+		final Integer extensionLevel = getExtensionLevel(entryName);
+
+		if (extensionLevel != null) {
+			return extensionLevel;
+		}
+
+		if (storingHighEntropy && sampleLength >= MIN_SAMPLE_SIZE &&
+				getEntropy(sample, Math.min(sampleLength, MAX_SAMPLE_SIZE)) >=
+						HIGH_ENTROPY_THRESHOLD) {
+			return Deflater.NO_COMPRESSION;
+		}
+
+		return level;
+	}
+
+	/**
+	 * Returns a copy of this {@link ZipCompressionPolicy} with the specified default level.
+	 *
+	 * @param level a compression level.
+	 * @return a copy of this {@link ZipCompressionPolicy} with the specified default level.
+	 */
+	public ZipCompressionPolicy withLevel(int level) {
+		checkLevel(level);
+		return new ZipCompressionPolicy(level, extensionLevels, storingHighEntropy, deduplicating);
+	}
+
+	/**
+	 * Returns a copy of this {@link ZipCompressionPolicy} that uses the specified level for
+	 * entries with the specified file extension.
+	 *
+	 * @param extension a file extension without the leading period, e.g. {@code png}.
+	 * Extensions are case-insensitive.
+	 * @param level a compression level, or {@link Deflater#NO_COMPRESSION} to store entries with
+	 * the specified extension.
+	 * @return a copy of this {@link ZipCompressionPolicy} with the specified extension level.
+	 */
+	public ZipCompressionPolicy withLevel(String extension, int level) {
+		Preconditions.checkNotNull(extension, "extension should not be null");
+		checkLevel(level);
+
+		final Map<String, Integer> levels = new HashMap<>(extensionLevels);
+		levels.put(extension.toLowerCase(Locale.ROOT), level);
+		return new ZipCompressionPolicy(
+				this.level, ImmutableMap.copyOf(levels), storingHighEntropy, deduplicating
+		);
+	}
+
+	/**
+	 * Returns a copy of this {@link ZipCompressionPolicy} that does or does not store entries
+	 * whose data looks random.
+	 *
+	 * @param storingHighEntropy whether high-entropy entries should be stored.
+	 * @return a copy of this {@link ZipCompressionPolicy} with the specified value.
+	 */
+	public ZipCompressionPolicy storingHighEntropy(boolean storingHighEntropy) {
+		return new ZipCompressionPolicy(level, extensionLevels, storingHighEntropy, deduplicating);
+	}
+
+	/**
+	 * Returns a copy of this {@link ZipCompressionPolicy} that does or does not compress files
+	 * with identical contents only once.
+	 *
+	 * @param deduplicating whether duplicate files should be compressed only once.
+	 * @return a copy of this {@link ZipCompressionPolicy} with the specified value.
+	 */
+	public ZipCompressionPolicy deduplicating(boolean deduplicating) {
+		return new ZipCompressionPolicy(level, extensionLevels, storingHighEntropy, deduplicating);
+	}
+
+	/**
+	 * Returns the default {@link ZipCompressionPolicy}, which deflates entries with
+	 * {@link Deflater#DEFAULT_COMPRESSION} but stores entries that are already compressed.
+	 *
+	 * @return the default {@link ZipCompressionPolicy}.
+	 */
+	public static ZipCompressionPolicy defaults() {
+		return DEFAULTS;
+	}
+
+	/**
+	 * Returns a {@link ZipCompressionPolicy} that uses the specified level for every entry.
+	 *
+	 * @param level a compression level, or {@link Deflater#NO_COMPRESSION} to store every entry.
+	 * @return a {@link ZipCompressionPolicy} that uses the specified level for every entry.
+	 */
+	public static ZipCompressionPolicy uniform(int level) {
+		checkLevel(level);
+		return new ZipCompressionPolicy(level, ImmutableMap.of(), false, true);
+	}
+
+	/**
+	 * Returns the level that has been set for the file extension of the specified entry name,
+	 * or {@code null} if the level depends on the entry's data.
+	 */
+	@Nullable Integer getExtensionLevel(String entryName) {
+		return extensionLevels.get(getExtension(entryName));
+	}
+
+	private static void checkLevel(int level) {
+		Preconditions.checkArgument(
+				level == Deflater.DEFAULT_COMPRESSION ||
+						(level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+				"level should be a valid compression level"
+		);
+	}
+
+	private static String getExtension(String entryName) {
+		final int separatorIndex = entryName.lastIndexOf(IOConstants.UNIX_DIRECTORY_SEPARATOR);
+		final int periodIndex = entryName.lastIndexOf('.');
+		return periodIndex > separatorIndex ?
+				entryName.substring(periodIndex + 1).toLowerCase(Locale.ROOT) : "";
+	}
+
+	private static double getEntropy(byte[] sample, int length) {
+		final int[] counts = new int[256];
+
+		for (int i = 0; i < length; i++) {
+			counts[sample[i] & 0xFF]++;
+		}
+
+		double entropy = 0.0;
+
+		for (int count : counts) {
+			if (count != 0) {
+				final double probability = (double) count / length;
+				entropy -= probability * Math.log(probability);
+			}
+		}
+
+		return entropy / Math.log(2.0);
+	}
+}
@@ -25,10 +25,23 @@ package com.therandomlabs.utils.io;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.ZipException;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -43,7 +56,7 @@ import com.google.common.collect.ImmutableMap;
  * <pre>
  * {@code
  * final ZipFile zipFile = new ZipFile(Paths.get("test.zip"));
- * NIOUtils.copyDirectory(zipFile.getRoot(), Paths.get("extracted"));
+ * zipFile.extractTo(Paths.get("extracted"), ExtractOptions.defaults());
  * }
  * </pre>
  * To add a collection of files as entries while preserving directory structure,
@@ -55,6 +68,10 @@ import com.google.common.collect.ImmutableMap;
  * NIOUtils.copyPreservingDirectoryStructure(paths, zipFile.getRoot());
  * }
  * </pre>
+ * The underlying zip filesystem rewrites the entire zip file when it is closed. To create large
+ * zip files, {@link ZipWriter} should be used instead. Opening a {@link ZipFile} also parses
+ * its entire central directory, so to read a few entries from a large zip file,
+ * {@link ZipReader} should be used instead.
  */
 public class ZipFile implements AutoCloseable {
 	private static final ImmutableMap<String, String> CREATE = ImmutableMap.of("create", "true");
@@ -132,6 +149,83 @@ public class ZipFile implements AutoCloseable {
 		return getEntry("/");
 	}
 
+	/**
+	 * Extracts this {@link ZipFile} to the specified directory.
+	 * <p>
+	 * Entries are read through this {@link ZipFile}'s {@link FileSystem}, so entries that have
+	 * been written using {@link #getEntry(String)} but not yet flushed to the zip file are
+	 * extracted as they currently are. Rather than copying entries one by one, this method lists
+	 * the entries once, creates every directory up front and then inflates the file entries in
+	 * parallel, each directly into a file that has been extended to the entry's size.
+	 * <p>
+	 * Entries whose names would resolve to a location outside of the specified directory,
+	 * e.g. {@code ../a.txt}, are rejected before anything is extracted. Entry names that start
+	 * with {@code /} are treated as relative to the root of this {@link ZipFile}, as they are
+	 * by its {@link FileSystem}. Symbolic links in the specified directory are not followed.
+	 *
+	 * @param directory a {@link Path} to a directory. It is created if it does not already exist.
+	 * @param options the {@link ExtractOptions}.
+	 * @throws ZipException if an entry name is invalid or would be extracted to outside of the
+	 * specified directory.
+	 * @throws IOException if an I/O error occurs. If entries could not be extracted,
+	 * the thrown {@link IOException} contains the {@link IOException}s that caused each failure
+	 * as suppressed exceptions.
+	 */
+	public void extractTo(Path directory, ExtractOptions options) throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkNotNull(options, "options should not be null");
+
+		final Path targetDirectory = directory.toAbsolutePath().normalize();
+		final Path root = getRoot();
+		//Directories are visited before their children, so every parent is created first.
+		final Map<Path, BasicFileAttributes> directories = new LinkedHashMap<>();
+		final List<Path> entries = new ArrayList<>();
+		final List<BasicFileAttributes> entryAttributes = new ArrayList<>();
+		final List<Path> files = new ArrayList<>();
+
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path entry, BasicFileAttributes attributes)
+					throws IOException {
+				if (!entry.equals(root)) {
+					directories.put(resolveEntry(targetDirectory, root, entry), attributes);
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path entry, BasicFileAttributes attributes)
+					throws IOException {
+				entries.add(entry);
+				entryAttributes.add(attributes);
+				files.add(resolveEntry(targetDirectory, root, entry));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		Files.createDirectories(targetDirectory);
+
+		for (Path path : directories.keySet()) {
+			createDirectory(path);
+		}
+
+		final Queue<IOException> failures = new ConcurrentLinkedQueue<>();
+		ForkJoinIO.invoke(
+				new ForkJoinExtractTask(entries, entryAttributes, files, options, failures),
+				options.getParallelism()
+		);
+		ForkJoinIO.throwIfFailed(failures, "Failed to extract " + path);
+
+		//Creating files changes the last modified times of their parent directories,
+		//so directory times are only set once all files have been extracted.
+		if (options.isPreservingLastModifiedTimes()) {
+			for (Map.Entry<Path, BasicFileAttributes> entry : directories.entrySet()) {
+				Files.setLastModifiedTime(entry.getKey(), entry.getValue().lastModifiedTime());
+			}
+		}
+	}
+
 	/**
 	 * Creates a {@link ZipFile} instance that represents a zip file at the specified {@link Path}.
 	 * If a file already exists at the specified {@link Path}, it is deleted first.
@@ -146,4 +240,34 @@ public class ZipFile implements AutoCloseable {
 		Files.deleteIfExists(path);
 		return new ZipFile(path);
 	}
+
+	private static Path resolveEntry(Path directory, Path root, Path entry)
+			throws ZipException {
+		final String entryName = root.relativize(entry).toString();
+		final Path target;
+
+		try {
+			target = directory.resolve(entryName).normalize();
+		} catch (InvalidPathException ex) {
+			final ZipException exception = new ZipException("Invalid entry name: " + entryName);
+			exception.initCause(ex);
+			throw exception;
+		}
+
+		if (target.equals(directory) || !target.startsWith(directory)) {
+			throw new ZipException("Entry is outside of the target directory: " + entryName);
+		}
+
+		return target;
+	}
+
+	private static void createDirectory(Path directory) throws IOException {
+		try {
+			Files.createDirectory(directory);
+		} catch (FileAlreadyExistsException ex) {
+			if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+				throw ex;
+			}
+		}
+	}
 }
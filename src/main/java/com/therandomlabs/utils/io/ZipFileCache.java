@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cache of open {@link ZipFile}s that can be shared by many threads.
+ * <p>
+ * Every {@link ZipFile} opens a zip filesystem, which is expensive, and only one zip filesystem
+ * can be open for a file at a time. A {@link ZipFileCache} keeps one {@link ZipFile} open per
+ * real path and hands out reference-counted {@link ZipFileLease}s to it. A {@link ZipFile} is
+ * only closed once all of its leases have been released and it has either been idle for longer
+ * than the idle timeout or been evicted because more than the maximum number of
+ * {@link ZipFile}s are open, least recently used first. The maximum is exceeded if more
+ * {@link ZipFile}s than that are leased at once.
+ * <p>
+ * If the size or last modified time of a zip file has changed since it was opened, it is
+ * reopened by the next {@link #acquire(Path)} after all of its leases have been released.
+ * Until then, the old version continues to be returned, as a zip filesystem cannot be reopened
+ * while it is in use.
+ * <p>
+ * Leased {@link ZipFile}s should only be read from, and they should not be closed directly.
+ * Zip files that are cached should not be opened with {@link ZipFile#ZipFile(Path)} elsewhere
+ * in the same JVM. {@link ZipFileCache}s are thread-safe.
+ */
+public final class ZipFileCache {
+	private static final ZipFileCache SHARED = new ZipFileCache(64, 5L, TimeUnit.MINUTES);
+
+	private final int maxOpen;
+	private final long idleTimeoutNanos;
+	//In access order, so that the least recently used handle is first.
+	private final Map<Path, Handle> handles = new LinkedHashMap<>(16, 0.75F, true);
+
+	/**
+	 * Creates a new {@link ZipFileCache}.
+	 *
+	 * @param maxOpen the maximum number of {@link ZipFile}s that are kept open, including those
+	 * that are leased. Unleased {@link ZipFile}s are closed to stay within this limit, but it is
+	 * exceeded if more {@link ZipFile}s than this are leased at once.
+	 * @param idleTimeout how long a {@link ZipFile} is kept open after its last lease has been
+	 * released.
+	 * @param unit the {@link TimeUnit} of the idle timeout.
+	 */
+	public ZipFileCache(int maxOpen, long idleTimeout, TimeUnit unit) {
+		Preconditions.checkArgument(maxOpen >= 0, "maxOpen should not be negative");
+		Preconditions.checkArgument(idleTimeout >= 0L, "idleTimeout should not be negative");
+		Preconditions.checkNotNull(unit, "unit should not be null");
+		this.maxOpen = maxOpen;
+		idleTimeoutNanos = unit.toNanos(idleTimeout);
+	}
+
+	/**
+	 * Returns the maximum number of {@link ZipFile}s that are kept open, including those that
+	 * are leased.
+	 *
+	 * @return the maximum number of open {@link ZipFile}s.
+	 */
+	public int getMaxOpen() {
+		return maxOpen;
+	}
+
+	/**
+	 * Returns how long a {@link ZipFile} is kept open after its last lease has been released.
+	 *
+	 * @param unit a {@link TimeUnit}.
+	 * @return the idle timeout in the specified {@link TimeUnit}.
+	 */
+	public long getIdleTimeout(TimeUnit unit) {
+		Preconditions.checkNotNull(unit, "unit should not be null");
+		return unit.convert(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the number of {@link ZipFile}s that this {@link ZipFileCache} has open.
+	 *
+	 * @return the number of open {@link ZipFile}s.
+	 */
+	public synchronized int size() {
+		return handles.size();
+	}
+
+	/**
+	 * Leases the {@link ZipFile} for the zip file at the specified {@link Path}, opening it if
+	 * it is not already open. The returned {@link ZipFileLease} should be closed once the
+	 * {@link ZipFile} is no longer needed.
+	 *
+	 * @param path a {@link Path} to an existing zip file.
+	 * @return a {@link ZipFileLease}.
+	 * @throws IOException if the zip file does not exist or cannot be opened, or if an I/O
+	 * error occurs.
+	 */
+	public ZipFileLease acquire(Path path) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+
+		final Path realPath = path.toRealPath();
+		final BasicFileAttributes attributes =
+				Files.readAttributes(realPath, BasicFileAttributes.class);
+		final Handle handle;
+
+		synchronized (this) {
+			final List<IOException> failures = new ArrayList<>();
+			Handle cached = handles.get(realPath);
+
+			if (cached != null && cached.references == 0 &&
+					!cached.isCurrent(attributes.lastModifiedTime(), attributes.size())) {
+				handles.remove(realPath);
+				cached.close(failures);
+				cached = null;
+			}
+
+			if (cached == null) {
+				cached = new Handle(realPath, attributes.lastModifiedTime(), attributes.size());
+				handles.put(realPath, cached);
+			}
+
+			handle = cached;
+			handle.references++;
+			evict(System.nanoTime(), failures);
+
+			if (!failures.isEmpty()) {
+				release(handle);
+				ForkJoinIO.throwIfFailed(failures, "Failed to close evicted zip files");
+			}
+		}
+
+		try {
+			return new ZipFileLease(this, handle.open());
+		} catch (IOException | RuntimeException ex) {
+			release(handle);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Closes every {@link ZipFile} that is not currently leased.
+	 *
+	 * @throws IOException if an I/O error occurs. If several {@link ZipFile}s could not be
+	 * closed, the thrown {@link IOException} contains the {@link IOException}s that caused each
+	 * failure as suppressed exceptions.
+	 */
+	public synchronized void evictAll() throws IOException {
+		final List<IOException> failures = new ArrayList<>();
+
+		for (Iterator<Handle> it = handles.values().iterator(); it.hasNext(); ) {
+			final Handle handle = it.next();
+
+			if (handle.references == 0) {
+				it.remove();
+				handle.close(failures);
+			}
+		}
+
+		ForkJoinIO.throwIfFailed(failures, "Failed to close zip files");
+	}
+
+	/**
+	 * Returns the shared {@link ZipFileCache}, which keeps at most 64 {@link ZipFile}s open
+	 * and closes them after they have been idle for five minutes.
+	 *
+	 * @return the shared {@link ZipFileCache}.
+	 */
+	public static ZipFileCache shared() {
+		return SHARED;
+	}
+
+	void release(ZipFile zipFile) throws IOException {
+		final List<IOException> failures = new ArrayList<>();
+
+		synchronized (this) {
+			final Handle handle = handles.get(zipFile.getPath());
+			Preconditions.checkState(
+					handle != null && handle.zipFile == zipFile, "zipFile is not leased"
+			);
+			release(handle);
+			evict(System.nanoTime(), failures);
+		}
+
+		ForkJoinIO.throwIfFailed(failures, "Failed to close evicted zip files");
+	}
+
+	private synchronized void release(Handle handle) {
+		handle.references--;
+		handle.lastReleased = System.nanoTime();
+
+		//A handle that failed to open is removed so that the next acquire tries again.
+		if (handle.references == 0 && handle.zipFile == null) {
+			handles.remove(handle.path, handle);
+		}
+	}
+
+	/**
+	 * Closes unleased handles that have been idle for too long or while the total number of
+	 * handles, leased or not, exceeds the maximum. Closing them while holding the lock ensures that a zip file is
+	 * never opened again before its previous zip filesystem has been closed.
+	 */
+	private void evict(long now, List<IOException> failures) {
+		int excess = handles.size() - maxOpen;
+
+		for (Iterator<Handle> it = handles.values().iterator(); it.hasNext(); ) {
+			final Handle handle = it.next();
+
+			if (handle.references == 0 &&
+					(excess > 0 || now - handle.lastReleased >= idleTimeoutNanos)) {
+				it.remove();
+				handle.close(failures);
+				excess--;
+			}
+		}
+	}
+
+	private static final class Handle {
+		final Path path;
+		final FileTime lastModifiedTime;
+		final long size;
+		//Guarded by the ZipFileCache.
+		int references;
+		long lastReleased;
+		//Guarded by this handle.
+		volatile @Nullable ZipFile zipFile;
+
+		Handle(Path path, FileTime lastModifiedTime, long size) {
+			this.path = path;
+			this.lastModifiedTime = lastModifiedTime;
+			this.size = size;
+		}
+
+		boolean isCurrent(FileTime lastModifiedTime, long size) {
+			return this.lastModifiedTime.equals(lastModifiedTime) && this.size == size;
+		}
+
+		synchronized ZipFile open() throws IOException {
+			ZipFile openZipFile = zipFile;
+
+			if (openZipFile == null) {
+				openZipFile = new ZipFile(path);
+				zipFile = openZipFile;
+			}
+
+			return openZipFile;
+		}
+
+		void close(List<IOException> failures) {
+			final ZipFile openZipFile = zipFile;
+
+			if (openZipFile == null) {
+				return;
+			}
+
+			try {
+				openZipFile.close();
+			} catch (IOException ex) {
+				failures.add(ex);
+			}
+		}
+	}
+}
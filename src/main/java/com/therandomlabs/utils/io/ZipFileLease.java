@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+
+/**
+ * A lease on a {@link ZipFile} that is held open by a {@link ZipFileCache}.
+ * Closing a {@link ZipFileLease} releases it rather than closing the {@link ZipFile}.
+ */
+public final class ZipFileLease implements AutoCloseable {
+	private final ZipFileCache cache;
+	private final ZipFile zipFile;
+	private boolean released;
+
+	ZipFileLease(ZipFileCache cache, ZipFile zipFile) {
+		this.cache = cache;
+		this.zipFile = zipFile;
+	}
+
+	/**
+	 * Releases this {@link ZipFileLease}. This may close the {@link ZipFile} if it is no longer
+	 * leased and should be evicted from the {@link ZipFileCache}.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (released) {
+				return;
+			}
+
+			released = true;
+		}
+
+		cache.release(zipFile);
+	}
+
+	/**
+	 * Returns the leased {@link ZipFile}. It should not be used after this {@link ZipFileLease}
+	 * has been closed.
+	 *
+	 * @return the leased {@link ZipFile}.
+	 */
+	public ZipFile getZipFile() {
+		return zipFile;
+	}
+}
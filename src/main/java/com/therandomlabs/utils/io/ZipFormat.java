@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+
+/**
+ * Constants and helpers for the zip file format as described in PKWARE's APPNOTE.TXT.
+ * All multi-byte values in a zip file are little-endian.
+ */
+final class ZipFormat {
+	static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	static final int END_SIGNATURE = 0x06054b50;
+	static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+	static final int LOCAL_HEADER_SIZE = 30;
+	static final int CENTRAL_HEADER_SIZE = 46;
+	static final int END_SIZE = 22;
+	static final int ZIP64_END_SIZE = 56;
+	static final int ZIP64_LOCATOR_SIZE = 20;
+	//Data descriptors without their optional signatures.
+	static final int DATA_DESCRIPTOR_SIZE = 12;
+	static final int ZIP64_DATA_DESCRIPTOR_SIZE = 20;
+
+	//Offsets within a local file header.
+	static final int LOCAL_CRC_OFFSET = 14;
+	static final int LOCAL_NAME_LENGTH_OFFSET = 26;
+	static final int LOCAL_EXTRA_LENGTH_OFFSET = 28;
+
+	//Offsets within a central directory file header.
+	static final int CENTRAL_FLAGS_OFFSET = 8;
+	static final int CENTRAL_METHOD_OFFSET = 10;
+	static final int CENTRAL_TIME_OFFSET = 12;
+	static final int CENTRAL_CRC_OFFSET = 16;
+	static final int CENTRAL_COMPRESSED_SIZE_OFFSET = 20;
+	static final int CENTRAL_SIZE_OFFSET = 24;
+	static final int CENTRAL_NAME_LENGTH_OFFSET = 28;
+	static final int CENTRAL_EXTRA_LENGTH_OFFSET = 30;
+	static final int CENTRAL_COMMENT_LENGTH_OFFSET = 32;
+	static final int CENTRAL_LOCAL_HEADER_OFFSET = 42;
+
+	//Offsets within the end of central directory record and its ZIP64 counterparts.
+	static final int END_COUNT_OFFSET = 10;
+	static final int END_SIZE_OFFSET = 12;
+	static final int END_OFFSET_OFFSET = 16;
+	static final int ZIP64_LOCATOR_END_OFFSET = 8;
+	static final int ZIP64_END_COUNT_OFFSET = 32;
+	static final int ZIP64_END_SIZE_OFFSET = 40;
+	static final int ZIP64_END_OFFSET_OFFSET = 48;
+	static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	static final int ZIP64_EXTRA_ID = 0x0001;
+	static final int EXTENDED_TIMESTAMP_EXTRA_ID = 0x5455;
+	//The header and the modification time flag and value.
+	static final int EXTENDED_TIMESTAMP_EXTRA_SIZE = 9;
+
+	static final int STORED = 0;
+	static final int DEFLATED = 8;
+	static final int ENCRYPTED_FLAG = 1;
+	static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+	static final int UTF8_FLAG = 1 << 11;
+	static final int VERSION_NEEDED = 20;
+	static final int VERSION_NEEDED_ZIP64 = 45;
+	static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+	//Values at least this large are stored in a ZIP64 extra field.
+	static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+	static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	//The earliest time that can be represented as a DOS time, i.e. 1980-01-01 00:00:00.
+	private static final long DOS_TIME_BEFORE_1980 = (1 << 21) | (1 << 16);
+
+	//The reversed CRC-32 polynomial.
+	private static final long CRC32_POLYNOMIAL = 0xedb88320L;
+
+	private ZipFormat() {}
+
+	/**
+	 * Converts the specified time in milliseconds since the epoch to a DOS date and time in the
+	 * system default time zone, as {@link java.util.zip.ZipEntry} does.
+	 */
+	static long toDosTime(long millis) {
+		final LocalDateTime time =
+				LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+		final int year = time.getYear();
+
+		if (year < 1980) {
+			return DOS_TIME_BEFORE_1980;
+		}
+
+		return (year - 1980L) << 25 | (long) time.getMonthValue() << 21 |
+				(long) time.getDayOfMonth() << 16 | (long) time.getHour() << 11 |
+				(long) time.getMinute() << 5 | time.getSecond() >> 1;
+	}
+
+	/**
+	 * Converts the specified DOS date and time in the system default time zone to milliseconds
+	 * since the epoch.
+	 */
+	static long fromDosTime(long dosTime) {
+		//Invalid fields are clamped rather than rejected, as other zip readers do.
+		final YearMonth month = YearMonth.of(
+				(int) ((dosTime >> 25) & 0x7F) + 1980,
+				(int) Math.max(1L, Math.min(12L, (dosTime >> 21) & 0xF))
+		);
+		final LocalDateTime time = month.atDay(
+				(int) Math.max(1L, Math.min(month.lengthOfMonth(), (dosTime >> 16) & 0x1F))
+		).atTime(
+				(int) Math.min(23L, (dosTime >> 11) & 0x1F),
+				(int) Math.min(59L, (dosTime >> 5) & 0x3F),
+				(int) Math.min(59L, (dosTime << 1) & 0x3E)
+		);
+		return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	/**
+	 * Returns whether the specified time can be stored in an extended timestamp extra field,
+	 * which holds a signed 32-bit number of seconds since the epoch.
+	 */
+	static boolean fitsExtendedTimestamp(long millis) {
+		final long seconds = Math.floorDiv(millis, 1000L);
+		return seconds >= Integer.MIN_VALUE && seconds <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the CRC-32 of the concatenation of two blocks of data given the CRC-32 of each
+	 * block and the length of the second block. This is a port of zlib's {@code crc32_combine},
+	 * which multiplies the first CRC by the operator that appends {@code length2} zero bytes.
+	 */
+	static long combineCrc32(long crc1, long crc2, long length2) {
+		if (length2 <= 0L) {
+			return crc1;
+		}
+
+		//The operator for one zero bit.
+		final long[] odd = new long[Integer.SIZE];
+		final long[] even = new long[Integer.SIZE];
+		odd[0] = CRC32_POLYNOMIAL;
+
+		for (int i = 1; i < Integer.SIZE; i++) {
+			odd[i] = 1L << (i - 1);
+		}
+
+		//The operators for two and four zero bits.
+		squareGf2Matrix(even, odd);
+		squareGf2Matrix(odd, even);
+
+		//Apply the operators for one zero byte, two zero bytes, four zero bytes and so on
+		//according to the bits in length2.
+		do {
+			squareGf2Matrix(even, odd);
+
+			if ((length2 & 1L) != 0L) {
+				crc1 = multiplyGf2Matrix(even, crc1);
+			}
+
+			length2 >>= 1;
+
+			if (length2 == 0L) {
+				break;
+			}
+
+			squareGf2Matrix(odd, even);
+
+			if ((length2 & 1L) != 0L) {
+				crc1 = multiplyGf2Matrix(odd, crc1);
+			}
+
+			length2 >>= 1;
+		} while (length2 != 0L);
+
+		return crc1 ^ crc2;
+	}
+
+	private static long multiplyGf2Matrix(long[] matrix, long vector) {
+		long sum = 0L;
+
+		for (int i = 0; vector != 0L; i++, vector >>= 1) {
+			if ((vector & 1L) != 0L) {
+				sum ^= matrix[i];
+			}
+		}
+
+		return sum;
+	}
+
+	private static void squareGf2Matrix(long[] square, long[] matrix) {
+		for (int i = 0; i < Integer.SIZE; i++) {
+			square[i] = multiplyGf2Matrix(matrix, matrix[i]);
+		}
+	}
+}
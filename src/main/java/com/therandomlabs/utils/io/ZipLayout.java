@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * The live entries of an existing zip file and the space that is taken up by entries that are
+ * no longer referenced by its central directory.
+ */
+final class ZipLayout {
+	private final Map<String, Record> records;
+	private final long centralDirectoryOffset;
+	private final long deadSpace;
+	private final long fileSize;
+
+	private ZipLayout(
+			Map<String, Record> records, long centralDirectoryOffset, long deadSpace,
+			long fileSize
+	) {
+		this.records = records;
+		this.centralDirectoryOffset = centralDirectoryOffset;
+		this.deadSpace = deadSpace;
+		this.fileSize = fileSize;
+	}
+
+	/**
+	 * Returns the live records by entry name in the order in which they appear in the zip file.
+	 */
+	Map<String, Record> getRecords() {
+		return records;
+	}
+
+	long getCentralDirectoryOffset() {
+		return centralDirectoryOffset;
+	}
+
+	/**
+	 * Returns the number of bytes before the central directory that do not belong to a live
+	 * record.
+	 */
+	long getDeadSpace() {
+		return deadSpace;
+	}
+
+	long getFileSize() {
+		return fileSize;
+	}
+
+	static ZipLayout read(Path path) throws IOException {
+		try (ZipReader zipReader = new ZipReader(path)) {
+			//If several entries have the same name, the last one is live, as in ZipReader.
+			final Map<String, Record> recordsByName = new HashMap<>();
+
+			for (int i = 0; i < zipReader.size(); i++) {
+				final ZipReaderEntry entry = zipReader.getEntry(i);
+				recordsByName.put(entry.getName(), new Record(
+						zipReader.getCentralHeader(i), entry.getLocalHeaderOffset(),
+						zipReader.getRecordLength(entry)
+				));
+			}
+
+			final List<Map.Entry<String, Record>> sorted =
+					new ArrayList<>(recordsByName.entrySet());
+			sorted.sort(Comparator.comparingLong(entry -> entry.getValue().getOffset()));
+
+			final Map<String, Record> records = new LinkedHashMap<>();
+			long liveSpace = 0L;
+
+			final long centralDirectoryOffset = zipReader.getCentralDirectoryOffset();
+
+			for (Map.Entry<String, Record> entry : sorted) {
+				final Record record = entry.getValue();
+
+				//Everything before the central directory that is not a live record is dead space.
+				if (record.getOffset() + record.getLength() > centralDirectoryOffset) {
+					throw new ZipException(
+							"Entry overlaps the central directory: " + entry.getKey()
+					);
+				}
+
+				records.put(entry.getKey(), record);
+				liveSpace += record.getLength();
+			}
+
+			return new ZipLayout(
+					records, centralDirectoryOffset,
+					Math.max(0L, centralDirectoryOffset - liveSpace), zipReader.getFileSize()
+			);
+		}
+	}
+
+	/**
+	 * A live entry's local header, data and data descriptor, along with its central directory
+	 * header.
+	 */
+	static final class Record {
+		private final byte[] centralHeader;
+		private final long offset;
+		private final long length;
+
+		Record(byte[] centralHeader, long offset, long length) {
+			this.centralHeader = centralHeader;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		long getOffset() {
+			return offset;
+		}
+
+		long getLength() {
+			return length;
+		}
+
+		byte[] getCentralHeader() {
+			return centralHeader;
+		}
+
+		/**
+		 * Returns a copy of the central directory header with its local header offset replaced.
+		 * The new offset should not be larger than the old one so that it fits in the same
+		 * field.
+		 */
+		byte[] getCentralHeader(long newOffset) throws ZipException {
+			final byte[] header = centralHeader.clone();
+			final ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+
+			if ((buffer.getInt(ZipFormat.CENTRAL_LOCAL_HEADER_OFFSET) & ZipFormat.ZIP64_MAGIC) !=
+					ZipFormat.ZIP64_MAGIC) {
+				buffer.putInt(ZipFormat.CENTRAL_LOCAL_HEADER_OFFSET, (int) newOffset);
+				return header;
+			}
+
+			final int extraStart = ZipFormat.CENTRAL_HEADER_SIZE +
+					(buffer.getShort(ZipFormat.CENTRAL_NAME_LENGTH_OFFSET) & 0xFFFF);
+			final int extraEnd =
+					extraStart + (buffer.getShort(ZipFormat.CENTRAL_EXTRA_LENGTH_OFFSET) & 0xFFFF);
+
+			for (int field = extraStart; field + 4 <= extraEnd; ) {
+				final int fieldEnd = field + 4 + (buffer.getShort(field + 2) & 0xFFFF);
+
+				if ((buffer.getShort(field) & 0xFFFF) == ZipFormat.ZIP64_EXTRA_ID) {
+					//The offset follows the sizes that overflowed.
+					int position = field + 4;
+
+					if (isZip64Magic(buffer, ZipFormat.CENTRAL_SIZE_OFFSET)) {
+						position += 8;
+					}
+
+					if (isZip64Magic(buffer, ZipFormat.CENTRAL_COMPRESSED_SIZE_OFFSET)) {
+						position += 8;
+					}
+
+					if (position + 8 <= fieldEnd) {
+						buffer.putLong(position, newOffset);
+						return header;
+					}
+				}
+
+				field = fieldEnd;
+			}
+
+			throw new ZipException("Invalid ZIP64 extra field in central directory header");
+		}
+
+		private static boolean isZip64Magic(ByteBuffer buffer, int offset) {
+			return (buffer.getInt(offset) & ZipFormat.ZIP64_MAGIC) == ZipFormat.ZIP64_MAGIC;
+		}
+	}
+}
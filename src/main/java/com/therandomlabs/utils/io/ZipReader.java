@@ -0,0 +1,755 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A lightweight, read-only zip file reader for archives from which only a few entries are read.
+ * <p>
+ * Opening a {@link ZipFile} opens a zip filesystem, which parses the entire central directory
+ * into objects up front. A {@link ZipReader} instead memory-maps the archive and indexes its
+ * central directory with a single {@code int} array of header offsets sorted by entry name, so
+ * opening an archive allocates four bytes per entry and no {@link String}s. Entries are looked up
+ * by binary search over the names in the mapped central directory. Archives smaller than 2 GiB
+ * are mapped as a whole when they are opened; for larger archives, only the central directory is
+ * mapped up front, and the data of each entry is mapped when it is read. The data of stored
+ * entries is returned as a read-only {@link ByteBuffer} over the mapping without being copied.
+ * <p>
+ * Entry names are matched by their UTF-8 bytes. Only stored and deflated entries can be read.
+ * {@link ZipReader}s are thread-safe. {@link ByteBuffer}s that have been returned remain valid
+ * after the {@link ZipReader} is closed.
+ */
+public final class ZipReader implements AutoCloseable {
+	private static final int BUFFER_SIZE = 64 << 10;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final long fileSize;
+	//The whole archive, or null if it is too large to be mapped as a single buffer.
+	private final @Nullable ByteBuffer archive;
+	private final long centralDirectoryOffset;
+	private final ByteBuffer centralDirectory;
+	//The offsets of the central directory headers, sorted by entry name.
+	private final int[] offsets;
+
+	/**
+	 * Opens the zip file at the specified {@link Path} and indexes its central directory.
+	 *
+	 * @param path a {@link Path} to a zip file.
+	 * @throws ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ZipReader(Path path) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		this.path = path;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+
+		try {
+			fileSize = channel.size();
+			archive = fileSize <= Integer.MAX_VALUE ?
+					channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize).
+							order(ByteOrder.LITTLE_ENDIAN) : null;
+			final long[] location = findCentralDirectory();
+			centralDirectoryOffset = location[0];
+			centralDirectory = map(location[0], location[1]).order(ByteOrder.LITTLE_ENDIAN);
+			offsets = index(centralDirectory);
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Returns the {@link Path} to the zip file that is being read.
+	 *
+	 * @return the {@link Path} to the zip file that is being read.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the number of entries in the zip file.
+	 *
+	 * @return the number of entries in the zip file.
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * Returns whether the zip file contains an entry with the specified name.
+	 *
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @return {@code true} if the zip file contains an entry with the specified name,
+	 * or otherwise {@code false}.
+	 */
+	public boolean contains(String entryName) {
+		Preconditions.checkNotNull(entryName, "entryName should not be null");
+		return find(entryName.getBytes(StandardCharsets.UTF_8)) != -1;
+	}
+
+	/**
+	 * Returns the entry with the specified name. If the zip file contains several entries with
+	 * the same name, the last one is returned.
+	 *
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @return the {@link ZipReaderEntry} with the specified name, or {@code null} if the zip file
+	 * does not contain such an entry.
+	 * @throws ZipException if the entry's central directory header is invalid.
+	 */
+	public @Nullable ZipReaderEntry getEntry(String entryName) throws ZipException {
+		Preconditions.checkNotNull(entryName, "entryName should not be null");
+		final int index = find(entryName.getBytes(StandardCharsets.UTF_8));
+		return index == -1 ? null : readEntry(offsets[index]);
+	}
+
+	/**
+	 * Returns the names of all entries in the zip file in the order of their UTF-8 bytes.
+	 * This decodes every entry name, so it should be avoided for large archives.
+	 *
+	 * @return an {@link ImmutableList} of entry names.
+	 */
+	public ImmutableList<String> getEntryNames() {
+		final ImmutableList.Builder<String> names = ImmutableList.builder();
+
+		for (int offset : offsets) {
+			names.add(getName(offset));
+		}
+
+		return names.build();
+	}
+
+	/**
+	 * Returns the uncompressed data of the specified entry as a read-only {@link ByteBuffer}.
+	 * If the entry is stored, the returned {@link ByteBuffer} is a view of the memory-mapped
+	 * zip file. Otherwise, the entry is inflated into a new {@link ByteBuffer}.
+	 *
+	 * @param entry a {@link ZipReaderEntry} that was returned by this {@link ZipReader}.
+	 * @return a {@link ByteBuffer} that contains the uncompressed data of the entry.
+	 * @throws ZipException if the entry is invalid or cannot be read.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ByteBuffer getData(ZipReaderEntry entry) throws IOException {
+		Preconditions.checkNotNull(entry, "entry should not be null");
+		checkReadable(entry);
+
+		if (entry.getSize() > Integer.MAX_VALUE - 8 ||
+				entry.getCompressedSize() > Integer.MAX_VALUE - 8) {
+			throw new ZipException("Entry is too large to be read into a buffer: " + entry);
+		}
+
+		final ByteBuffer data = mapData(entry);
+
+		if (entry.isStored()) {
+			return data;
+		}
+
+		final byte[] bytes = new byte[(int) entry.getSize()];
+
+		try (InputStream in = new EntryInflaterInputStream(
+				new ByteBufferInputStream(data), entry.getCompressedSize()
+		)) {
+			int length = 0;
+
+			while (length < bytes.length) {
+				final int read = in.read(bytes, length, bytes.length - length);
+
+				if (read == -1) {
+					throw new ZipException("Entry is shorter than its size: " + entry);
+				}
+
+				length += read;
+			}
+		}
+
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns an {@link InputStream} that reads the uncompressed data of the specified entry.
+	 *
+	 * @param entry a {@link ZipReaderEntry} that was returned by this {@link ZipReader}.
+	 * @return an {@link InputStream} that reads the uncompressed data of the entry.
+	 * @throws ZipException if the entry is invalid or cannot be read.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public InputStream newInputStream(ZipReaderEntry entry) throws IOException {
+		Preconditions.checkNotNull(entry, "entry should not be null");
+		checkReadable(entry);
+
+		final long dataOffset = getDataOffset(entry);
+		final InputStream in;
+
+		//Entries that are too large to be mapped as a single buffer are read from the channel.
+		if (entry.getCompressedSize() > Integer.MAX_VALUE) {
+			in = new ChannelRangeInputStream(dataOffset, entry.getCompressedSize());
+		} else {
+			in = new ByteBufferInputStream(map(dataOffset, entry.getCompressedSize()));
+		}
+
+		return entry.isStored() ? in : new EntryInflaterInputStream(in, entry.getCompressedSize());
+	}
+
+	long getFileSize() {
+		return fileSize;
+	}
+
+	long getCentralDirectoryOffset() {
+		return centralDirectoryOffset;
+	}
+
+	/**
+	 * Returns the entry at the specified index in name order.
+	 */
+	ZipReaderEntry getEntry(int index) throws ZipException {
+		return readEntry(offsets[index]);
+	}
+
+	/**
+	 * Returns a copy of the central directory header at the specified index in name order.
+	 */
+	byte[] getCentralHeader(int index) {
+		final int offset = offsets[index];
+		final byte[] header = new byte[ZipFormat.CENTRAL_HEADER_SIZE +
+				getUnsignedShort(offset + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET) +
+				getUnsignedShort(offset + ZipFormat.CENTRAL_EXTRA_LENGTH_OFFSET) +
+				getUnsignedShort(offset + ZipFormat.CENTRAL_COMMENT_LENGTH_OFFSET)];
+		final ByteBuffer duplicate = centralDirectory.duplicate();
+		duplicate.position(offset);
+		duplicate.get(header);
+		return header;
+	}
+
+	/**
+	 * Returns the number of bytes taken up by the specified entry's local header, data and data
+	 * descriptor.
+	 */
+	long getRecordLength(ZipReaderEntry entry) throws IOException {
+		final long dataEnd = getDataOffset(entry) + entry.getCompressedSize();
+		long length = dataEnd - entry.getLocalHeaderOffset();
+
+		if ((entry.getFlags() & ZipFormat.DATA_DESCRIPTOR_FLAG) != 0) {
+			final boolean zip64 = entry.getSize() >= ZipFormat.ZIP64_MAGIC ||
+					entry.getCompressedSize() >= ZipFormat.ZIP64_MAGIC;
+			length += zip64 ? ZipFormat.ZIP64_DATA_DESCRIPTOR_SIZE :
+					ZipFormat.DATA_DESCRIPTOR_SIZE;
+
+			//The data descriptor signature is optional.
+			if (dataEnd + 4 <= fileSize && map(dataEnd, 4).order(ByteOrder.LITTLE_ENDIAN).
+					getInt(0) == ZipFormat.DATA_DESCRIPTOR_SIGNATURE) {
+				length += 4;
+			}
+		}
+
+		return length;
+	}
+
+	private void checkReadable(ZipReaderEntry entry) throws ZipException {
+		if ((entry.getFlags() & ZipFormat.ENCRYPTED_FLAG) != 0) {
+			throw new ZipException("Encrypted entries are not supported: " + entry);
+		}
+
+		if (entry.getMethod() != ZipFormat.STORED && entry.getMethod() != ZipFormat.DEFLATED) {
+			throw new ZipException(
+					"Unsupported compression method " + entry.getMethod() + ": " + entry
+			);
+		}
+	}
+
+	/**
+	 * Returns the offset and size of the central directory.
+	 */
+	private long[] findCentralDirectory() throws IOException {
+		final int tailLength = (int) Math.min(
+				fileSize, ZipFormat.END_SIZE + ZipFormat.MAX_COMMENT_LENGTH
+		);
+		final ByteBuffer tail = newBuffer(tailLength);
+		readFully(tail, fileSize - tailLength);
+
+		//The end of central directory record is followed by a comment of unknown length,
+		//so it is found by searching backwards for its signature.
+		int end = tailLength - ZipFormat.END_SIZE;
+
+		while (end >= 0 && (tail.getInt(end) != ZipFormat.END_SIGNATURE ||
+				end + ZipFormat.END_SIZE + (tail.getShort(end + ZipFormat.END_SIZE - 2) & 0xFFFF) >
+						tailLength)) {
+			end--;
+		}
+
+		if (end < 0) {
+			throw new ZipException("End of central directory not found: " + path);
+		}
+
+		long size = tail.getInt(end + ZipFormat.END_SIZE_OFFSET) & ZipFormat.ZIP64_MAGIC;
+		long offset = tail.getInt(end + ZipFormat.END_OFFSET_OFFSET) & ZipFormat.ZIP64_MAGIC;
+		final long endOffset = fileSize - tailLength + end;
+
+		if (endOffset >= ZipFormat.ZIP64_LOCATOR_SIZE) {
+			final ByteBuffer locator = newBuffer(ZipFormat.ZIP64_LOCATOR_SIZE);
+			readFully(locator, endOffset - ZipFormat.ZIP64_LOCATOR_SIZE);
+
+			if (locator.getInt(0) == ZipFormat.ZIP64_LOCATOR_SIGNATURE) {
+				//The ZIP64 end record must lie entirely before its locator.
+				final long zip64EndOffset = locator.getLong(ZipFormat.ZIP64_LOCATOR_END_OFFSET);
+
+				if (zip64EndOffset < 0L || zip64EndOffset > endOffset -
+						ZipFormat.ZIP64_LOCATOR_SIZE - ZipFormat.ZIP64_END_SIZE) {
+					throw new ZipException(
+							"Invalid ZIP64 end of central directory locator: " + path
+					);
+				}
+
+				final ByteBuffer zip64End = newBuffer(ZipFormat.ZIP64_END_SIZE);
+				readFully(zip64End, zip64EndOffset);
+
+				if (zip64End.getInt(0) != ZipFormat.ZIP64_END_SIGNATURE) {
+					throw new ZipException("Invalid ZIP64 end of central directory: " + path);
+				}
+
+				size = zip64End.getLong(ZipFormat.ZIP64_END_SIZE_OFFSET);
+				offset = zip64End.getLong(ZipFormat.ZIP64_END_OFFSET_OFFSET);
+			}
+		}
+
+		if (size > Integer.MAX_VALUE || offset < 0L || offset + size > endOffset) {
+			throw new ZipException("Invalid central directory: " + path);
+		}
+
+		return new long[] {
+				offset, size
+		};
+	}
+
+	private int[] index(ByteBuffer centralDirectory) throws ZipException {
+		//The entry count in the end record is not trusted, as some writers truncate it.
+		int[] headerOffsets = new int[1024];
+		int count = 0;
+
+		for (int offset = 0; offset < centralDirectory.limit(); ) {
+			if (offset > centralDirectory.limit() - ZipFormat.CENTRAL_HEADER_SIZE ||
+					centralDirectory.getInt(offset) != ZipFormat.CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header: " + path);
+			}
+
+			if (count == headerOffsets.length) {
+				headerOffsets = Arrays.copyOf(headerOffsets, count * 2);
+			}
+
+			headerOffsets[count++] = offset;
+			offset += ZipFormat.CENTRAL_HEADER_SIZE +
+					getUnsignedShort(offset + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET) +
+					getUnsignedShort(offset + ZipFormat.CENTRAL_EXTRA_LENGTH_OFFSET) +
+					getUnsignedShort(offset + ZipFormat.CENTRAL_COMMENT_LENGTH_OFFSET);
+
+			if (offset > centralDirectory.limit()) {
+				throw new ZipException("Invalid central directory header: " + path);
+			}
+		}
+
+		headerOffsets = Arrays.copyOf(headerOffsets, count);
+		sort(headerOffsets);
+		return headerOffsets;
+	}
+
+	/**
+	 * Sorts header offsets by entry name. A merge sort is used because it is stable, so entries
+	 * with the same name stay in central directory order.
+	 */
+	private void sort(int[] headerOffsets) {
+		int[] source = headerOffsets;
+		int[] target = new int[headerOffsets.length];
+
+		for (int width = 1; width < headerOffsets.length; width *= 2) {
+			for (int start = 0; start < headerOffsets.length; start += width * 2) {
+				final int middle = Math.min(start + width, headerOffsets.length);
+				final int end = Math.min(start + width * 2, headerOffsets.length);
+				int left = start;
+				int right = middle;
+
+				for (int i = start; i < end; i++) {
+					if (right == end ||
+							(left < middle && compareNames(source[left], source[right]) <= 0)) {
+						target[i] = source[left++];
+					} else {
+						target[i] = source[right++];
+					}
+				}
+			}
+
+			final int[] temporary = source;
+			source = target;
+			target = temporary;
+		}
+
+		if (source != headerOffsets) {
+			System.arraycopy(source, 0, headerOffsets, 0, headerOffsets.length);
+		}
+	}
+
+	private int compareNames(int offset1, int offset2) {
+		final int length1 = getUnsignedShort(offset1 + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET);
+		final int length2 = getUnsignedShort(offset2 + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET);
+		final int length = Math.min(length1, length2);
+		final int name1 = offset1 + ZipFormat.CENTRAL_HEADER_SIZE;
+		final int name2 = offset2 + ZipFormat.CENTRAL_HEADER_SIZE;
+		int i = 0;
+
+		//Names are compared eight bytes at a time until they differ. As the buffer is
+		//little-endian, the first differing byte is the lowest differing byte.
+		for (; i + Long.BYTES <= length; i += Long.BYTES) {
+			final long difference =
+					centralDirectory.getLong(name1 + i) ^ centralDirectory.getLong(name2 + i);
+
+			if (difference != 0L) {
+				i += Long.numberOfTrailingZeros(difference) / Byte.SIZE;
+				return (centralDirectory.get(name1 + i) & 0xFF) -
+						(centralDirectory.get(name2 + i) & 0xFF);
+			}
+		}
+
+		for (; i < length; i++) {
+			final int difference = (centralDirectory.get(name1 + i) & 0xFF) -
+					(centralDirectory.get(name2 + i) & 0xFF);
+
+			if (difference != 0) {
+				return difference;
+			}
+		}
+
+		return length1 - length2;
+	}
+
+	private int compareName(int offset, byte[] name) {
+		final int length = getUnsignedShort(offset + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET);
+		final int start = offset + ZipFormat.CENTRAL_HEADER_SIZE;
+
+		for (int i = 0; i < Math.min(length, name.length); i++) {
+			final int difference = (centralDirectory.get(start + i) & 0xFF) - (name[i] & 0xFF);
+
+			if (difference != 0) {
+				return difference;
+			}
+		}
+
+		return length - name.length;
+	}
+
+	/**
+	 * Returns the index of the last entry with the specified name, or {@code -1}.
+	 */
+	private int find(byte[] name) {
+		int low = 0;
+		int high = offsets.length;
+
+		//Find the first entry whose name is greater than the specified name.
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+
+			if (compareName(offsets[middle], name) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low != 0 && compareName(offsets[low - 1], name) == 0 ? low - 1 : -1;
+	}
+
+	private String getName(int offset) {
+		final byte[] name =
+				new byte[getUnsignedShort(offset + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET)];
+		final ByteBuffer duplicate = centralDirectory.duplicate();
+		duplicate.position(offset + ZipFormat.CENTRAL_HEADER_SIZE);
+		duplicate.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	private ZipReaderEntry readEntry(int offset) throws ZipException {
+		final String name = getName(offset);
+		final int flags = getUnsignedShort(offset + ZipFormat.CENTRAL_FLAGS_OFFSET);
+		final int method = getUnsignedShort(offset + ZipFormat.CENTRAL_METHOD_OFFSET);
+
+		long compressedSize = getUnsignedInt(offset + ZipFormat.CENTRAL_COMPRESSED_SIZE_OFFSET);
+		long size = getUnsignedInt(offset + ZipFormat.CENTRAL_SIZE_OFFSET);
+		long localHeaderOffset = getUnsignedInt(offset + ZipFormat.CENTRAL_LOCAL_HEADER_OFFSET);
+		long lastModifiedTime = ZipFormat.fromDosTime(
+				getUnsignedInt(offset + ZipFormat.CENTRAL_TIME_OFFSET)
+		);
+
+		final int nameLength = getUnsignedShort(offset + ZipFormat.CENTRAL_NAME_LENGTH_OFFSET);
+		final int extraStart = offset + ZipFormat.CENTRAL_HEADER_SIZE + nameLength;
+		final int extraEnd =
+				extraStart + getUnsignedShort(offset + ZipFormat.CENTRAL_EXTRA_LENGTH_OFFSET);
+
+		for (int field = extraStart; field + 4 <= extraEnd; ) {
+			final int id = getUnsignedShort(field);
+			final int fieldEnd = Math.min(field + 4 + getUnsignedShort(field + 2), extraEnd);
+			int position = field + 4;
+
+			if (id == ZipFormat.ZIP64_EXTRA_ID) {
+				//Only the values that overflowed are present, in this order.
+				if (size == ZipFormat.ZIP64_MAGIC && position + 8 <= fieldEnd) {
+					size = centralDirectory.getLong(position);
+					position += 8;
+				}
+
+				if (compressedSize == ZipFormat.ZIP64_MAGIC && position + 8 <= fieldEnd) {
+					compressedSize = centralDirectory.getLong(position);
+					position += 8;
+				}
+
+				if (localHeaderOffset == ZipFormat.ZIP64_MAGIC && position + 8 <= fieldEnd) {
+					localHeaderOffset = centralDirectory.getLong(position);
+				}
+			} else if (id == ZipFormat.EXTENDED_TIMESTAMP_EXTRA_ID && position + 5 <= fieldEnd &&
+					(centralDirectory.get(position) & 1) != 0) {
+				lastModifiedTime = TimeUnit.SECONDS.toMillis(centralDirectory.getInt(position + 1));
+			}
+
+			field = fieldEnd;
+		}
+
+		if (size < 0L || compressedSize < 0L || localHeaderOffset < 0L) {
+			throw new ZipException("Invalid central directory header: " + name);
+		}
+
+		return new ZipReaderEntry(
+				name, flags, method, getUnsignedInt(offset + ZipFormat.CENTRAL_CRC_OFFSET), size,
+				compressedSize, localHeaderOffset, FileTime.fromMillis(lastModifiedTime)
+		);
+	}
+
+	private ByteBuffer mapData(ZipReaderEntry entry) throws IOException {
+		return map(getDataOffset(entry), entry.getCompressedSize());
+	}
+
+	private long getDataOffset(ZipReaderEntry entry) throws IOException {
+		//The extra field in the local header may differ from the one in the central directory.
+		final ByteBuffer header = map(entry.getLocalHeaderOffset(), ZipFormat.LOCAL_HEADER_SIZE).
+				order(ByteOrder.LITTLE_ENDIAN);
+
+		if (header.getInt(0) != ZipFormat.LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header: " + entry);
+		}
+
+		final long dataOffset = entry.getLocalHeaderOffset() + ZipFormat.LOCAL_HEADER_SIZE +
+				(header.getShort(ZipFormat.LOCAL_NAME_LENGTH_OFFSET) & 0xFFFF) +
+				(header.getShort(ZipFormat.LOCAL_EXTRA_LENGTH_OFFSET) & 0xFFFF);
+
+		if (dataOffset + entry.getCompressedSize() > fileSize) {
+			throw new ZipException("Entry data is truncated: " + entry);
+		}
+
+		return dataOffset;
+	}
+
+	private ByteBuffer map(long position, long size) throws IOException {
+		if (position < 0L || size < 0L || position + size > fileSize) {
+			throw new EOFException("Unexpected end of zip file: " + path);
+		}
+
+		if (archive == null) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, position, size).asReadOnlyBuffer();
+		}
+
+		final ByteBuffer slice = archive.duplicate();
+		slice.position((int) position);
+		slice.limit((int) (position + size));
+		return slice.slice().asReadOnlyBuffer();
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, position + buffer.position());
+
+			if (read == -1) {
+				throw new EOFException("Unexpected end of zip file: " + path);
+			}
+		}
+	}
+
+	private int getUnsignedShort(int offset) {
+		return centralDirectory.getShort(offset) & 0xFFFF;
+	}
+
+	private long getUnsignedInt(int offset) {
+		return centralDirectory.getInt(offset) & ZipFormat.ZIP64_MAGIC;
+	}
+
+	private static ByteBuffer newBuffer(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+
+		@Override
+		public long skip(long length) {
+			final int skipped = (int) Math.max(0L, Math.min(length, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	private final class ChannelRangeInputStream extends InputStream {
+		private final long end;
+		private final byte[] singleByte = new byte[1];
+		private long position;
+
+		ChannelRangeInputStream(long position, long length) {
+			this.position = position;
+			end = position + length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (position == end) {
+				return -1;
+			}
+
+			length = (int) Math.min(length, end - position);
+			final int read = channel.read(ByteBuffer.wrap(bytes, offset, length), position);
+
+			if (read == -1) {
+				throw new EOFException("Unexpected end of zip file: " + path);
+			}
+
+			position += read;
+			return read;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(end - position, Integer.MAX_VALUE);
+		}
+	}
+
+	private static final class EntryInflaterInputStream extends InflaterInputStream {
+		private boolean eof;
+		private boolean closed;
+
+		EntryInflaterInputStream(InputStream in, long compressedSize) {
+			//Small entries should not each allocate a full-sized buffer.
+			super(in, new Inflater(true), getBufferSize(compressedSize));
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				super.close();
+				inf.end();
+			}
+		}
+
+		@Override
+		protected void fill() throws IOException {
+			if (eof) {
+				throw new EOFException("Unexpected end of deflated entry data");
+			}
+
+			len = in.read(buf, 0, buf.length);
+
+			//A nowrap Inflater may need an extra byte after the end of the data.
+			if (len == -1) {
+				buf[0] = 0;
+				len = 1;
+				eof = true;
+			}
+
+			inf.setInput(buf, 0, len);
+		}
+
+		private static int getBufferSize(long compressedSize) {
+			return (int) Math.max(1L, Math.min(compressedSize, BUFFER_SIZE));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import java.nio.file.attribute.FileTime;
+
+/**
+ * An entry in a zip file that is being read by a {@link ZipReader}.
+ * {@link ZipReaderEntry}s are immutable.
+ */
+public final class ZipReaderEntry {
+	private final String name;
+	private final int flags;
+	private final int method;
+	private final long crc;
+	private final long size;
+	private final long compressedSize;
+	private final long localHeaderOffset;
+	private final FileTime lastModifiedTime;
+
+	ZipReaderEntry(
+			String name, int flags, int method, long crc, long size, long compressedSize,
+			long localHeaderOffset, FileTime lastModifiedTime
+	) {
+		this.name = name;
+		this.flags = flags;
+		this.method = method;
+		this.crc = crc;
+		this.size = size;
+		this.compressedSize = compressedSize;
+		this.localHeaderOffset = localHeaderOffset;
+		this.lastModifiedTime = lastModifiedTime;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Returns the name of this entry, e.g. {@code a/b.txt}.
+	 *
+	 * @return the name of this entry.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns whether this entry is a directory, i.e. whether its name ends with {@code /}.
+	 *
+	 * @return {@code true} if this entry is a directory, or otherwise {@code false}.
+	 */
+	public boolean isDirectory() {
+		return !name.isEmpty() &&
+				name.charAt(name.length() - 1) == IOConstants.UNIX_DIRECTORY_SEPARATOR;
+	}
+
+	/**
+	 * Returns whether this entry is stored without compression. The data of such entries can be
+	 * read without being copied.
+	 *
+	 * @return {@code true} if this entry is stored, or otherwise {@code false}.
+	 */
+	public boolean isStored() {
+		return method == ZipFormat.STORED;
+	}
+
+	/**
+	 * Returns the CRC-32 of the uncompressed data of this entry.
+	 *
+	 * @return the CRC-32 of this entry.
+	 */
+	public long getCrc() {
+		return crc;
+	}
+
+	/**
+	 * Returns the uncompressed size of this entry in bytes.
+	 *
+	 * @return the uncompressed size of this entry.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the compressed size of this entry in bytes.
+	 *
+	 * @return the compressed size of this entry.
+	 */
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	/**
+	 * Returns the last modified time of this entry.
+	 *
+	 * @return the last modified time of this entry.
+	 */
+	public FileTime getLastModifiedTime() {
+		return lastModifiedTime;
+	}
+
+	int getFlags() {
+		return flags;
+	}
+
+	int getMethod() {
+		return method;
+	}
+
+	long getLocalHeaderOffset() {
+		return localHeaderOffset;
+	}
+}
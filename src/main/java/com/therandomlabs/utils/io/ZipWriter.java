@@ -0,0 +1,1240 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Writes a zip file sequentially without buffering any entry data.
+ * <p>
+ * Unlike writing to a {@link ZipFile}, whose zip filesystem rebuilds the whole archive when it
+ * is closed and buffers entries in memory or in temporary files until then, a {@link ZipWriter}
+ * writes each entry's local header and data straight to a {@link FileChannel}. Once an entry's
+ * data has been written, its sizes and CRC are patched into the local header in place, so no
+ * data descriptors are needed. Only the central directory is kept in memory, and it is written
+ * when the {@link ZipWriter} is closed. ZIP64 extensions are used automatically for large
+ * entries, large archives and archives with more than 65534 entries.
+ * <p>
+ * For example, to add a collection of files as entries while preserving directory structure,
+ * the following code can be used:
+ * <pre>
+ * {@code
+ * try (ZipWriter zipWriter = new ZipWriter(Paths.get("test.zip"))) {
+ *     zipWriter.addPreservingDirectoryStructure(paths);
+ * }
+ * }
+ * </pre>
+ * <p>
+ * Files are compressed in blocks of up to 1 MiB, which can be compressed on a pool of worker
+ * threads. The writer thread writes the compressed blocks to the zip file in the order in
+ * which the files were added, so the output does not depend on the level of parallelism, and
+ * only a bounded number of blocks is held in memory at once. How each entry is compressed is
+ * decided by a {@link ZipCompressionPolicy}. Files with identical contents that are added by the
+ * same call to {@link #addDirectory(Path, String)} or
+ * {@link #addPreservingDirectoryStructure(Collection)} are found by hashing them in parallel
+ * beforehand, and each is compressed only once; the compressed data is then copied from the zip
+ * file for each duplicate. The compressed data is only reused if the bytes that were compressed
+ * and the duplicate's current contents still have the same hash, so files that are modified
+ * while they are being added are compressed as they are read.
+ * <p>
+ * A {@link ZipWriter} that is created with {@link #append(Path)} adds entries to an existing zip
+ * file without rewriting it. New entries are written after the end of the existing zip file,
+ * and a new central directory that also refers to the existing entries is written when the
+ * {@link ZipWriter} is closed. The old central directory, as well as existing entries that are
+ * replaced by entries with the same name or removed with {@link #remove(String)}, are left in
+ * place as dead space, which can later be reclaimed with {@link ZipCompactor}.
+ * Nothing in the existing zip file is overwritten, so until the {@link ZipWriter} has been
+ * closed, the original zip file can be restored by truncating the file to its original size.
+ * This is done automatically if writing the new central directory fails.
+ * <p>
+ * If adding an entry fails with an {@link IOException}, the {@link ZipWriter} cannot be used to
+ * add any more entries, and closing it throws a {@link ZipException} instead of writing a central
+ * directory, so that an incomplete zip file is never mistaken for a complete one. The zip file
+ * is truncated to its original size, or to zero bytes if it was being created.
+ * <p>
+ * Entry names are not checked for duplicates, except that an entry replaces an existing entry
+ * with the same name when appending. {@link ZipWriter}s are not thread-safe.
+ */
+public final class ZipWriter implements AutoCloseable {
+	private static final int BUFFER_SIZE = 64 << 10;
+	private static final int BLOCK_SIZE = 1 << 20;
+	//The number of blocks per thread that may be compressed or waiting to be written at once.
+	private static final int BLOCKS_PER_THREAD = 2;
+	private static final byte[] NO_INPUT = new byte[0];
+	private static final int MAX_NAME_LENGTH = 0xFFFF;
+	private static final int ZIP64_LOCAL_EXTRA_SIZE = 20;
+
+	//Entries at least this large reserve a ZIP64 extra field in their local headers, as their
+	//compressed size might not fit in 32 bits. Deflate expands incompressible data by far less
+	//than the difference between this and ZipFormat.ZIP64_MAGIC.
+	private static final long ZIP64_THRESHOLD = 0xF0000000L;
+
+	private final Path path;
+	private final ZipCompressionPolicy compressionPolicy;
+	private final int parallelism;
+	private final @Nullable ForkJoinPool pool;
+	private final FileChannel channel;
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	//The Deflaters that compress blocks, which are ended when this ZipWriter is closed.
+	private final DeflaterPool blockDeflaters = new DeflaterPool();
+	private final CRC32 crc = new CRC32();
+	private final byte[] outputBuffer = new byte[BUFFER_SIZE];
+	private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+	//Entries whose blocks are being compressed or have not yet been written, in order.
+	private final Deque<PendingEntry> pendingEntries = new ArrayDeque<>();
+	//The first entry that was added for each distinct hashed file, so that duplicates can reuse
+	//its compressed data.
+	private final Map<ContentKey, PendingEntry> entriesByContent = new HashMap<>();
+	//Entries that were in the zip file before it was opened for appending.
+	private final Map<String, ZipLayout.Record> existingRecords;
+	//The size of the zip file before it was opened for appending, or -1 if it is being created.
+	private final long originalSize;
+	private long deadSpace;
+	private int pendingBlocks;
+	private long entryCount;
+	private boolean entryOpen;
+	//Whether adding an entry has failed, in which case the zip file is not completed.
+	private boolean failed;
+	private boolean closed;
+
+	/**
+	 * Creates a new {@link ZipWriter} that writes a zip file to the specified {@link Path}
+	 * using the default {@link ZipCompressionPolicy} on the calling thread.
+	 * If a file already exists at the specified {@link Path}, it is replaced.
+	 *
+	 * @param path a {@link Path}.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ZipWriter(Path path) throws IOException {
+		this(path, ZipCompressionPolicy.defaults(), 1);
+	}
+
+	/**
+	 * Creates a new {@link ZipWriter} that writes a zip file to the specified {@link Path}
+	 * using the specified {@link ZipCompressionPolicy} and number of compression threads.
+	 * If a file already exists at the specified {@link Path}, it is replaced.
+	 *
+	 * @param path a {@link Path}.
+	 * @param compressionPolicy a {@link ZipCompressionPolicy}.
+	 * @param parallelism the number of threads that compress entries. If this is {@code 1},
+	 * entries are compressed on the calling thread.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ZipWriter(Path path, ZipCompressionPolicy compressionPolicy, int parallelism)
+			throws IOException {
+		this(path, compressionPolicy, parallelism, null);
+	}
+
+	private ZipWriter(
+			Path path, ZipCompressionPolicy compressionPolicy, int parallelism,
+			@Nullable ZipLayout layout
+	) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		Preconditions.checkNotNull(compressionPolicy, "compressionPolicy should not be null");
+		Preconditions.checkArgument(parallelism > 0, "parallelism should be positive");
+		this.path = path;
+		this.compressionPolicy = compressionPolicy;
+		this.parallelism = parallelism;
+
+		if (layout == null) {
+			//The zip file is also read so that compressed data can be copied for duplicates.
+			channel = FileChannel.open(
+					path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING
+			);
+			existingRecords = new LinkedHashMap<>();
+			originalSize = -1L;
+		} else {
+			channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			originalSize = layout.getFileSize();
+			channel.position(originalSize);
+			existingRecords = new LinkedHashMap<>(layout.getRecords());
+			//The old central directory and end records become dead space once the new ones
+			//have been written.
+			deadSpace = layout.getDeadSpace() + originalSize - layout.getCentralDirectoryOffset();
+		}
+
+		pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Writes the central directory and closes the zip file.
+	 * If adding an entry has failed, the zip file is truncated instead.
+	 *
+	 * @throws ZipException if adding an entry has failed.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalStateException if an entry {@link OutputStream} has not been closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+
+		try {
+			Preconditions.checkState(!entryOpen, "an entry has not been closed");
+
+			if (failed) {
+				throw new ZipException(
+						"Adding an entry failed, so the zip file is incomplete: " + path
+				);
+			}
+
+			writePendingEntries(0);
+			writeEnd();
+		} catch (IOException | RuntimeException ex) {
+			try {
+				channel.truncate(Math.max(originalSize, 0L));
+			} catch (IOException ex2) {
+				ex.addSuppressed(ex2);
+			}
+
+			throw ex;
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+
+			deflater.end();
+			blockDeflaters.close();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the {@link Path} to the zip file that is being written.
+	 *
+	 * @return the {@link Path} to the zip file that is being written.
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Returns the {@link ZipCompressionPolicy} that decides how entries are compressed.
+	 *
+	 * @return the {@link ZipCompressionPolicy} of this {@link ZipWriter}.
+	 */
+	public ZipCompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
+	}
+
+	/**
+	 * Returns the number of threads that compress entries.
+	 *
+	 * @return the number of threads that compress entries.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Returns the number of entries that have been written by this {@link ZipWriter}.
+	 * Entries that have been added but are still being compressed are not counted, and neither
+	 * are existing entries when appending.
+	 *
+	 * @return the number of entries that have been written.
+	 */
+	public long getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Returns the number of bytes in the zip file that are taken up by entries that are no longer
+	 * referenced by its central directory, i.e. entries that have been replaced or removed.
+	 *
+	 * @return the number of bytes of dead space in the zip file.
+	 */
+	public long getDeadSpace() {
+		return deadSpace;
+	}
+
+	/**
+	 * Removes the entry with the specified name that was in the zip file before it was opened
+	 * for appending. The entry's data is left in place as dead space.
+	 *
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @return {@code true} if the entry was removed, or {@code false} if no existing entry has the
+	 * specified name.
+	 */
+	public boolean remove(String entryName) {
+		Preconditions.checkNotNull(entryName, "entryName should not be null");
+		Preconditions.checkState(!closed, "ZipWriter has been closed");
+		final ZipLayout.Record removed = existingRecords.remove(entryName);
+
+		if (removed == null) {
+			return false;
+		}
+
+		deadSpace += removed.getLength();
+		return true;
+	}
+
+	/**
+	 * Begins a new entry and returns an {@link OutputStream} that writes its data.
+	 * The entry is compressed on the calling thread with the default level of the
+	 * {@link ZipCompressionPolicy}. The entry is completed when the {@link OutputStream} is
+	 * closed, and no other entry may be added until then.
+	 *
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @param lastModifiedTime the last modified time of the entry.
+	 * @return an {@link OutputStream} that writes the entry's data.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public OutputStream newEntry(String entryName, FileTime lastModifiedTime) throws IOException {
+		Preconditions.checkNotNull(lastModifiedTime, "lastModifiedTime should not be null");
+		final byte[] name = toName(entryName);
+		final int level = compressionPolicy.getLevel();
+
+		//Entries that have already been added must be written first.
+		try {
+			writePendingEntries(0);
+		} catch (IOException ex) {
+			failed = true;
+			throw ex;
+		}
+
+		deflater.setLevel(level);
+		final EntryOutputStream entry = new EntryOutputStream(
+				name, lastModifiedTime.toMillis(),
+				level == Deflater.NO_COMPRESSION ? ZipFormat.STORED : ZipFormat.DEFLATED
+		);
+		entryOpen = true;
+		return entry;
+	}
+
+	/**
+	 * Adds the specified file as an entry with the specified name. The compression level is
+	 * chosen by the {@link ZipCompressionPolicy}.
+	 *
+	 * @param file a {@link Path} to a file.
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void addFile(Path file, String entryName) throws IOException {
+		addFile(file, entryName, null, null);
+	}
+
+	/**
+	 * Adds the specified file as an entry with the specified name and compression level.
+	 *
+	 * @param file a {@link Path} to a file.
+	 * @param entryName an entry name, e.g. {@code a/b.txt}.
+	 * @param level a compression level, or {@link Deflater#NO_COMPRESSION} to store the entry.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void addFile(Path file, String entryName, int level) throws IOException {
+		Preconditions.checkArgument(
+				level == Deflater.DEFAULT_COMPRESSION ||
+						(level >= Deflater.NO_COMPRESSION && level <= Deflater.BEST_COMPRESSION),
+				"level should be a valid compression level"
+		);
+		addFile(file, entryName, level, null);
+	}
+
+	/**
+	 * Recursively adds the contents of the specified directory to the root of the zip file.
+	 * An entry is written for each directory, including empty directories.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void addDirectory(Path directory) throws IOException {
+		addDirectory(directory, "");
+	}
+
+	/**
+	 * Recursively adds the contents of the specified directory to the zip file under the
+	 * specified entry name prefix.
+	 * An entry is written for each directory, including empty directories.
+	 *
+	 * @param directory a {@link Path} to a directory.
+	 * @param entryPrefix the entry name of the directory, e.g. {@code a/b}, or an empty string
+	 * for the root of the zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void addDirectory(Path directory, String entryPrefix) throws IOException {
+		Preconditions.checkNotNull(directory, "directory should not be null");
+		Preconditions.checkArgument(
+				Files.isDirectory(directory), "directory should be a directory"
+		);
+		Preconditions.checkNotNull(entryPrefix, "entryPrefix should not be null");
+
+		if (!entryPrefix.isEmpty() &&
+				entryPrefix.charAt(entryPrefix.length() - 1) !=
+						IOConstants.UNIX_DIRECTORY_SEPARATOR) {
+			entryPrefix += IOConstants.UNIX_DIRECTORY_SEPARATOR;
+		}
+
+		final Map<Path, HashCode> hashes = compressionPolicy.isDeduplicating() ?
+				hashDuplicateCandidates(directory) : Collections.emptyMap();
+
+		try {
+			Files.walkFileTree(
+					directory, new ZipWriterFileVisitor(directory, entryPrefix, hashes)
+			);
+		} catch (IOException ex) {
+			failed = true;
+			throw ex;
+		}
+	}
+
+	/**
+	 * Adds the specified files to the zip file while preserving directory structure.
+	 * This is done in the same way as
+	 * {@link NIOUtils#copyPreservingDirectoryStructure(Collection, Path,
+	 * java.nio.file.CopyOption...)}: entry names are relative to the common ancestor of the
+	 * files, or if there is only one file, the entry name is its file name.
+	 *
+	 * @param files a collection of {@link Path}s to files.
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the files have no common ancestor, e.g. because they
+	 * are on different drives.
+	 */
+	public void addPreservingDirectoryStructure(Collection<Path> files) throws IOException {
+		Preconditions.checkNotNull(files, "files should not be null");
+
+		if (files.isEmpty()) {
+			return;
+		}
+
+		if (files.size() == 1) {
+			final Path file = files.iterator().next();
+			addFile(file, PathUtils.getFileName(file));
+			return;
+		}
+
+		final List<Path> normalized = files.stream().
+				map(file -> file.toAbsolutePath().normalize()).
+				collect(Collectors.toList());
+		final Path commonAncestor = PathUtils.getCommonAncestor(normalized);
+		Preconditions.checkArgument(
+				commonAncestor != null,
+				"files should have a common ancestor, e.g. be on the same drive"
+		);
+		final Map<Path, HashCode> hashes = compressionPolicy.isDeduplicating() ?
+				hashDuplicateCandidates(normalized) : Collections.emptyMap();
+
+		for (Path file : normalized) {
+			addFile(
+					file,
+					PathUtils.withUnixDirectorySeparators(commonAncestor.relativize(file)), null,
+					hashes.get(file)
+			);
+		}
+	}
+
+	/**
+	 * Returns a {@link ZipWriter} that adds entries to the existing zip file at the specified
+	 * {@link Path} using the default {@link ZipCompressionPolicy} on the calling thread.
+	 *
+	 * @param path a {@link Path} to an existing zip file.
+	 * @return a {@link ZipWriter} that appends to the zip file.
+	 * @throws ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static ZipWriter append(Path path) throws IOException {
+		return append(path, ZipCompressionPolicy.defaults(), 1);
+	}
+
+	/**
+	 * Returns a {@link ZipWriter} that adds entries to the existing zip file at the specified
+	 * {@link Path} using the specified {@link ZipCompressionPolicy} and number of compression
+	 * threads.
+	 *
+	 * @param path a {@link Path} to an existing zip file.
+	 * @param compressionPolicy a {@link ZipCompressionPolicy}.
+	 * @param parallelism the number of threads that compress entries.
+	 * @return a {@link ZipWriter} that appends to the zip file.
+	 * @throws ZipException if the file is not a valid zip file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static ZipWriter append(
+			Path path, ZipCompressionPolicy compressionPolicy, int parallelism
+	) throws IOException {
+		Preconditions.checkNotNull(path, "path should not be null");
+		return new ZipWriter(path, compressionPolicy, parallelism, ZipLayout.read(path));
+	}
+
+	private void addFile(
+			Path file, String entryName, @Nullable Integer level, @Nullable HashCode hash
+	) throws IOException {
+		Preconditions.checkNotNull(file, "file should not be null");
+		Preconditions.checkArgument(Files.isRegularFile(file), "file should be a file");
+
+		final byte[] name = toName(entryName);
+
+		try {
+			addFileEntry(file, name, entryName, level, hash);
+		} catch (IOException ex) {
+			failed = true;
+			throw ex;
+		}
+	}
+
+	private void addFileEntry(
+			Path file, byte[] name, String entryName, @Nullable Integer level,
+			@Nullable HashCode hash
+	) throws IOException {
+		final BasicFileAttributes attributes =
+				Files.readAttributes(file, BasicFileAttributes.class);
+		//The extension level is part of the key so that a duplicate is only reused if it would
+		//have been compressed in the same way. Any other rule depends only on the data.
+		//If the file's size has changed since it was hashed, it is not treated as a duplicate.
+		final Integer extensionLevel =
+				hash == null ? null : compressionPolicy.getExtensionLevel(entryName);
+		final ContentKey key =
+				hash == null ? null : new ContentKey(hash, attributes.size(), extensionLevel);
+		@Nullable PendingEntry original = null;
+
+		if (key != null) {
+			original = entriesByContent.get(key);
+
+			//The file is hashed again in case it has been modified since it was first hashed.
+			//No entry is open, so the output buffer is free.
+			if (original != null && !key.hash.equals(ForkJoinHashTask.hash(file, outputBuffer))) {
+				original = null;
+			}
+		}
+
+		if (original != null) {
+			final PendingEntry entry = new PendingEntry(
+					name, attributes.lastModifiedTime().toMillis(), original.method,
+					original.zip64
+			);
+			entry.original = original;
+			entry.complete = true;
+			pendingEntries.add(entry);
+			writePendingEntries(parallelism * BLOCKS_PER_THREAD);
+			return;
+		}
+
+		long remaining = attributes.size();
+		//Entries are only registered as originals under the hash of the data that was actually
+		//compressed, which might differ from the earlier hash if the file has been modified.
+		final Hasher hasher = key == null ? null : Hashing.sha256().newHasher();
+		long hashedLength = 0L;
+
+		try (InputStream in = Files.newInputStream(file)) {
+			byte[] block = new byte[getBlockSize(remaining)];
+			int length = readFully(in, block);
+			final int entryLevel = level == null ?
+					compressionPolicy.getLevel(entryName, block, length) : level;
+			final PendingEntry entry = new PendingEntry(
+					name, attributes.lastModifiedTime().toMillis(),
+					entryLevel == Deflater.NO_COMPRESSION ? ZipFormat.STORED : ZipFormat.DEFLATED,
+					attributes.size() >= ZIP64_THRESHOLD
+			);
+			pendingEntries.add(entry);
+			byte[] previousBlock = NO_INPUT;
+			int previousLength = 0;
+
+			//Each block is read before the previous one is submitted so that the last block
+			//can be identified.
+			while (true) {
+				remaining -= length;
+				final byte[] nextBlock = new byte[getBlockSize(remaining)];
+				final int nextLength = readFully(in, nextBlock);
+				final boolean last = nextLength == 0;
+
+				if (hasher != null) {
+					hasher.putBytes(block, 0, length);
+					hashedLength += length;
+				}
+
+				submit(entry, new DeflateBlockTask(
+						blockDeflaters, block, length, previousBlock, previousLength, entryLevel,
+						last
+				));
+
+				if (last) {
+					break;
+				}
+
+				previousBlock = block;
+				previousLength = length;
+				block = nextBlock;
+				length = nextLength;
+			}
+
+			entry.complete = true;
+
+			if (hasher != null) {
+				entriesByContent.putIfAbsent(
+						new ContentKey(hasher.hash(), hashedLength, extensionLevel), entry
+				);
+			}
+		}
+
+		writePendingEntries(parallelism * BLOCKS_PER_THREAD);
+	}
+
+	private Map<Path, HashCode> hashDuplicateCandidates(Path directory) throws IOException {
+		final DuplicateFileFinder finder = new DuplicateFileFinder();
+
+		Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+				if (attributes.isRegularFile()) {
+					finder.add(file, attributes.size());
+				}
+
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return finder.hashCandidates(pool);
+	}
+
+	private Map<Path, HashCode> hashDuplicateCandidates(List<Path> files) throws IOException {
+		final DuplicateFileFinder finder = new DuplicateFileFinder();
+
+		for (Path file : files) {
+			if (Files.isRegularFile(file)) {
+				finder.add(file, Files.size(file));
+			}
+		}
+
+		return finder.hashCandidates(pool);
+	}
+
+	private void addDirectoryEntry(String entryName, long lastModifiedTime) throws IOException {
+		final PendingEntry entry =
+				new PendingEntry(toName(entryName), lastModifiedTime, ZipFormat.STORED, false);
+		entry.complete = true;
+		pendingEntries.add(entry);
+
+		try {
+			writePendingEntries(parallelism * BLOCKS_PER_THREAD);
+		} catch (IOException ex) {
+			failed = true;
+			throw ex;
+		}
+	}
+
+	private byte[] toName(String entryName) {
+		Preconditions.checkNotNull(entryName, "entryName should not be null");
+		Preconditions.checkArgument(!entryName.isEmpty(), "entryName should not be empty");
+		Preconditions.checkArgument(
+				entryName.charAt(0) != IOConstants.UNIX_DIRECTORY_SEPARATOR,
+				"entryName should not start with a separator"
+		);
+		Preconditions.checkState(!closed, "ZipWriter has been closed");
+		Preconditions.checkState(!failed, "adding an entry has failed");
+		Preconditions.checkState(!entryOpen, "an entry has not been closed");
+
+		final byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+		Preconditions.checkArgument(name.length <= MAX_NAME_LENGTH, "entryName is too long");
+
+		//The entry replaces any existing entry with the same name.
+		remove(entryName);
+		return name;
+	}
+
+	/**
+	 * Copies the specified record from the specified zip file without recompressing it.
+	 */
+	void copyRecord(FileChannel source, ZipLayout.Record record) throws IOException {
+		Preconditions.checkState(!closed, "ZipWriter has been closed");
+		Preconditions.checkState(!failed, "adding an entry has failed");
+		Preconditions.checkState(!entryOpen, "an entry has not been closed");
+
+		final long offset;
+
+		try {
+			writePendingEntries(0);
+			offset = channel.position();
+			copyRecordData(source, record);
+		} catch (IOException ex) {
+			failed = true;
+			throw ex;
+		}
+
+		final byte[] header = record.getCentralHeader(offset);
+		centralDirectory.write(header, 0, header.length);
+		entryCount++;
+	}
+
+	private void copyRecordData(FileChannel source, ZipLayout.Record record) throws IOException {
+		for (long copied = 0L; copied < record.getLength(); ) {
+			final long transferred = source.transferTo(
+					record.getOffset() + copied, record.getLength() - copied, channel
+			);
+
+			if (transferred <= 0L) {
+				throw new ZipException("Record is truncated at offset " + record.getOffset());
+			}
+
+			copied += transferred;
+		}
+	}
+
+	private void submit(PendingEntry entry, DeflateBlockTask task) throws IOException {
+		entry.blocks.add(task);
+		pendingBlocks++;
+
+		if (pool == null) {
+			task.invoke();
+		} else {
+			pool.execute(task);
+		}
+
+		writePendingEntries(parallelism * BLOCKS_PER_THREAD);
+	}
+
+	/**
+	 * Writes pending entries in order until at most the specified number of blocks are pending
+	 * or the first pending entry is waiting for blocks that have not yet been submitted.
+	 */
+	private void writePendingEntries(int maxPendingBlocks) throws IOException {
+		while (!pendingEntries.isEmpty()) {
+			final PendingEntry entry = pendingEntries.element();
+
+			if (entry.headerOffset == -1L) {
+				entry.headerOffset = channel.position();
+				writeLocalHeader(entry.name, entry.lastModifiedTime, entry.method, entry.zip64);
+				entry.dataOffset = channel.position();
+
+				//The original entry comes first, so it has already been written.
+				final PendingEntry original = entry.original;
+
+				if (original != null) {
+					copyData(original.dataOffset, original.compressedSize);
+					entry.crc = original.crc;
+					entry.size = original.size;
+					entry.compressedSize = original.compressedSize;
+				}
+			}
+
+			if (!entry.blocks.isEmpty()) {
+				if (pendingBlocks <= maxPendingBlocks) {
+					return;
+				}
+
+				final DeflateBlockTask block = entry.blocks.remove();
+				pendingBlocks--;
+				block.join();
+				write(ByteBuffer.wrap(block.getOutput(), 0, block.getOutputLength()));
+				entry.crc = ZipFormat.combineCrc32(entry.crc, block.getCrc(), block.getLength());
+				entry.size += block.getLength();
+				entry.compressedSize += block.getOutputLength();
+				continue;
+			}
+
+			if (!entry.complete) {
+				return;
+			}
+
+			pendingEntries.remove();
+			finishEntry(
+					entry.headerOffset, entry.name, entry.lastModifiedTime, entry.method,
+					entry.zip64, entry.crc, entry.size, entry.compressedSize
+			);
+		}
+	}
+
+	private void writeLocalHeader(
+			byte[] name, long lastModifiedTime, int method, boolean zip64
+	) throws IOException {
+		final boolean timestamp = ZipFormat.fitsExtendedTimestamp(lastModifiedTime);
+		final int extraLength = (zip64 ? ZIP64_LOCAL_EXTRA_SIZE : 0) +
+				(timestamp ? ZipFormat.EXTENDED_TIMESTAMP_EXTRA_SIZE : 0);
+		final ByteBuffer header =
+				newBuffer(ZipFormat.LOCAL_HEADER_SIZE + name.length + extraLength);
+
+		header.putInt(ZipFormat.LOCAL_HEADER_SIGNATURE);
+		header.putShort(
+				(short) (zip64 ? ZipFormat.VERSION_NEEDED_ZIP64 : ZipFormat.VERSION_NEEDED)
+		);
+		header.putShort((short) ZipFormat.UTF8_FLAG);
+		header.putShort((short) method);
+		header.putInt((int) ZipFormat.toDosTime(lastModifiedTime));
+		//The CRC and sizes are patched in once the data has been written.
+		header.putInt(0);
+		header.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : 0);
+		header.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : 0);
+		header.putShort((short) name.length);
+		header.putShort((short) extraLength);
+		header.put(name);
+
+		if (zip64) {
+			header.putShort((short) ZipFormat.ZIP64_EXTRA_ID);
+			header.putShort((short) (ZIP64_LOCAL_EXTRA_SIZE - 4));
+			header.putLong(0L);
+			header.putLong(0L);
+		}
+
+		if (timestamp) {
+			putExtendedTimestamp(header, lastModifiedTime);
+		}
+
+		header.flip();
+		write(header);
+	}
+
+	private void finishEntry(
+			long headerOffset, byte[] name, long lastModifiedTime, int method, boolean zip64,
+			long crc, long size, long compressedSize
+	) throws IOException {
+		checkLocalSizes(name, zip64, size, compressedSize);
+
+		final ByteBuffer patch = newBuffer(12);
+		patch.putInt((int) crc);
+		patch.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) compressedSize);
+		patch.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) size);
+		patch.flip();
+		write(patch, headerOffset + ZipFormat.LOCAL_CRC_OFFSET);
+
+		if (zip64) {
+			final ByteBuffer sizes = newBuffer(16);
+			sizes.putLong(size);
+			sizes.putLong(compressedSize);
+			sizes.flip();
+			write(sizes, headerOffset + ZipFormat.LOCAL_HEADER_SIZE + name.length + 4);
+		}
+
+		writeCentralHeader(
+				headerOffset, name, lastModifiedTime, method, zip64, crc, size, compressedSize
+		);
+	}
+
+	/**
+	 * Throws a {@link ZipException} if the specified sizes do not fit in a local header that has
+	 * no ZIP64 extra field, which can happen if a file grows while it is being added.
+	 */
+	static void checkLocalSizes(byte[] name, boolean zip64, long size, long compressedSize)
+			throws ZipException {
+		if (!zip64 && (size >= ZipFormat.ZIP64_MAGIC || compressedSize >= ZipFormat.ZIP64_MAGIC)) {
+			throw new ZipException(
+					"Entry grew too large while it was being written: " +
+							new String(name, StandardCharsets.UTF_8)
+			);
+		}
+	}
+
+	private void writeCentralHeader(
+			long headerOffset, byte[] name, long lastModifiedTime, int method,
+			boolean zip64Reserved, long crc, long size, long compressedSize
+	) {
+		final boolean zip64Sizes =
+				size >= ZipFormat.ZIP64_MAGIC || compressedSize >= ZipFormat.ZIP64_MAGIC;
+		final boolean zip64Offset = headerOffset >= ZipFormat.ZIP64_MAGIC;
+		final int zip64Length = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+		final boolean timestamp = ZipFormat.fitsExtendedTimestamp(lastModifiedTime);
+		final int extraLength = (zip64Length == 0 ? 0 : 4 + zip64Length) +
+				(timestamp ? ZipFormat.EXTENDED_TIMESTAMP_EXTRA_SIZE : 0);
+		final boolean directory =
+				name[name.length - 1] == IOConstants.UNIX_DIRECTORY_SEPARATOR;
+		final int versionNeeded = zip64Reserved || zip64Length != 0 ?
+				ZipFormat.VERSION_NEEDED_ZIP64 : ZipFormat.VERSION_NEEDED;
+		final ByteBuffer header =
+				newBuffer(ZipFormat.CENTRAL_HEADER_SIZE + name.length + extraLength);
+
+		header.putInt(ZipFormat.CENTRAL_HEADER_SIGNATURE);
+		header.putShort((short) ZipFormat.VERSION_NEEDED_ZIP64);
+		header.putShort((short) versionNeeded);
+		header.putShort((short) ZipFormat.UTF8_FLAG);
+		header.putShort((short) method);
+		header.putInt((int) ZipFormat.toDosTime(lastModifiedTime));
+		header.putInt((int) crc);
+		header.putInt(zip64Sizes ? (int) ZipFormat.ZIP64_MAGIC : (int) compressedSize);
+		header.putInt(zip64Sizes ? (int) ZipFormat.ZIP64_MAGIC : (int) size);
+		header.putShort((short) name.length);
+		header.putShort((short) extraLength);
+		//The comment length, disk number and internal attributes.
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putShort((short) 0);
+		header.putInt(directory ? ZipFormat.DIRECTORY_ATTRIBUTE : 0);
+		header.putInt(zip64Offset ? (int) ZipFormat.ZIP64_MAGIC : (int) headerOffset);
+		header.put(name);
+
+		if (zip64Length != 0) {
+			header.putShort((short) ZipFormat.ZIP64_EXTRA_ID);
+			header.putShort((short) zip64Length);
+
+			if (zip64Sizes) {
+				header.putLong(size);
+				header.putLong(compressedSize);
+			}
+
+			if (zip64Offset) {
+				header.putLong(headerOffset);
+			}
+		}
+
+		if (timestamp) {
+			putExtendedTimestamp(header, lastModifiedTime);
+		}
+
+		centralDirectory.write(header.array(), 0, header.position());
+		entryCount++;
+	}
+
+	private void writeEnd() throws IOException {
+		final long centralDirectoryOffset = channel.position();
+
+		for (ZipLayout.Record record : existingRecords.values()) {
+			write(ByteBuffer.wrap(record.getCentralHeader()));
+		}
+
+		centralDirectory.writeTo(Channels.newOutputStream(channel));
+		final long totalEntryCount = entryCount + existingRecords.size();
+		final long centralDirectorySize = channel.position() - centralDirectoryOffset;
+		final boolean zip64 = totalEntryCount >= ZipFormat.ZIP64_MAGIC_COUNT ||
+				centralDirectoryOffset >= ZipFormat.ZIP64_MAGIC ||
+				centralDirectorySize >= ZipFormat.ZIP64_MAGIC;
+
+		if (zip64) {
+			final long zip64EndOffset = channel.position();
+			final ByteBuffer zip64End =
+					newBuffer(ZipFormat.ZIP64_END_SIZE + ZipFormat.ZIP64_LOCATOR_SIZE);
+
+			zip64End.putInt(ZipFormat.ZIP64_END_SIGNATURE);
+			zip64End.putLong(ZipFormat.ZIP64_END_SIZE - 12);
+			zip64End.putShort((short) ZipFormat.VERSION_NEEDED_ZIP64);
+			zip64End.putShort((short) ZipFormat.VERSION_NEEDED_ZIP64);
+			//The disk numbers.
+			zip64End.putInt(0);
+			zip64End.putInt(0);
+			zip64End.putLong(totalEntryCount);
+			zip64End.putLong(totalEntryCount);
+			zip64End.putLong(centralDirectorySize);
+			zip64End.putLong(centralDirectoryOffset);
+
+			zip64End.putInt(ZipFormat.ZIP64_LOCATOR_SIGNATURE);
+			zip64End.putInt(0);
+			zip64End.putLong(zip64EndOffset);
+			zip64End.putInt(1);
+			zip64End.flip();
+			write(zip64End);
+		}
+
+		final ByteBuffer end = newBuffer(ZipFormat.END_SIZE);
+		end.putInt(ZipFormat.END_SIGNATURE);
+		//The disk numbers.
+		end.putShort((short) 0);
+		end.putShort((short) 0);
+		end.putShort((short) (zip64 ? ZipFormat.ZIP64_MAGIC_COUNT : totalEntryCount));
+		end.putShort((short) (zip64 ? ZipFormat.ZIP64_MAGIC_COUNT : totalEntryCount));
+		end.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) centralDirectorySize);
+		end.putInt(zip64 ? (int) ZipFormat.ZIP64_MAGIC : (int) centralDirectoryOffset);
+		//The comment length.
+		end.putShort((short) 0);
+		end.flip();
+		write(end);
+	}
+
+	private void copyData(long position, long length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(outputBuffer);
+
+		for (long copied = 0L; copied < length; ) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), length - copied));
+			final int read = channel.read(buffer, position + copied);
+
+			if (read <= 0) {
+				throw new ZipException("Entry data is truncated at offset " + position);
+			}
+
+			buffer.flip();
+			write(buffer);
+			copied += read;
+		}
+	}
+
+	private void write(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private void write(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static int getBlockSize(long remaining) {
+		//If the file has grown, at least one more byte is read so that EOF can be detected.
+		return (int) Math.max(1L, Math.min(remaining, BLOCK_SIZE));
+	}
+
+	private static int readFully(InputStream in, byte[] buffer) throws IOException {
+		int length = 0;
+
+		while (length < buffer.length) {
+			final int read = in.read(buffer, length, buffer.length - length);
+
+			if (read == -1) {
+				break;
+			}
+
+			length += read;
+		}
+
+		return length;
+	}
+
+	private static ByteBuffer newBuffer(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void putExtendedTimestamp(ByteBuffer buffer, long lastModifiedTime) {
+		buffer.putShort((short) ZipFormat.EXTENDED_TIMESTAMP_EXTRA_ID);
+		buffer.putShort((short) (ZipFormat.EXTENDED_TIMESTAMP_EXTRA_SIZE - 4));
+		//Only the last modified time is present.
+		buffer.put((byte) 1);
+		buffer.putInt((int) Math.floorDiv(lastModifiedTime, 1000L));
+	}
+
+	private static final class PendingEntry {
+		final byte[] name;
+		final long lastModifiedTime;
+		final int method;
+		final boolean zip64;
+		final Deque<DeflateBlockTask> blocks = new ArrayDeque<>();
+		//The entry whose compressed data is copied, if this entry is a duplicate.
+		@Nullable PendingEntry original;
+		//Whether all blocks have been submitted.
+		boolean complete;
+		long headerOffset = -1L;
+		long dataOffset;
+		long crc;
+		long size;
+		long compressedSize;
+
+		PendingEntry(byte[] name, long lastModifiedTime, int method, boolean zip64) {
+			this.name = name;
+			this.lastModifiedTime = lastModifiedTime;
+			this.method = method;
+			this.zip64 = zip64;
+		}
+	}
+
+	private static final class ContentKey {
+		final HashCode hash;
+		final long size;
+		final @Nullable Integer extensionLevel;
+
+		ContentKey(HashCode hash, long size, @Nullable Integer extensionLevel) {
+			this.hash = hash;
+			this.size = size;
+			this.extensionLevel = extensionLevel;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object object) {
+			if (this == object) {
+				return true;
+			}
+
+			if (!(object instanceof ContentKey)) {
+				return false;
+			}
+
+			final ContentKey key = (ContentKey) object;
+			return hash.equals(key.hash) && size == key.size &&
+					Objects.equals(extensionLevel, key.extensionLevel);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash.hashCode();
+		}
+	}
+
+	private final class EntryOutputStream extends OutputStream {
+		private final byte[] name;
+		private final long lastModifiedTime;
+		private final int method;
+		private final long headerOffset;
+		private final byte[] singleByte = new byte[1];
+		private long size;
+		private long compressedSize;
+		private boolean entryClosed;
+
+		EntryOutputStream(byte[] name, long lastModifiedTime, int method) throws IOException {
+			this.name = name;
+			this.lastModifiedTime = lastModifiedTime;
+			this.method = method;
+			headerOffset = channel.position();
+			//The size of the entry is unknown, so a ZIP64 extra field is always reserved.
+			writeLocalHeader(name, lastModifiedTime, method, true);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			singleByte[0] = (byte) b;
+			write(singleByte, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			Preconditions.checkState(!entryClosed, "entry has been closed");
+
+			if (length == 0) {
+				return;
+			}
+
+			crc.update(bytes, offset, length);
+			size += length;
+
+			try {
+				if (method == ZipFormat.STORED) {
+					ZipWriter.this.write(ByteBuffer.wrap(bytes, offset, length));
+					compressedSize += length;
+					return;
+				}
+
+				deflater.setInput(bytes, offset, length);
+
+				while (!deflater.needsInput()) {
+					deflate();
+				}
+			} catch (IOException ex) {
+				failed = true;
+				throw ex;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (entryClosed) {
+				return;
+			}
+
+			entryClosed = true;
+
+			try {
+				if (method == ZipFormat.DEFLATED) {
+					deflater.finish();
+
+					while (!deflater.finished()) {
+						deflate();
+					}
+				}
+
+				finishEntry(
+						headerOffset, name, lastModifiedTime, method, true, crc.getValue(), size,
+						compressedSize
+				);
+			} catch (IOException ex) {
+				failed = true;
+				throw ex;
+			} finally {
+				deflater.reset();
+				crc.reset();
+				entryOpen = false;
+			}
+		}
+
+		private void deflate() throws IOException {
+			final int length = deflater.deflate(outputBuffer, 0, outputBuffer.length);
+
+			if (length > 0) {
+				ZipWriter.this.write(ByteBuffer.wrap(outputBuffer, 0, length));
+				compressedSize += length;
+			}
+		}
+	}
+
+	private final class ZipWriterFileVisitor extends SimpleFileVisitor<Path> {
+		private final Path directory;
+		private final String entryPrefix;
+		private final Map<Path, HashCode> hashes;
+
+		ZipWriterFileVisitor(Path directory, String entryPrefix, Map<Path, HashCode> hashes) {
+			this.directory = directory;
+			this.entryPrefix = entryPrefix;
+			this.hashes = hashes;
+		}
+
+		@Override
+		public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes)
+				throws IOException {
+			if (!path.equals(directory)) {
+				addDirectoryEntry(
+						getEntryName(path) + IOConstants.UNIX_DIRECTORY_SEPARATOR,
+						attributes.lastModifiedTime().toMillis()
+				);
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+				throws IOException {
+			//Special files such as sockets cannot be added.
+			if (Files.isRegularFile(file)) {
+				addFile(file, getEntryName(file), null, hashes.get(file));
+			}
+
+			return FileVisitResult.CONTINUE;
+		}
+
+		private String getEntryName(Path path) {
+			return entryPrefix +
+					PathUtils.withUnixDirectorySeparators(directory.relativize(path));
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FileFingerprintIndexTest {
+	@Test
+	public void changesShouldBeDetected(@TempDir Path tempDirectory) throws IOException {
+		final Path directory = tempDirectory.resolve("tree");
+		final Path indexFile = tempDirectory.resolve("index");
+		final Path file1 = directory.resolve("a").resolve("b.txt");
+		final Path file2 = directory.resolve("c.txt");
+		final Path file3 = directory.resolve("d.txt");
+		final Path file4 = directory.resolve("a").resolve("e.txt");
+		NIOUtils.ensureParentExists(file1);
+		write(file1, "test1");
+		write(file2, "test2");
+		write(file3, "test3");
+
+		FileFingerprintIndex index = FileFingerprintIndex.open(directory, indexFile, true);
+		FingerprintChanges changes = index.update();
+		assertThat(changes.getAdded()).containsExactlyInAnyOrder(file1, file2, file3);
+		assertThat(index.size()).isEqualTo(3);
+		assertThat(index.update().isEmpty()).isTrue();
+
+		write(file1, "test11");
+		Files.setLastModifiedTime(file2, FileTime.fromMillis(0L));
+		Files.delete(file3);
+		write(file4, "test4");
+
+		index = FileFingerprintIndex.open(directory, indexFile, true);
+		changes = index.update();
+		assertThat(changes.getAdded()).containsExactly(file4);
+		assertThat(changes.getRemoved()).containsExactly(file3);
+		assertThat(changes.getModified()).containsExactly(file1);
+		assertThat(FileFingerprintIndex.open(directory, indexFile, true).size()).isEqualTo(3);
+	}
+
+	@Test
+	public void touchedFilesShouldBeModifiedWithoutHashing(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path file = tempDirectory.resolve("a.txt");
+		final Path indexFile = tempDirectory.resolve("index");
+		write(file, "test");
+
+		final FileFingerprintIndex index =
+				FileFingerprintIndex.open(tempDirectory, indexFile, false);
+		assertThat(index.update().getAdded()).containsExactly(file);
+
+		Files.setLastModifiedTime(file, FileTime.fromMillis(0L));
+		assertThat(index.update().getModified()).containsExactly(file);
+
+		assertThatThrownBy(() -> FileFingerprintIndex.open(tempDirectory, indexFile, true)).
+				isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void onlyIndexFilesShouldBeSkipped(@TempDir Path tempDirectory) throws IOException {
+		final Path indexFile = tempDirectory.resolve("index");
+		final Path backup = tempDirectory.resolve("index-backup.tmp");
+		write(backup, "test");
+		//A temporary file that was left behind by an interrupted save.
+		write(tempDirectory.resolve(".index.saving-123.tmp"), "test");
+
+		final FileFingerprintIndex index =
+				FileFingerprintIndex.open(tempDirectory, indexFile, false);
+		assertThat(index.update().getAdded()).containsExactly(backup);
+		assertThat(indexFile).isRegularFile();
+
+		if (!tempDirectory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			return;
+		}
+
+		Files.setPosixFilePermissions(indexFile, PosixFilePermissions.fromString("rw-rw-r--"));
+		write(backup, "test2");
+		assertThat(index.update().getModified()).containsExactly(backup);
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(indexFile))).
+				isEqualTo("rw-rw-r--");
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
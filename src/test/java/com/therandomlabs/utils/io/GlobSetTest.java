@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GlobSetTest {
+	@Test
+	public void matchingGlobsShouldBeReturned(@TempDir Path tempDirectory) throws IOException {
+		final List<Path> files = Arrays.asList(
+				tempDirectory.resolve("src").resolve("a.java"),
+				tempDirectory.resolve("src").resolve("b.txt"),
+				tempDirectory.resolve("build").resolve("src").resolve("c.java"),
+				tempDirectory.resolve("d.java")
+		);
+
+		for (Path file : files) {
+			NIOUtils.ensureParentExists(file);
+			Files.createFile(file);
+		}
+
+		final Map<Path, ImmutableSet<String>> matches = GlobSet.of(
+				Arrays.asList("**/*.java", "src/*", "*.java"),
+				Collections.singletonList("build/**")
+		).match(tempDirectory);
+
+		assertThat(matches).hasSize(3);
+		assertThat(matches).containsEntry(files.get(0), ImmutableSet.of("**/*.java", "src/*"));
+		assertThat(matches).containsEntry(files.get(1), ImmutableSet.of("src/*"));
+		assertThat(matches).containsEntry(files.get(3), ImmutableSet.of("*.java"));
+	}
+
+	@Test
+	public void globSetShouldMatchLikeMatchGlob(@TempDir Path tempDirectory) throws IOException {
+		final List<Path> files = Arrays.asList(
+				tempDirectory.resolve("aa").resolve("bb.txt"),
+				tempDirectory.resolve("aa").resolve("bc.txt"),
+				tempDirectory.resolve("ab").resolve("bb.txt"),
+				tempDirectory.resolve("ab").resolve("ab.txt"),
+				tempDirectory.resolve("bb").resolve("bb.txt")
+		);
+
+		for (Path file : files) {
+			NIOUtils.ensureParentExists(file);
+			Files.createFile(file);
+		}
+
+		assertThat(GlobSet.of("a*/b*.txt").match(tempDirectory).keySet()).
+				containsExactlyInAnyOrderElementsOf(
+						NIOUtils.matchGlob(tempDirectory, "a*/b*.txt")
+				);
+	}
+}
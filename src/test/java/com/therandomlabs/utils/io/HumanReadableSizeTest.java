@@ -24,10 +24,18 @@
 package com.therandomlabs.utils.io;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
 public class HumanReadableSizeTest {
+	private static final Locale ARABIC_EGYPT = Locale.forLanguageTag("ar-EG");
+
 	@Test
 	public void correctDecimalSizesShouldBeReturned() {
 		assertThat(HumanReadableSize.decimal(27)).isEqualTo("27 B");
@@ -56,5 +64,185 @@ public class HumanReadableSizeTest {
 		assertThat(HumanReadableSize.binary(1073741824)).matches("1[.,]0 GiB");
 		assertThat(HumanReadableSize.binary(1550000000)).matches("1[.,]4 GiB");
 		assertThat(HumanReadableSize.binary(Long.MAX_VALUE)).matches("8[.,]0 EiB");
+		//The quotient is just below 2.05, but String.format rounds it up.
+		assertThat(HumanReadableSize.binary(2308094809027379L)).matches("2[.,]1 PiB");
+	}
+
+	@Test
+	public void sizesShouldMatchStringFormat() throws IOException {
+		final Random random = new Random(0L);
+		final StringBuilder builder = new StringBuilder();
+		final char[] buffer = new char[HumanReadableSize.MAX_LENGTH + 1];
+
+		for (int i = 0; i < 100_000; i++) {
+			final long bytes = i < 2 ? Long.MIN_VALUE + i : random.nextLong() >> random.nextInt(64);
+			final String decimal = formatDecimal(bytes);
+			final String binary = formatBinary(bytes);
+
+			assertThat(HumanReadableSize.decimal(bytes)).isEqualTo(decimal);
+			assertThat(HumanReadableSize.binary(bytes)).isEqualTo(binary);
+
+			builder.setLength(0);
+			assertThat(HumanReadableSize.decimal(bytes, builder).toString()).isEqualTo(decimal);
+			builder.setLength(0);
+			assertThat(HumanReadableSize.binary(bytes, builder).toString()).isEqualTo(binary);
+
+			assertThat(HumanReadableSize.decimal(bytes, new StringWriter()).toString()).
+					isEqualTo(decimal);
+			assertThat(HumanReadableSize.binary(bytes, new StringWriter()).toString()).
+					isEqualTo(binary);
+
+			assertThat(new String(buffer, 1, HumanReadableSize.decimal(bytes, buffer, 1))).
+					isEqualTo(decimal);
+			assertThat(new String(buffer, 1, HumanReadableSize.binary(bytes, buffer, 1))).
+					isEqualTo(binary);
+		}
+	}
+
+	@Test
+	public void formatLocaleShouldBeUsed() {
+		final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+
+		try {
+			Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+			assertThat(HumanReadableSize.decimal(1500)).isEqualTo("1,5 kB");
+			assertThat(HumanReadableSize.binary(-1536)).isEqualTo("-1,5 KiB");
+
+			Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+			assertThat(HumanReadableSize.decimal(1500)).isEqualTo("1.5 kB");
+			assertThat(HumanReadableSize.binary(-1536)).isEqualTo("-1.5 KiB");
+		} finally {
+			Locale.setDefault(Locale.Category.FORMAT, locale);
+		}
+	}
+
+	@Test
+	public void sizesShouldBeParsed() {
+		assertThat(HumanReadableSize.parse("27 B")).isEqualTo(27L);
+		assertThat(HumanReadableSize.parse("-27 B")).isEqualTo(-27L);
+		assertThat(HumanReadableSize.parse("512 MiB")).isEqualTo(512L << 20);
+		assertThat(HumanReadableSize.parse("1.5GB")).isEqualTo(1_500_000_000L);
+		assertThat(HumanReadableSize.parse("1.5 kB")).isEqualTo(1500L);
+		assertThat(HumanReadableSize.parse("-1.5 KiB")).isEqualTo(-1536L);
+		//1331.2 bytes is rounded half up.
+		assertThat(HumanReadableSize.parse("1.3 KiB")).isEqualTo(1331L);
+		assertThat(HumanReadableSize.parse("0.000000000000000001 EB")).isEqualTo(1L);
+		assertThat(HumanReadableSize.parse("9223372036854775807 B")).isEqualTo(Long.MAX_VALUE);
+		assertThat(HumanReadableSize.parse("-9223372036854775808 B")).isEqualTo(Long.MIN_VALUE);
+		//These are clamped, as they are within the precision with which they are written.
+		assertThat(HumanReadableSize.parse("8.0 EiB")).isEqualTo(Long.MAX_VALUE);
+		assertThat(HumanReadableSize.parse("-8.0 EiB")).isEqualTo(Long.MIN_VALUE);
+		assertThat(HumanReadableSize.parse("x1 GBx", 1, 5)).isEqualTo(1_000_000_000L);
+
+		assertThat(HumanReadableSize.parseLenient(" 512 mib ")).isEqualTo(512L << 20);
+		assertThat(HumanReadableSize.parseLenient("1,5gb")).isEqualTo(1_500_000_000L);
+		assertThat(HumanReadableSize.parseLenient("+2k")).isEqualTo(2000L);
+		assertThat(HumanReadableSize.parseLenient(".5 Ki")).isEqualTo(512L);
+		assertThat(HumanReadableSize.parseLenient("10 KB")).isEqualTo(10_000L);
+		assertThat(HumanReadableSize.parseLenient("42")).isEqualTo(42L);
+		assertThat(HumanReadableSize.parseLenient("\u0661\u0662 b")).isEqualTo(12L);
+
+		for (String invalid : new String[] {
+				"", "B", "1", " 1 B", "1 B ", "1  B", "+1 B", "1,5 kB", "1. kB", ".5 kB",
+				"1.5 KB", "1.5 gb", "1.5 Ki", "1 bytes", "1.0000000000000000000 B"
+		}) {
+			assertThatThrownBy(() -> HumanReadableSize.parse(invalid)).
+					isInstanceOf(NumberFormatException.class);
+		}
+
+		for (String invalid : new String[] {"", " ", "-", ".", "1 i", "1 kBB", "1 Bi", "1 x"}) {
+			assertThatThrownBy(() -> HumanReadableSize.parseLenient(invalid)).
+					isInstanceOf(NumberFormatException.class);
+		}
+
+		for (String outOfRange : new String[] {
+				"9223372036854775808 B", "-9223372036854775809 B", "8.1 EiB", "9.3 EB",
+				"100000000000000000000 B", "18446744073709551616 kB"
+		}) {
+			assertThatThrownBy(() -> HumanReadableSize.parse(outOfRange)).
+					isInstanceOf(NumberFormatException.class).
+					hasMessageContaining("out of range");
+		}
+	}
+
+	@Test
+	public void parsedSizesShouldRoundTrip() {
+		final Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		final Random random = new Random(0L);
+
+		try {
+			for (int i = 0; i < 100_000; i++) {
+				final long bytes = i < 2 ?
+						Long.MIN_VALUE + i : random.nextLong() >> random.nextInt(64);
+
+				Locale.setDefault(Locale.Category.FORMAT, Locale.ROOT);
+				final String decimal = HumanReadableSize.decimal(bytes);
+				final String binary = HumanReadableSize.binary(bytes);
+				assertThat(HumanReadableSize.decimal(HumanReadableSize.parse(decimal))).
+						isEqualTo(decimal);
+
+				//1024.0 of a binary unit is parsed as 1.0 of the next unit.
+				if (!binary.matches("-?1024\\.0 .*")) {
+					assertThat(HumanReadableSize.binary(HumanReadableSize.parse(binary))).
+							isEqualTo(binary);
+				}
+
+				//Lenient parsing also accepts decimal commas.
+				Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+				final String germanDecimal = HumanReadableSize.decimal(bytes);
+				assertThat(HumanReadableSize.parseLenient(germanDecimal)).
+						isEqualTo(HumanReadableSize.parse(decimal));
+
+				//Lenient parsing also accepts the decimal separator of the format locale.
+				Locale.setDefault(Locale.Category.FORMAT, ARABIC_EGYPT);
+				final String arabicBinary = HumanReadableSize.binary(bytes);
+				assertThat(HumanReadableSize.parseLenient(arabicBinary)).
+						isEqualTo(HumanReadableSize.parse(binary));
+			}
+		} finally {
+			Locale.setDefault(Locale.Category.FORMAT, locale);
+		}
+	}
+
+	private static String formatDecimal(long bytes) {
+		final String sign = bytes < 0 ? "-" : "";
+		long abs = bytes == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(bytes);
+
+		if (abs < 1000L) {
+			return bytes + " B";
+		}
+
+		final String[] symbols = {"kB", "MB", "GB", "TB", "PB"};
+
+		for (String symbol : symbols) {
+			if (abs < 999_950L) {
+				return String.format("%s%.1f %s", sign, abs / 1000.0, symbol);
+			}
+
+			abs /= 1000;
+		}
+
+		return String.format("%s%.1f EB", sign, abs / 1000.0);
+	}
+
+	private static String formatBinary(long bytes) {
+		final String sign = bytes < 0 ? "-" : "";
+		final long abs = bytes == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(bytes);
+
+		if (abs < 1024L) {
+			return bytes + " B";
+		}
+
+		final String[] symbols = {"KiB", "MiB", "GiB", "TiB", "PiB"};
+
+		for (int i = 1; i <= symbols.length; i++) {
+			final double size = Math.pow(1024.0, i);
+
+			if (abs < size * 1024 - 52) {
+				return String.format("%s%.1f %s", sign, abs / size, symbols[i - 1]);
+			}
+		}
+
+		return String.format("%s%.1f EiB", sign, abs / Math.pow(1024.0, 6.0));
 	}
 }
@@ -24,13 +24,22 @@
 package com.therandomlabs.utils.io;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -48,6 +57,58 @@ public class NIOUtilsTest {
 		assertThat(NIOUtils.list(tempDirectory)).containsAll(files);
 	}
 
+	@Test
+	public void entriesShouldBeListedWithAttributes(@TempDir Path tempDirectory)
+			throws IOException {
+		Files.createDirectory(tempDirectory.resolve("a"));
+		Files.write(tempDirectory.resolve("b.txt"), new byte[3]);
+
+		final Map<String, FileEntry> entries = NIOUtils.listWithAttributes(tempDirectory).
+				stream().
+				collect(Collectors.toMap(FileEntry::toString, entry -> entry));
+
+		assertThat(entries).hasSize(2);
+		assertThat(entries.get(tempDirectory.resolve("a").toString()).getAttributes().
+				isDirectory()).isTrue();
+
+		final FileEntry file = entries.get(tempDirectory.resolve("b.txt").toString());
+		assertThat(file.getPath()).isEqualTo(tempDirectory.resolve("b.txt"));
+		assertThat(file.getAttributes().isRegularFile()).isTrue();
+		assertThat(file.getAttributes().size()).isEqualTo(3L);
+
+		if (tempDirectory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			assertThat(file.getPosixAttributes().permissions()).isNotEmpty();
+		} else {
+			assertThat(file.hasPosixAttributes()).isFalse();
+		}
+
+		try (Stream<FileEntry> stream = NIOUtils.stream(tempDirectory)) {
+			assertThat(stream.count()).isEqualTo(2L);
+		}
+	}
+
+	@Test
+	public void danglingLinksShouldBeListedWithAttributes(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path file = Files.createFile(tempDirectory.resolve("a.txt"));
+		final Path link = Files.createSymbolicLink(
+				tempDirectory.resolve("b"), tempDirectory.resolve("nonexistent")
+		);
+
+		assertThat(NIOUtils.list(tempDirectory)).containsExactlyInAnyOrder(file, link);
+
+		final Map<Path, FileEntry> entries = NIOUtils.listWithAttributes(tempDirectory).
+				stream().
+				collect(Collectors.toMap(FileEntry::getPath, entry -> entry));
+
+		assertThat(entries).containsOnlyKeys(file, link);
+		assertThat(entries.get(link).getAttributes().isSymbolicLink()).isTrue();
+
+		try (Stream<FileEntry> stream = NIOUtils.stream(tempDirectory)) {
+			assertThat(stream.count()).isEqualTo(2L);
+		}
+	}
+
 	@Test
 	public void emptyTreeShouldBeEmpty(@TempDir Path tempDirectory) throws IOException {
 		Files.createDirectories(tempDirectory.resolve("a").resolve("b"));
@@ -57,6 +118,33 @@ public class NIOUtilsTest {
 		assertThat(NIOUtils.isTreeEmpty(tempDirectory)).isFalse();
 	}
 
+	@Test
+	public void emptyTreeShouldBeEmptyInParallel(@TempDir Path tempDirectory) throws IOException {
+		for (int i = 0; i < 50; i++) {
+			Files.createDirectories(tempDirectory.resolve("a" + i % 7).resolve("b" + i));
+		}
+
+		assertThat(NIOUtils.isTreeEmpty(tempDirectory, 4)).isTrue();
+		Files.createFile(tempDirectory.resolve("a3").resolve("b10").resolve("c.txt"));
+		assertThat(NIOUtils.isTreeEmpty(tempDirectory, 4)).isFalse();
+	}
+
+	@Test
+	public void symbolicLinksShouldBeFollowedOnceWhenCheckingTree(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path directory = Files.createDirectories(tempDirectory.resolve("a").resolve("b"));
+		final Path emptyDirectory = Files.createDirectory(tempDirectory.resolve("c"));
+		Files.createSymbolicLink(directory.resolve("d"), emptyDirectory);
+		//The link forms a cycle, which would never end if it were followed repeatedly.
+		Files.createSymbolicLink(directory.resolve("e"), tempDirectory.resolve("a"));
+		assertThat(NIOUtils.isTreeEmpty(tempDirectory)).isTrue();
+		assertThat(NIOUtils.isTreeEmpty(tempDirectory, 4)).isTrue();
+
+		Files.createFile(emptyDirectory.resolve("f.txt"));
+		assertThat(NIOUtils.isTreeEmpty(directory)).isFalse();
+		assertThat(NIOUtils.isTreeEmpty(directory, 4)).isFalse();
+	}
+
 	@Test
 	public void parentDirectoryShouldBeCreated(@TempDir Path tempDirectory) throws IOException {
 		final Path parent = tempDirectory.resolve("a").resolve("b");
@@ -105,6 +193,120 @@ public class NIOUtilsTest {
 		assertThat(targetDirectory.resolve("a").resolve("b").resolve("c.txt")).isRegularFile();
 	}
 
+	@Test
+	public void directoryShouldBeCopiedInParallel(@TempDir Path tempDirectory) throws IOException {
+		final Path sourceDirectory = Files.createDirectory(tempDirectory.resolve("source"));
+		final List<Path> files = new ArrayList<>();
+
+		for (int i = 0; i < 100; i++) {
+			final Path directory = sourceDirectory.resolve("a" + i % 3).resolve("b" + i % 7);
+			files.add(directory.resolve(i + ".txt"));
+		}
+
+		for (Path file : files) {
+			NIOUtils.ensureParentExists(file);
+			Files.write(file, file.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		final Path targetDirectory = tempDirectory.resolve("target");
+		NIOUtils.copyDirectory(sourceDirectory, targetDirectory, CopyPlan.parallel(4));
+
+		for (Path file : files) {
+			assertThat(targetDirectory.resolve(sourceDirectory.relativize(file))).
+					hasContent(file.toString());
+		}
+	}
+
+	@Test
+	public void parallelCopyFailuresShouldBeAggregated(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path sourceDirectory = Files.createDirectory(tempDirectory.resolve("source"));
+		final Path targetDirectory = Files.createDirectory(tempDirectory.resolve("target"));
+
+		for (int i = 0; i < 3; i++) {
+			Files.createFile(sourceDirectory.resolve(i + ".txt"));
+			Files.write(
+					targetDirectory.resolve(i + ".txt"),
+					Integer.toString(i).getBytes(StandardCharsets.UTF_8)
+			);
+		}
+
+		Files.createFile(sourceDirectory.resolve("3.txt"));
+
+		assertThatThrownBy(() -> NIOUtils.copyDirectory(
+				sourceDirectory, targetDirectory, CopyPlan.parallel(2)
+		)).isInstanceOf(IOException.class).satisfies(
+				ex -> assertThat(ex.getSuppressed()).hasSize(3)
+		);
+		assertThat(targetDirectory.resolve("3.txt")).isRegularFile();
+
+		//The targets that already existed should not have been touched by the failed copies.
+		for (int i = 0; i < 3; i++) {
+			assertThat(targetDirectory.resolve(i + ".txt")).hasContent(Integer.toString(i));
+		}
+	}
+
+	@Test
+	public void existingFilesShouldSurviveFailedCopies(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path source = tempDirectory.resolve("source").resolve("test.txt");
+		final Path targetDirectory = Files.createDirectory(tempDirectory.resolve("target"));
+		final Path target = targetDirectory.resolve("test.txt");
+		NIOUtils.ensureParentExists(source);
+		Files.write(source, "source".getBytes(StandardCharsets.UTF_8));
+		Files.write(target, "target".getBytes(StandardCharsets.UTF_8));
+
+		assertThatThrownBy(() -> NIOUtils.copyPreservingDirectoryStructure(
+				Collections.singletonList(source), targetDirectory
+		)).isInstanceOf(FileAlreadyExistsException.class);
+		assertThat(target).hasContent("target");
+
+		NIOUtils.copyPreservingDirectoryStructure(
+				Collections.singletonList(source), source.getParent(),
+				StandardCopyOption.REPLACE_EXISTING
+		);
+		assertThat(source).hasContent("source");
+	}
+
+	@Test
+	public void onlyChangedFilesShouldBeSynced(@TempDir Path tempDirectory) throws IOException {
+		final Path source = tempDirectory.resolve("source");
+		final Path target = tempDirectory.resolve("target");
+		final Path file1 = source.resolve("a").resolve("b.txt");
+		final Path file2 = source.resolve("c.txt");
+		NIOUtils.ensureParentExists(file1);
+		Files.write(file1, "test1".getBytes(StandardCharsets.UTF_8));
+		Files.write(file2, "test2".getBytes(StandardCharsets.UTF_8));
+
+		SyncResult result = NIOUtils.syncDirectory(source, target, SyncOptions.defaults());
+		assertThat(result.getCopied()).hasSize(2);
+		assertThat(result.getCopiedBytes()).isEqualTo(10L);
+		assertThat(target.resolve("a").resolve("b.txt")).hasContent("test1");
+
+		result = NIOUtils.syncDirectory(source, target, SyncOptions.defaults());
+		assertThat(result.getCopied()).isEmpty();
+		assertThat(result.getUnchangedCount()).isEqualTo(2L);
+
+		Files.write(file2, "test22".getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file1, FileTime.fromMillis(0L));
+		Files.createDirectories(target.resolve("d").resolve("e"));
+		Files.createFile(target.resolve("a").resolve("f.txt"));
+
+		result = NIOUtils.syncDirectory(
+				source, target,
+				SyncOptions.defaults().comparingContents(true).deletingExtraneous(true)
+		);
+		assertThat(result.getCopied()).containsExactly(target.resolve("c.txt"));
+		assertThat(result.getDeleted()).containsExactlyInAnyOrder(
+				target.resolve("d"), target.resolve("a").resolve("f.txt")
+		);
+		assertThat(result.getUnchangedCount()).isEqualTo(1L);
+		assertThat(target.resolve("c.txt")).hasContent("test22");
+		assertThat(target.resolve("d")).doesNotExist();
+		assertThat(Files.getLastModifiedTime(target.resolve("a").resolve("b.txt")).toMillis()).
+				isZero();
+	}
+
 	@Test
 	public void directoryShouldBeDeletedRecursively(@TempDir Path tempDirectory)
 			throws IOException {
@@ -116,6 +318,21 @@ public class NIOUtilsTest {
 		assertThat(directory).doesNotExist();
 	}
 
+	@Test
+	public void directoryShouldBeDeletedInParallel(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path directory = tempDirectory.resolve("a");
+
+		for (int i = 0; i < 200; i++) {
+			final Path file = directory.resolve("b" + i % 5).resolve("c" + i % 11).resolve(i + "");
+			NIOUtils.ensureParentExists(file);
+			Files.createFile(file);
+		}
+
+		NIOUtils.deleteDirectory(directory, 4);
+		assertThat(directory).doesNotExist();
+	}
+
 	@Test
 	public void onlyFilesShouldBeDeleted(@TempDir Path tempDirectory) throws IOException {
 		final Path directory = tempDirectory.resolve("a");
@@ -127,6 +344,48 @@ public class NIOUtilsTest {
 		assertThat(file).doesNotExist();
 	}
 
+	@Test
+	public void matchingDirectoriesShouldBeDeletedWithContents(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path kept = tempDirectory.resolve("a").resolve("b.txt");
+		final Path deleted = tempDirectory.resolve("a").resolve("build").resolve("c");
+		NIOUtils.ensureParentExists(kept);
+		NIOUtils.ensureParentExists(deleted.resolve("d.txt"));
+		Files.createFile(kept);
+		Files.createFile(deleted.resolve("d.txt"));
+
+		final List<Path> tested = new ArrayList<>();
+		NIOUtils.deleteTreesInDirectory(tempDirectory, path -> {
+			tested.add(path);
+			return path.endsWith("build");
+		});
+
+		assertThat(kept).isRegularFile();
+		assertThat(deleted.getParent()).doesNotExist();
+		assertThat(tested).doesNotContain(deleted);
+	}
+
+	@Test
+	public void directoriesShouldBeFilteredAfterTheirContents(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path kept = tempDirectory.resolve("a").resolve("b").resolve("c.txt");
+		final Path deleted = tempDirectory.resolve("d").resolve("e").resolve("f.txt");
+		NIOUtils.ensureParentExists(kept);
+		NIOUtils.ensureParentExists(deleted);
+		Files.createFile(kept);
+		Files.createFile(deleted);
+
+		final List<Path> tested = new ArrayList<>();
+		NIOUtils.deleteInDirectory(tempDirectory, path -> {
+			tested.add(path);
+			return path.endsWith("d");
+		});
+
+		assertThat(kept).isRegularFile();
+		assertThat(tempDirectory.resolve("d")).doesNotExist();
+		assertThat(tested).contains(deleted);
+	}
+
 	@Test
 	public void directoryShouldBeDeletedIfExists(@TempDir Path tempDirectory) throws IOException {
 		final Path directory1 = tempDirectory.resolve("a");
@@ -154,4 +413,31 @@ public class NIOUtilsTest {
 
 		assertThat(NIOUtils.matchGlob(tempDirectory, "a*/b*.txt")).hasSize(3);
 	}
+
+	@Test
+	public void globShouldBeStreamed(@TempDir Path tempDirectory) throws IOException {
+		final List<Path> files = Arrays.asList(
+				tempDirectory.resolve("src").resolve("main").resolve("a").resolve("b.java"),
+				tempDirectory.resolve("src").resolve("main").resolve("c.java"),
+				tempDirectory.resolve("src").resolve("main").resolve("d.txt"),
+				tempDirectory.resolve("src").resolve("test").resolve("e.java"),
+				tempDirectory.resolve("build").resolve("src").resolve("main").resolve("f.java")
+		);
+
+		for (Path file : files) {
+			NIOUtils.ensureParentExists(file);
+			Files.createFile(file);
+		}
+
+		try (Stream<Path> stream = NIOUtils.streamGlob(tempDirectory, "src/main/**/*.java")) {
+			assertThat(stream.collect(Collectors.toList())).containsExactly(files.get(0));
+		}
+
+		try (Stream<Path> stream = NIOUtils.streamGlob(tempDirectory, "**/*.java")) {
+			assertThat(stream.collect(Collectors.toList())).hasSize(4);
+		}
+
+		assertThat(NIOUtils.matchGlob(tempDirectory, "src/main/*.java")).
+				containsExactly(files.get(1));
+	}
 }
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PathTableTest {
+	@Test
+	public void pathsShouldBeStoredOnce() {
+		final PathTable table = new PathTable();
+		final int file1 = table.add(Paths.get("/a/b/file1.txt"));
+		final int file2 = table.add(Paths.get("/a/b/file2.txt"));
+		final int file3 = table.add(Paths.get("/a/c/../b/file1.txt"));
+		final int relative = table.add(Paths.get("a/b"));
+
+		assertThat(file3).isEqualTo(file1);
+		assertThat(table.getParent(file1)).isEqualTo(table.getParent(file2));
+		//"/", "/a", "/a/b", the two files, "a" and "a/b".
+		assertThat(table.size()).isEqualTo(7);
+		//"/", "a", "b", "file1.txt" and "file2.txt".
+		assertThat(table.getNameCount()).isEqualTo(5);
+
+		assertThat(table.toPath(file2)).isEqualTo(Paths.get("/a/b/file2.txt"));
+		assertThat(table.toPath(relative)).isEqualTo(Paths.get("a/b"));
+		assertThat(table.toPath(table.indexOf(Paths.get("/")))).isEqualTo(Paths.get("/"));
+		assertThat(table.getFileName(file1)).isEqualTo("file1.txt");
+
+		assertThat(table.indexOf(Paths.get("/a/b"))).isEqualTo(table.getParent(file1));
+		assertThat(table.contains(Paths.get("a"))).isTrue();
+		assertThat(table.contains(Paths.get("/b"))).isFalse();
+		assertThat(table.contains(Paths.get("/a/b/file3.txt"))).isFalse();
+		assertThat(table.contains(Paths.get("b/file1.txt"))).isFalse();
+	}
+
+	@Test
+	public void directoryListingsShouldBeAdded(@TempDir Path tempDirectory) throws IOException {
+		for (int i = 0; i < 100; i++) {
+			final Path file = tempDirectory.resolve("dir" + i % 7).resolve("file" + i + ".txt");
+			NIOUtils.ensureParentExists(file);
+			Files.createFile(file);
+		}
+
+		final PathTable table = new PathTable();
+		final int[] ids;
+
+		try (Stream<Path> stream = NIOUtils.streamGlob(tempDirectory, "**/*.txt")) {
+			ids = table.addAll(stream);
+		}
+
+		assertThat(ids.length).isEqualTo(100);
+
+		for (int id : ids) {
+			final Path path = table.toPath(id);
+			assertThat(path).exists();
+			assertThat(table.indexOf(path)).isEqualTo(id);
+		}
+	}
+
+	@Test
+	public void pathsShouldBeInSameFileSystem(@TempDir Path tempDirectory) throws IOException {
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			final PathTable table = new PathTable(zipFile.getFileSystem());
+			final Path path = table.toPath(table.add(zipFile.getEntry("a/b.txt")));
+
+			assertThat(path).isEqualTo(zipFile.getEntry("a/b.txt"));
+			assertThat(path.getFileSystem()).isSameAs(zipFile.getFileSystem());
+			assertThat(table.contains(tempDirectory.resolve("a/b.txt"))).isFalse();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PathTrieTest {
+	@Test
+	public void closestContainingRootShouldBeReturned() {
+		final PathTrie trie = new PathTrie();
+		assertThat(trie.addRoot(Paths.get("/a/bc"))).isTrue();
+		assertThat(trie.addRoot(Paths.get("/a/b/c"))).isTrue();
+		assertThat(trie.addRoot(Paths.get("/a/b"))).isTrue();
+		assertThat(trie.addRoot(Paths.get("/a/./b"))).isFalse();
+		assertThat(trie.size()).isEqualTo(3);
+
+		assertThat(trie.getContainingRoot(Paths.get("/a/b"))).isEqualTo(Paths.get("/a/b"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/b/d/file.txt"))).
+				isEqualTo(Paths.get("/a/b"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/b/c/file.txt"))).
+				isEqualTo(Paths.get("/a/b/c"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/bc/file.txt"))).
+				isEqualTo(Paths.get("/a/bc"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/bcd/file.txt"))).isNull();
+		assertThat(trie.getContainingRoot(Paths.get("/a"))).isNull();
+		assertThat(trie.isUnderAnyRoot(Paths.get("/a/b/c/d"))).isTrue();
+		assertThat(trie.isUnderAnyRoot(Paths.get("/a/c"))).isFalse();
+		assertThat(trie.isUnderAnyRoot(Paths.get("a/b/c"))).isFalse();
+
+		trie.addRoot(Paths.get("/"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/c"))).isEqualTo(Paths.get("/"));
+		assertThat(trie.getContainingRoot(Paths.get("/a/b/file.txt"))).
+				isEqualTo(Paths.get("/a/b"));
+	}
+
+	@Test
+	public void pathsOnOtherFileSystemsShouldNotBeContained(@TempDir Path tempDirectory)
+			throws IOException {
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			final PathTrie trie = new PathTrie(zipFile.getFileSystem());
+			trie.addRoot(zipFile.getEntry("a"));
+
+			assertThat(trie.getContainingRoot(zipFile.getEntry("a/b"))).
+					isEqualTo(zipFile.getEntry("a"));
+			assertThat(trie.isUnderAnyRoot(tempDirectory.resolve("a/b"))).isFalse();
+		}
+	}
+}
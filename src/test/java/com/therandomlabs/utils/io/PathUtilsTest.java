@@ -25,10 +25,16 @@ package com.therandomlabs.utils.io;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class PathUtilsTest {
 	@Test
@@ -37,6 +43,29 @@ public class PathUtilsTest {
 		assertThat(PathUtils.isValid("C:\\test/path")).isTrue();
 	}
 
+	@Test
+	public void invalidPathsShouldBeReported() {
+		assertThat(PathUtils.isValid("/test\u0000/path")).isFalse();
+		assertThat(PathUtils.validateAll(Arrays.asList(
+				"/test/path", "/test\u0000/path", "test\u0000", "/test\u0000/path"
+		))).isEqualTo(ImmutableMap.of("/test\u0000/path", 5, "test\u0000", 4));
+
+		assertThat(PathUtils.findInvalidWindowsIndex("C:\\test<path")).isEqualTo(7);
+		assertThat(PathUtils.findInvalidWindowsIndex("test:path")).isEqualTo(4);
+		assertThat(PathUtils.findInvalidWindowsIndex("C:\\test\u0001")).isEqualTo(7);
+	}
+
+	@Test
+	public void pathsShouldBeValidatedOnOtherFileSystems(@TempDir Path tempDirectory)
+			throws IOException {
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			assertThat(PathUtils.isValid(zipFile.getFileSystem(), "/test/path")).isTrue();
+			assertThat(PathUtils.validateAll(
+					zipFile.getFileSystem(), Arrays.asList("/test/path", "test")
+			)).isEmpty();
+		}
+	}
+
 	@Test
 	public void correctFileNamesShouldBeReturned() {
 		assertThat(PathUtils.getFileName(Paths.get("/test/file.txt"))).isEqualTo("file.txt");
@@ -66,6 +95,31 @@ public class PathUtilsTest {
 				Paths.get("/a/b/c/file.txt"),
 				Paths.get("/a/b/file.txt")
 		))).isEqualTo(Paths.get("/a/b"));
+
+		assertThat(PathUtils.getCommonAncestor(Arrays.asList(
+				Paths.get("/a/b/file.txt"),
+				Paths.get("/a/b/file.txt"),
+				Paths.get("/a/b/./c/../file.txt")
+		))).isEqualTo(Paths.get("/a/b/file.txt"));
+
+		assertThat(PathUtils.getCommonAncestor(Paths.get("/a/file.txt"), Paths.get("/b"))).
+				isEqualTo(Paths.get("/"));
+		assertThat(PathUtils.getCommonAncestor(Paths.get("a/file.txt"), Paths.get("b"))).isNull();
+	}
+
+	@Test
+	public void closestCommonAncestorShouldBeInSameFileSystem(@TempDir Path tempDirectory)
+			throws IOException {
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			final Path ancestor = PathUtils.getCommonAncestor(Arrays.asList(
+					zipFile.getEntry("a/b/c/file.txt"),
+					zipFile.getEntry("a/b/file.txt"),
+					zipFile.getEntry("a/b/d/e/file.txt")
+			));
+
+			assertThat(ancestor).isEqualTo(zipFile.getEntry("a/b"));
+			assertThat(ancestor.getFileSystem()).isSameAs(zipFile.getFileSystem());
+		}
 	}
 
 	@Test
@@ -73,4 +127,22 @@ public class PathUtilsTest {
 		assertThat(PathUtils.withUnixDirectorySeparators(Paths.get("a\\b"))).isEqualTo("a/b");
 		assertThat(PathUtils.withUnixDirectorySeparators("C:\\test")).isEqualTo("C:/test");
 	}
+
+	@Test
+	public void separatorsShouldBeNormalized() {
+		final String normalized = "/a/b.txt";
+		assertThat(PathUtils.normalizeSeparators(normalized)).isSameAs(normalized);
+		assertThat(PathUtils.normalizeSeparators("C:\\a\\.\\b//c/")).isEqualTo("C:/a/b/c/");
+		assertThat(PathUtils.normalizeSeparators("\\\\server\\share")).isEqualTo("//server/share");
+		assertThat(PathUtils.normalizeSeparators("///a/./../b")).isEqualTo("/a/../b");
+		assertThat(PathUtils.normalizeSeparators("./.")).isEqualTo(".");
+
+		final char[] chars = "[a\\.//b]".toCharArray();
+		final int length = PathUtils.normalizeSeparators(chars, 1, chars.length - 2);
+		assertThat(new String(chars, 1, length)).isEqualTo("a/b");
+
+		final ByteBuffer buffer = ByteBuffer.wrap("a\\.//\u00e9".getBytes(StandardCharsets.UTF_8));
+		PathUtils.normalizeSeparators(buffer);
+		assertThat(StandardCharsets.UTF_8.decode(buffer).toString()).isEqualTo("a/\u00e9");
+	}
 }
@@ -0,0 +1,98 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipCompactorTest {
+	@Test
+	public void deadSpaceShouldBeReclaimed(@TempDir Path tempDirectory) throws IOException {
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			writeEntry(zipWriter, "a.txt", "test1");
+			writeEntry(zipWriter, "b.txt", "test2");
+		}
+
+		assertThat(ZipCompactor.getDeadSpace(path)).isZero();
+		assertThat(ZipCompactor.compactIfNeeded(path, 0.0)).isFalse();
+
+		for (int i = 0; i < 10; i++) {
+			try (ZipWriter zipWriter = ZipWriter.append(path)) {
+				writeEntry(zipWriter, "a.txt", "test" + i);
+			}
+		}
+
+		//An unrelated file with the same name as a naive temporary file should be left alone.
+		final Path unrelatedFile = tempDirectory.resolve("test.zip.tmp");
+		Files.write(unrelatedFile, "unrelated".getBytes(StandardCharsets.UTF_8));
+
+		final boolean posix =
+				tempDirectory.getFileSystem().supportedFileAttributeViews().contains("posix");
+
+		if (posix) {
+			Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-rw-r--"));
+		}
+
+		final long size = Files.size(path);
+		final long deadSpace = ZipCompactor.getDeadSpace(path);
+		assertThat(deadSpace).isPositive();
+		assertThat(ZipCompactor.compactIfNeeded(path, 0.99)).isFalse();
+		assertThat(ZipCompactor.compactIfNeeded(path, 0.1)).isTrue();
+		assertThat(ZipCompactor.getDeadSpace(path)).isZero();
+		assertThat(Files.size(path)).isEqualTo(size - deadSpace);
+		assertThat(unrelatedFile).hasContent("unrelated");
+
+		if (posix) {
+			assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(path))).
+					isEqualTo("rw-rw-r--");
+		}
+
+		assertThat(NIOUtils.list(tempDirectory)).containsExactlyInAnyOrder(path, unrelatedFile);
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			assertThat(zipFile.getEntry("a.txt")).hasContent("test9");
+			assertThat(zipFile.getEntry("b.txt")).hasContent("test2");
+		}
+	}
+
+	private static void writeEntry(ZipWriter zipWriter, String name, String content)
+			throws IOException {
+		try (OutputStream out = zipWriter.newEntry(name, FileTime.fromMillis(0L))) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
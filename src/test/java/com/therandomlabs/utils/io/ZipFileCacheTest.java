@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipFileCacheTest {
+	@Test
+	public void zipFilesShouldBeShared(@TempDir Path tempDirectory) throws IOException {
+		final Path path1 = writeZipFile(tempDirectory.resolve("1.zip"), "test1");
+		final Path path2 = writeZipFile(tempDirectory.resolve("2.zip"), "test2");
+		final ZipFileCache cache = new ZipFileCache(1, 1L, TimeUnit.HOURS);
+
+		try (ZipFileLease lease1 = cache.acquire(path1);
+			 ZipFileLease lease2 = cache.acquire(tempDirectory.resolve(".").resolve("1.zip"))) {
+			assertThat(lease2.getZipFile()).isSameAs(lease1.getZipFile());
+			assertThat(lease1.getZipFile().getEntry("a.txt")).hasContent("test1");
+
+			try (ZipFileLease lease3 = cache.acquire(path2)) {
+				assertThat(lease3.getZipFile().getEntry("a.txt")).hasContent("test2");
+				//Leased zip files are not evicted.
+				assertThat(cache.size()).isEqualTo(2);
+			}
+
+			assertThat(cache.size()).isEqualTo(1);
+		}
+
+		assertThat(cache.size()).isEqualTo(1);
+		cache.evictAll();
+		assertThat(cache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void modifiedZipFilesShouldBeReopened(@TempDir Path tempDirectory) throws IOException {
+		final Path path = writeZipFile(tempDirectory.resolve("test.zip"), "test1");
+		final ZipFileCache cache = new ZipFileCache(1, 1L, TimeUnit.HOURS);
+
+		try (ZipFileLease lease = cache.acquire(path)) {
+			writeZipFile(path, "test2");
+			Files.setLastModifiedTime(path, FileTime.fromMillis(0L));
+
+			//The zip file cannot be reopened while it is leased.
+			try (ZipFileLease lease2 = cache.acquire(path)) {
+				assertThat(lease2.getZipFile()).isSameAs(lease.getZipFile());
+			}
+		}
+
+		try (ZipFileLease lease = cache.acquire(path)) {
+			assertThat(lease.getZipFile().getEntry("a.txt")).hasContent("test2");
+		}
+	}
+
+	@Test
+	public void idleZipFilesShouldBeClosed(@TempDir Path tempDirectory) throws IOException {
+		final Path path = writeZipFile(tempDirectory.resolve("test.zip"), "test");
+		final ZipFileCache cache = new ZipFileCache(1, 0L, TimeUnit.SECONDS);
+		final ZipFile zipFile;
+
+		try (ZipFileLease lease = cache.acquire(path)) {
+			zipFile = lease.getZipFile();
+		}
+
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(zipFile.getFileSystem().isOpen()).isFalse();
+	}
+
+	private static Path writeZipFile(Path path, String content) throws IOException {
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			try (OutputStream out = zipWriter.newEntry("a.txt", FileTime.fromMillis(0L))) {
+				out.write(content.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		return path;
+	}
+}
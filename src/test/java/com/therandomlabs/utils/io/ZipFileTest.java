@@ -24,10 +24,18 @@
 package com.therandomlabs.utils.io;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -59,4 +67,130 @@ public class ZipFileTest {
 			assertThat(zipFile.getEntry("test").getParent().equals(zipFile.getRoot())).isTrue();
 		}
 	}
+
+	@Test
+	public void filesShouldBeCopiedIntoAndOutOfZipFile(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path sourceDirectory = tempDirectory.resolve("source");
+		final Path file = sourceDirectory.resolve("a").resolve("b.bin");
+		final byte[] bytes = new byte[1 << 20];
+		new Random(0L).nextBytes(bytes);
+		NIOUtils.ensureParentExists(file);
+		Files.write(file, bytes);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000_000L));
+
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			NIOUtils.copyDirectory(
+					sourceDirectory, zipFile.getRoot(), StandardCopyOption.COPY_ATTRIBUTES
+			);
+			assertThat(Files.readAllBytes(zipFile.getEntry("a/b.bin"))).isEqualTo(bytes);
+		}
+
+		final Path targetDirectory = tempDirectory.resolve("target");
+
+		try (ZipFile zipFile = new ZipFile(tempDirectory.resolve("test.zip"))) {
+			NIOUtils.copyDirectory(
+					zipFile.getRoot(), targetDirectory, StandardCopyOption.COPY_ATTRIBUTES
+			);
+		}
+
+		final Path target = targetDirectory.resolve("a").resolve("b.bin");
+		assertThat(target).hasBinaryContent(bytes);
+		assertThat(Files.getLastModifiedTime(target)).isEqualTo(Files.getLastModifiedTime(file));
+	}
+
+	@Test
+	public void zipFileShouldBeExtracted(@TempDir Path tempDirectory) throws IOException {
+		final Path sourceDirectory = tempDirectory.resolve("source");
+		final Path file = sourceDirectory.resolve("a").resolve("b.bin");
+		final byte[] bytes = new byte[3 << 20];
+		new Random(0L).nextBytes(bytes);
+		NIOUtils.ensureParentExists(file);
+		Files.write(file, bytes);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000_000L));
+		Files.createDirectories(sourceDirectory.resolve("c").resolve("d"));
+
+		for (int i = 0; i < 200; i++) {
+			Files.write(
+					sourceDirectory.resolve("c").resolve(i + ".txt"),
+					String.valueOf(i).getBytes(StandardCharsets.UTF_8)
+			);
+		}
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			zipWriter.addDirectory(sourceDirectory);
+		}
+
+		final Path targetDirectory = tempDirectory.resolve("target");
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			zipFile.extractTo(targetDirectory, ExtractOptions.defaults().withParallelism(4));
+		}
+
+		final Path target = targetDirectory.resolve("a").resolve("b.bin");
+		assertThat(target).hasBinaryContent(bytes);
+		assertThat(Files.getLastModifiedTime(target)).isEqualTo(Files.getLastModifiedTime(file));
+		assertThat(targetDirectory.resolve("c").resolve("d")).isDirectory();
+
+		for (int i = 0; i < 200; i++) {
+			assertThat(targetDirectory.resolve("c").resolve(i + ".txt")).
+					hasContent(String.valueOf(i));
+		}
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			assertThatThrownBy(() -> zipFile.extractTo(targetDirectory, ExtractOptions.defaults())).
+					isInstanceOf(IOException.class);
+			zipFile.extractTo(targetDirectory, ExtractOptions.defaults().replacingExisting(true));
+		}
+
+		assertThat(target).hasBinaryContent(bytes);
+	}
+
+	@Test
+	public void pendingEntriesShouldBeExtracted(@TempDir Path tempDirectory) throws IOException {
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			Files.write(zipFile.getEntry("a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+		}
+
+		final Path targetDirectory = tempDirectory.resolve("target");
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			Files.write(zipFile.getEntry("a.txt"), "b".getBytes(StandardCharsets.UTF_8));
+			NIOUtils.ensureParentExists(zipFile.getEntry("c/d.txt"));
+			Files.write(zipFile.getEntry("c/d.txt"), "d".getBytes(StandardCharsets.UTF_8));
+			zipFile.extractTo(targetDirectory, ExtractOptions.defaults());
+		}
+
+		assertThat(targetDirectory.resolve("a.txt")).hasContent("b");
+		assertThat(targetDirectory.resolve("c").resolve("d.txt")).hasContent("d");
+	}
+
+	@Test
+	public void entriesOutsideOfTargetShouldBeRejected(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(path))) {
+			out.putNextEntry(new ZipEntry("a.txt"));
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("../b.txt"));
+			out.closeEntry();
+		}
+
+		final Path targetDirectory = tempDirectory.resolve("target");
+
+		//Newer zip filesystems refuse to open such zip files at all.
+		assertThatThrownBy(() -> {
+			try (ZipFile zipFile = new ZipFile(path)) {
+				zipFile.extractTo(targetDirectory, ExtractOptions.defaults());
+			}
+		}).isInstanceOf(ZipException.class);
+
+		assertThat(targetDirectory.resolve("a.txt")).doesNotExist();
+		assertThat(tempDirectory.resolve("b.txt")).doesNotExist();
+	}
 }
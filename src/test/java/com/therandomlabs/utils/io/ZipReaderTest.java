@@ -0,0 +1,134 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipReaderTest {
+	@Test
+	public void entriesShouldBeRead(@TempDir Path tempDirectory) throws IOException {
+		final byte[] bytes = new byte[1 << 20];
+		new Random(0L).nextBytes(bytes);
+		final Path file = tempDirectory.resolve("a.bin");
+		Files.write(file, bytes);
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			zipWriter.addFile(file, "b/stored.bin", Deflater.NO_COMPRESSION);
+			zipWriter.addFile(file, "b/deflated.bin", Deflater.BEST_COMPRESSION);
+
+			try (OutputStream out = zipWriter.newEntry("c.txt", FileTime.fromMillis(0L))) {
+				out.write("test1".getBytes(StandardCharsets.UTF_8));
+			}
+
+			try (OutputStream out =
+					zipWriter.newEntry("c.txt", FileTime.fromMillis(1_000_000_000_000L))) {
+				out.write("test2".getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		try (ZipReader zipReader = new ZipReader(path)) {
+			assertThat(zipReader.size()).isEqualTo(4);
+			assertThat(zipReader.getEntryNames()).containsExactly(
+					"b/deflated.bin", "b/stored.bin", "c.txt", "c.txt"
+			);
+			assertThat(zipReader.contains("b")).isFalse();
+			assertThat(zipReader.getEntry("d.txt")).isNull();
+
+			final ZipReaderEntry stored = zipReader.getEntry("b/stored.bin");
+			assertThat(stored.isStored()).isTrue();
+			assertThat(stored.getSize()).isEqualTo(bytes.length);
+			assertThat(toArray(zipReader.getData(stored))).isEqualTo(bytes);
+
+			final ZipReaderEntry deflated = zipReader.getEntry("b/deflated.bin");
+			assertThat(deflated.isStored()).isFalse();
+			assertThat(toArray(zipReader.getData(deflated))).isEqualTo(bytes);
+
+			try (InputStream in = zipReader.newInputStream(deflated)) {
+				assertThat(ByteStreams.toByteArray(in)).isEqualTo(bytes);
+			}
+
+			//The last entry with a name should be returned.
+			final ZipReaderEntry text = zipReader.getEntry("c.txt");
+			assertThat(text.getLastModifiedTime()).
+					isEqualTo(FileTime.fromMillis(1_000_000_000_000L));
+			assertThat(new String(toArray(zipReader.getData(text)), StandardCharsets.UTF_8)).
+					isEqualTo("test2");
+		}
+	}
+
+	@Test
+	public void invalidZip64LocatorsShouldBeRejected(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			try (OutputStream out = zipWriter.newEntry("a.txt", FileTime.fromMillis(0L))) {
+				out.write("test".getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		//Insert a ZIP64 end of central directory locator that points past the end of the file
+		//before the end of central directory record, which has no comment.
+		final byte[] bytes = Files.readAllBytes(path);
+		final int endOffset = bytes.length - ZipFormat.END_SIZE;
+		final ByteBuffer zipFile = ByteBuffer.allocate(bytes.length + ZipFormat.ZIP64_LOCATOR_SIZE).
+				order(ByteOrder.LITTLE_ENDIAN);
+		zipFile.put(bytes, 0, endOffset);
+		zipFile.putInt(ZipFormat.ZIP64_LOCATOR_SIGNATURE);
+		zipFile.putInt(0);
+		zipFile.putLong(bytes.length * 2L);
+		zipFile.putInt(1);
+		zipFile.put(bytes, endOffset, ZipFormat.END_SIZE);
+		Files.write(path, zipFile.array());
+
+		assertThatThrownBy(() -> new ZipReader(path).close()).isInstanceOf(ZipException.class);
+	}
+
+	private static byte[] toArray(ByteBuffer buffer) {
+		final byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
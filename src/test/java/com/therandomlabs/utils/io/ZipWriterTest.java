@@ -0,0 +1,318 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2019-2020 TheRandomLabs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so,
+ * subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.therandomlabs.utils.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ZipWriterTest {
+	@Test
+	public void directoryShouldBeWritten(@TempDir Path tempDirectory) throws IOException {
+		final Path sourceDirectory = tempDirectory.resolve("source");
+		final Path file = sourceDirectory.resolve("a").resolve("b.bin");
+		final byte[] bytes = new byte[1 << 20];
+		new Random(0L).nextBytes(bytes);
+		NIOUtils.ensureParentExists(file);
+		Files.write(file, bytes);
+		Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000_000_000L));
+		Files.createDirectories(sourceDirectory.resolve("c"));
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			zipWriter.addDirectory(sourceDirectory, "d");
+
+			try (OutputStream out = zipWriter.newEntry("e.txt", FileTime.fromMillis(0L))) {
+				out.write("test".getBytes(StandardCharsets.UTF_8));
+			}
+
+			assertThat(zipWriter.getEntryCount()).isEqualTo(4L);
+		}
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			final Path entry = zipFile.getEntry("d/a/b.bin");
+			assertThat(Files.readAllBytes(entry)).isEqualTo(bytes);
+			assertThat(Files.getLastModifiedTime(entry)).
+					isEqualTo(Files.getLastModifiedTime(file));
+			assertThat(zipFile.getEntry("d/c")).isDirectory();
+			assertThat(zipFile.getEntry("e.txt")).hasContent("test");
+		}
+	}
+
+	@Test
+	public void directoryStructureShouldBePreserved(@TempDir Path tempDirectory)
+			throws IOException {
+		final Path file1 = tempDirectory.resolve("a").resolve("b").resolve("c.txt");
+		final Path file2 = tempDirectory.resolve("a").resolve("d.txt");
+		NIOUtils.ensureParentExists(file1);
+		Files.write(file1, "test1".getBytes(StandardCharsets.UTF_8));
+		Files.write(file2, "test2".getBytes(StandardCharsets.UTF_8));
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			zipWriter.addPreservingDirectoryStructure(Arrays.asList(file1, file2));
+		}
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			assertThat(zipFile.getEntry("b/c.txt")).hasContent("test1");
+			assertThat(zipFile.getEntry("d.txt")).hasContent("test2");
+		}
+	}
+
+	@Test
+	public void entriesShouldBeCompressedInParallel(@TempDir Path tempDirectory)
+			throws IOException {
+		final StringBuilder text = new StringBuilder();
+
+		for (int i = 0; text.length() < 3_500_000; i++) {
+			text.append("line ").append(i % 1000).append('\n');
+		}
+
+		final byte[] textBytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		final byte[] randomBytes = new byte[1 << 16];
+		new Random(0L).nextBytes(randomBytes);
+
+		final Path sourceDirectory = tempDirectory.resolve("source");
+		Files.createDirectories(sourceDirectory);
+		Files.write(sourceDirectory.resolve("a.txt"), textBytes);
+		Files.write(sourceDirectory.resolve("b.png"), textBytes);
+		Files.write(sourceDirectory.resolve("c.bin"), randomBytes);
+		Files.write(sourceDirectory.resolve("d.txt"), new byte[0]);
+
+		final Path serialPath = tempDirectory.resolve("serial.zip");
+		final Path parallelPath = tempDirectory.resolve("parallel.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(serialPath)) {
+			zipWriter.addDirectory(sourceDirectory);
+		}
+
+		try (ZipWriter zipWriter = new ZipWriter(
+				parallelPath, ZipCompressionPolicy.defaults(), 4
+		)) {
+			zipWriter.addDirectory(sourceDirectory);
+		}
+
+		assertThat(Files.readAllBytes(parallelPath)).isEqualTo(Files.readAllBytes(serialPath));
+
+		try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(parallelPath.toFile())) {
+			assertThat(zipFile.getEntry("a.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+			assertThat(zipFile.getEntry("a.txt").getCompressedSize()).
+					isLessThan(textBytes.length / 10);
+			assertThat(zipFile.getEntry("b.png").getMethod()).isEqualTo(ZipEntry.STORED);
+			assertThat(zipFile.getEntry("c.bin").getMethod()).isEqualTo(ZipEntry.STORED);
+		}
+
+		try (ZipFile zipFile = new ZipFile(parallelPath)) {
+			assertThat(Files.readAllBytes(zipFile.getEntry("a.txt"))).isEqualTo(textBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("b.png"))).isEqualTo(textBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("c.bin"))).isEqualTo(randomBytes);
+			assertThat(zipFile.getEntry("d.txt")).hasContent("");
+		}
+	}
+
+	@Test
+	public void duplicateFilesShouldBeCompressedOnce(@TempDir Path tempDirectory)
+			throws IOException {
+		final StringBuilder text = new StringBuilder();
+
+		for (int i = 0; text.length() < 1_500_000; i++) {
+			text.append("line ").append(i % 1000).append('\n');
+		}
+
+		final byte[] textBytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		final byte[] otherBytes = textBytes.clone();
+		otherBytes[otherBytes.length / 2] = 'x';
+
+		final Path sourceDirectory = tempDirectory.resolve("source");
+		final Path file = sourceDirectory.resolve("a").resolve("b.txt");
+		NIOUtils.ensureParentExists(file);
+		Files.write(file, textBytes);
+		Files.createDirectories(sourceDirectory.resolve("c"));
+		Files.write(sourceDirectory.resolve("c").resolve("b.txt"), textBytes);
+		Files.write(sourceDirectory.resolve("d.txt"), otherBytes);
+		Files.write(sourceDirectory.resolve("e.png"), textBytes);
+		Files.write(sourceDirectory.resolve("f.txt"), textBytes);
+
+		final Path path = tempDirectory.resolve("test.zip");
+		final Path undeduplicatedPath = tempDirectory.resolve("undeduplicated.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path, ZipCompressionPolicy.defaults(), 2)) {
+			zipWriter.addDirectory(sourceDirectory);
+		}
+
+		try (ZipWriter zipWriter = new ZipWriter(
+				undeduplicatedPath, ZipCompressionPolicy.defaults().deduplicating(false), 1
+		)) {
+			zipWriter.addDirectory(sourceDirectory);
+		}
+
+		//Duplicates are written exactly as if they had been compressed.
+		assertThat(Files.readAllBytes(path)).isEqualTo(Files.readAllBytes(undeduplicatedPath));
+
+		try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(path.toFile())) {
+			assertThat(zipFile.getEntry("e.png").getMethod()).isEqualTo(ZipEntry.STORED);
+			assertThat(zipFile.getEntry("f.txt").getCompressedSize()).
+					isEqualTo(zipFile.getEntry("a/b.txt").getCompressedSize());
+		}
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			assertThat(Files.readAllBytes(zipFile.getEntry("a/b.txt"))).isEqualTo(textBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("c/b.txt"))).isEqualTo(textBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("d.txt"))).isEqualTo(otherBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("e.png"))).isEqualTo(textBytes);
+			assertThat(Files.readAllBytes(zipFile.getEntry("f.txt"))).isEqualTo(textBytes);
+		}
+	}
+
+	@Test
+	public void entriesShouldBeAppended(@TempDir Path tempDirectory) throws IOException {
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			writeEntry(zipWriter, "a.txt", "test1");
+			writeEntry(zipWriter, "b.txt", "test2");
+			writeEntry(zipWriter, "c.txt", "test3");
+		}
+
+		final byte[] original = Files.readAllBytes(path);
+
+		try (ZipWriter zipWriter = ZipWriter.append(path)) {
+			//The old central directory is dead space.
+			final long deadSpace = zipWriter.getDeadSpace();
+			assertThat(deadSpace).isPositive();
+			writeEntry(zipWriter, "a.txt", "test4");
+			assertThat(zipWriter.remove("b.txt")).isTrue();
+			assertThat(zipWriter.remove("e.txt")).isFalse();
+			writeEntry(zipWriter, "d.txt", "test5");
+			assertThat(zipWriter.getDeadSpace()).isGreaterThan(deadSpace);
+			assertThat(zipWriter.getEntryCount()).isEqualTo(2L);
+		}
+
+		//The existing zip file should not have been overwritten.
+		final byte[] appended = Files.readAllBytes(path);
+		assertThat(appended.length).isGreaterThan(original.length);
+		assertThat(Arrays.copyOf(appended, original.length)).isEqualTo(original);
+		assertThat(ZipCompactor.getDeadSpace(path)).isPositive();
+
+		try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(path.toFile())) {
+			assertThat(zipFile.size()).isEqualTo(3);
+		}
+
+		try (ZipFile zipFile = new ZipFile(path)) {
+			assertThat(zipFile.getEntry("a.txt")).hasContent("test4");
+			assertThat(zipFile.getEntry("b.txt")).doesNotExist();
+			assertThat(zipFile.getEntry("c.txt")).hasContent("test3");
+			assertThat(zipFile.getEntry("d.txt")).hasContent("test5");
+		}
+	}
+
+	@Test
+	public void failedZipFileShouldNotBeCompleted(@TempDir Path tempDirectory)
+			throws IOException {
+		//Reading this file fails on Linux, so it is used to make adding an entry fail.
+		final Path unreadableFile = Paths.get("/proc/self/mem");
+		assumeTrue(Files.isRegularFile(unreadableFile));
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(path)) {
+			writeEntry(zipWriter, "a.txt", "test1");
+		}
+
+		final byte[] original = Files.readAllBytes(path);
+		final ZipWriter appendingZipWriter = ZipWriter.append(path);
+		writeEntry(appendingZipWriter, "b.txt", "test2");
+		assertThatThrownBy(() -> appendingZipWriter.addFile(unreadableFile, "c.txt")).
+				isInstanceOf(IOException.class);
+		assertThatThrownBy(() -> writeEntry(appendingZipWriter, "d.txt", "test3")).
+				isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(appendingZipWriter::close).isInstanceOf(ZipException.class);
+		assertThat(path).hasBinaryContent(original);
+
+		final ZipWriter zipWriter = new ZipWriter(path);
+		writeEntry(zipWriter, "a.txt", "test1");
+		assertThatThrownBy(() -> zipWriter.addFile(unreadableFile, "b.txt")).
+				isInstanceOf(IOException.class);
+		assertThatThrownBy(zipWriter::close).isInstanceOf(ZipException.class);
+		assertThat(Files.size(path)).isZero();
+	}
+
+	@Test
+	public void entriesThatGrowTooLargeShouldBeRejected() throws ZipException {
+		final byte[] name = "a.txt".getBytes(StandardCharsets.UTF_8);
+		ZipWriter.checkLocalSizes(name, false, ZipFormat.ZIP64_MAGIC - 1L, 1L);
+		ZipWriter.checkLocalSizes(name, true, ZipFormat.ZIP64_MAGIC, ZipFormat.ZIP64_MAGIC);
+
+		//A compressible file can grow past 4 GiB while its compressed size stays small.
+		assertThatThrownBy(() -> ZipWriter.checkLocalSizes(name, false, ZipFormat.ZIP64_MAGIC, 1L)).
+				isInstanceOf(ZipException.class);
+		assertThatThrownBy(() -> ZipWriter.checkLocalSizes(name, false, 1L, ZipFormat.ZIP64_MAGIC)).
+				isInstanceOf(ZipException.class);
+	}
+
+	@Test
+	public void uniformPolicyShouldBeUsed(@TempDir Path tempDirectory) throws IOException {
+		final Path file = tempDirectory.resolve("a.txt");
+		Files.write(file, "test".getBytes(StandardCharsets.UTF_8));
+
+		final Path path = tempDirectory.resolve("test.zip");
+
+		try (ZipWriter zipWriter = new ZipWriter(
+				path, ZipCompressionPolicy.uniform(Deflater.NO_COMPRESSION), 2
+		)) {
+			zipWriter.addFile(file, "a.txt");
+			zipWriter.addFile(file, "b.txt", Deflater.BEST_COMPRESSION);
+		}
+
+		try (java.util.zip.ZipFile zipFile = new java.util.zip.ZipFile(path.toFile())) {
+			assertThat(zipFile.getEntry("a.txt").getMethod()).isEqualTo(ZipEntry.STORED);
+			assertThat(zipFile.getEntry("b.txt").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+		}
+	}
+
+	private static void writeEntry(ZipWriter zipWriter, String name, String content)
+			throws IOException {
+		try (OutputStream out = zipWriter.newEntry(name, FileTime.fromMillis(0L))) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}